@@ -0,0 +1,121 @@
+package alias;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import service.config.AliasConfig;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Artist aliases loaded from a tab separated file, one alias group per line, e.g. converted from
+ * a MusicBrainz alias export. Falls back to the aliases bundled on the classpath when no file is
+ * configured, and reloads the file in the background whenever it is modified.
+ */
+@Singleton
+public class AliasDictionary implements Managed {
+    private static final Logger logger = LoggerFactory.getLogger(AliasDictionary.class);
+    private static final String BUILT_IN = "/aliases.tsv";
+    private static final Splitter splitter = Splitter.on('\t').trimResults().omitEmptyStrings();
+
+    private final Path file;
+    private final int reloadIntervalSeconds;
+    private volatile AliasTrie trie = AliasTrie.empty();
+    private volatile FileTime loadedVersion;
+    private volatile boolean loaded;
+    private ScheduledExecutorService reloader;
+
+    @Inject
+    public AliasDictionary(AliasConfig config) {
+        this.file = config.getFile() == null || config.getFile().isEmpty() ? null : Paths.get(config.getFile());
+        this.reloadIntervalSeconds = config.getReloadIntervalSeconds();
+        reloadIfChanged();
+    }
+
+    public static AliasDictionary builtIn() {
+        return new AliasDictionary(new AliasConfig());
+    }
+
+    public List<String> aliasesOf(String lowerCaseName) {
+        return trie.aliasesOf(lowerCaseName);
+    }
+
+    public AliasTrie getTrie() {
+        return trie;
+    }
+
+    /**
+     * @return true if a new dictionary was swapped in
+     */
+    public synchronized boolean reloadIfChanged() {
+        try {
+            FileTime version = file == null ? null : Files.getLastModifiedTime(file);
+            if (loaded && Objects.equals(version, loadedVersion)) {
+                return false;
+            }
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            AliasTrie next = AliasTrie.build(readGroups());
+            trie = next;
+            loadedVersion = version;
+            loaded = true;
+            logger.info("Loaded {} aliases in {} groups from {} in {} ms - {} trie nodes, ~{} KB",
+                    next.nameCount(), next.groupCount(), file == null ? BUILT_IN : file,
+                    stopwatch.elapsed(TimeUnit.MILLISECONDS), next.nodeCount(), next.estimatedBytes() / 1024);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Unable to load aliases, keeping previous dictionary - {} -- {}", e.getClass(), e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void start() {
+        if (file != null && reloadIntervalSeconds > 0) {
+            reloader = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("alias-reload").setDaemon(true).build());
+            reloader.scheduleWithFixedDelay(this::reloadIfChanged, reloadIntervalSeconds, reloadIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+
+    private List<List<String>> readGroups() throws IOException {
+        try (BufferedReader reader = file == null
+                ? new BufferedReader(new InputStreamReader(getClass().getResourceAsStream(BUILT_IN), StandardCharsets.UTF_8))
+                : Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<List<String>> groups = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("#")) {
+                    List<String> group = splitter.splitToList(line);
+                    if (group.size() > 1) {
+                        groups.add(group);
+                    }
+                }
+            }
+            return groups;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package alias;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable trie over lower case artist names, laid out breadth first in flat arrays so the
+ * children of a node are contiguous and can be binary searched. Each name resolves to the group
+ * of names it is an alias of; names are spelt back out by walking parent links, so no strings
+ * are held once the trie is built.
+ */
+public final class AliasTrie {
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private final char[] labels;
+    private final int[] childStart;
+    private final int[] parent;
+    private final int[] groupOfNode;
+    private final int[] groupStart;
+    private final int[] groupMembers;
+
+    private AliasTrie(char[] labels, int[] childStart, int[] parent, int[] groupOfNode, int[] groupStart, int[] groupMembers) {
+        this.labels = labels;
+        this.childStart = childStart;
+        this.parent = parent;
+        this.groupOfNode = groupOfNode;
+        this.groupStart = groupStart;
+        this.groupMembers = groupMembers;
+    }
+
+    /**
+     * Groups sharing a name are merged, so every name belongs to exactly one group.
+     */
+    public static AliasTrie build(List<List<String>> groups) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        int[] unionParent = new int[16];
+        for (List<String> group : groups) {
+            int first = -1;
+            for (String raw : group) {
+                String name = raw.trim().toLowerCase();
+                if (name.isEmpty()) {
+                    continue;
+                }
+                Integer id = ids.get(name);
+                if (id == null) {
+                    id = names.size();
+                    ids.put(name, id);
+                    names.add(name);
+                    if (id == unionParent.length) {
+                        unionParent = Arrays.copyOf(unionParent, id * 2);
+                    }
+                    unionParent[id] = id;
+                }
+                if (first == -1) {
+                    first = id;
+                } else {
+                    union(unionParent, first, id);
+                }
+            }
+        }
+        return layout(names, ids, unionParent);
+    }
+
+    public static AliasTrie empty() {
+        return build(Collections.<List<String>>emptyList());
+    }
+
+    /**
+     * @return the other names in the group of the given lower case name, empty if it has none
+     */
+    public List<String> aliasesOf(String name) {
+        int node = find(name);
+        if (node < 0 || groupOfNode[node] < 0) {
+            return Collections.emptyList();
+        }
+        int group = groupOfNode[node];
+        List<String> result = new ArrayList<>(groupStart[group + 1] - groupStart[group] - 1);
+        for (int i = groupStart[group]; i < groupStart[group + 1]; i++) {
+            if (groupMembers[i] != node) {
+                result.add(spell(groupMembers[i]));
+            }
+        }
+        return result;
+    }
+
+    public int nodeCount() {
+        return labels.length;
+    }
+
+    public int nameCount() {
+        return groupMembers.length;
+    }
+
+    public int groupCount() {
+        return groupStart.length - 1;
+    }
+
+    public long estimatedBytes() {
+        return 6L * ARRAY_HEADER_BYTES
+                + 2L * labels.length
+                + 4L * (childStart.length + parent.length + groupOfNode.length + groupStart.length + groupMembers.length);
+    }
+
+    private int find(String name) {
+        int node = 0;
+        for (int i = 0; i < name.length(); i++) {
+            int index = Arrays.binarySearch(labels, childStart[node], childStart[node + 1], name.charAt(i));
+            if (index < 0) {
+                return -1;
+            }
+            node = index;
+        }
+        return node;
+    }
+
+    private String spell(int node) {
+        StringBuilder builder = new StringBuilder();
+        for (int n = node; n != 0; n = parent[n]) {
+            builder.append(labels[n]);
+        }
+        return builder.reverse().toString();
+    }
+
+    private static AliasTrie layout(List<String> names, Map<String, Integer> ids, int[] unionParent) {
+        String[] sorted = names.toArray(new String[names.size()]);
+        Arrays.sort(sorted);
+
+        int capacity = Math.max(16, sorted.length * 4);
+        char[] labels = new char[capacity];
+        int[] childStart = new int[capacity + 1];
+        int[] parent = new int[capacity];
+        int[] terminalName = new int[capacity];
+        int[] rangeLow = new int[capacity];
+        int[] rangeHigh = new int[capacity];
+        int[] depth = new int[capacity];
+
+        int count = 1;
+        rangeHigh[0] = sorted.length;
+        for (int node = 0; node < count; node++) {
+            int low = rangeLow[node];
+            int high = rangeHigh[node];
+            int d = depth[node];
+            terminalName[node] = -1;
+            if (low < high && sorted[low].length() == d) {
+                terminalName[node] = ids.get(sorted[low]);
+                low++;
+            }
+            childStart[node] = count;
+            while (low < high) {
+                char c = sorted[low].charAt(d);
+                int end = low;
+                while (end < high && sorted[end].charAt(d) == c) {
+                    end++;
+                }
+                if (count == labels.length) {
+                    int grown = labels.length * 2;
+                    labels = Arrays.copyOf(labels, grown);
+                    childStart = Arrays.copyOf(childStart, grown + 1);
+                    parent = Arrays.copyOf(parent, grown);
+                    terminalName = Arrays.copyOf(terminalName, grown);
+                    rangeLow = Arrays.copyOf(rangeLow, grown);
+                    rangeHigh = Arrays.copyOf(rangeHigh, grown);
+                    depth = Arrays.copyOf(depth, grown);
+                }
+                labels[count] = c;
+                parent[count] = node;
+                rangeLow[count] = low;
+                rangeHigh[count] = end;
+                depth[count] = d + 1;
+                count++;
+                low = end;
+            }
+        }
+        childStart[count] = count;
+
+        int nameCount = names.size();
+        Map<Integer, Integer> groupIndex = new HashMap<>();
+        int[] nameGroup = new int[nameCount];
+        int[] groupSize = new int[nameCount];
+        for (int id = 0; id < nameCount; id++) {
+            int root = root(unionParent, id);
+            Integer group = groupIndex.get(root);
+            if (group == null) {
+                group = groupIndex.size();
+                groupIndex.put(root, group);
+            }
+            nameGroup[id] = group;
+            groupSize[group]++;
+        }
+        int groups = groupIndex.size();
+        int[] groupStart = new int[groups + 1];
+        for (int g = 0; g < groups; g++) {
+            groupStart[g + 1] = groupStart[g] + groupSize[g];
+        }
+        int[] fill = Arrays.copyOf(groupStart, groups);
+        int[] groupMembers = new int[nameCount];
+        int[] groupOfNode = new int[count];
+        for (int node = 0; node < count; node++) {
+            groupOfNode[node] = -1;
+            if (terminalName[node] >= 0) {
+                int group = nameGroup[terminalName[node]];
+                groupOfNode[node] = group;
+                groupMembers[fill[group]++] = node;
+            }
+        }
+
+        return new AliasTrie(Arrays.copyOf(labels, count), Arrays.copyOf(childStart, count + 1), Arrays.copyOf(parent, count),
+                groupOfNode, groupStart, groupMembers);
+    }
+
+    private static void union(int[] unionParent, int a, int b) {
+        int rootA = root(unionParent, a);
+        int rootB = root(unionParent, b);
+        if (rootA != rootB) {
+            unionParent[rootB] = rootA;
+        }
+    }
+
+    private static int root(int[] unionParent, int id) {
+        while (unionParent[id] != id) {
+            unionParent[id] = unionParent[unionParent[id]];
+            id = unionParent[id];
+        }
+        return id;
+    }
+}
@@ -10,13 +10,17 @@ public enum CacheKeyPrefix {
     RUMOUR("rumour_"),
     SCHEDULE("schedule_"),
     CLASHFINDER("clashfinder_"),
-    SPOTIFYACCESSTOKEN(""),
+    SPOTIFYSESSION("spotifysession_"),
+    SPOTIFYREFRESH("spotifyrefresh_"),
+    PLAYLIST("playlist_"),
     ARTISTMAPOWN("artistmapown_"),
     ARTISTMAPEXTERNAL("artistmapext_"),
     ARTISTMAPRECOWN("artistmaprecown_"),
     ARTISTMAPRECEXTERNAL("artistmaprecext_"),
     SPOTIFYARTISTSOWN("spotifyartistsown_"),
-    SPOTIFYARTISTSALL("spotifyartistsall_");
+    SPOTIFYARTISTSALL("spotifyartistsall_"),
+    SIMILAR("similar_"),
+    PROFILE("profile_");
 
     private final String prefix;
 
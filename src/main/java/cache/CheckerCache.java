@@ -5,17 +5,24 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import pipeline.Deadline;
 import redis.clients.jedis.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Supplier;
 
+import static java.util.stream.Collectors.toList;
+
 /**
  * Created by Adam on 07/06/2015.
  */
 @Singleton
 public class CheckerCache {
     private static final Logger logger = LoggerFactory.getLogger(CheckerCache.class);
+    public static final int TTL_SECONDS = 3000;
 
     @Inject
     private JedisFactory jedisFactory;
@@ -29,7 +36,12 @@ public class CheckerCache {
             logger.info("Time to live : "  + prefix + " " + key + " " + jedis.ttl(redisKey));
             String json = jedis.get(redisKey);
             if (json != null && json != "") {
-                return mapper.readValue(json, clazz);
+                try {
+                    return mapper.readValue(json, clazz);
+                } catch (IOException e) {
+                    // Stale encoding from an earlier release, replace it
+                    logger.warn("Unable to read cached value for {} - {}", redisKey, e.getMessage());
+                }
             }
             return fallback(redisKey, func, jedis);
         } catch (Exception e) {
@@ -38,16 +50,129 @@ public class CheckerCache {
         }
     }
 
+    /**
+     * As {@link #getOrLookup}, for callers that have already missed the cache, so it isn't read
+     * again. No connection is held while the lookup runs.
+     */
+    public <T> T lookup(String key, Supplier<T> func, CacheKeyPrefix prefix) {
+        Deadline deadline = Deadline.current();
+        int shortfalls = deadline.shortfalls();
+        T response = func.get();
+        if (!isPartial(prefix + key, deadline, shortfalls)) {
+            put(key, response, prefix);
+        }
+        return response;
+    }
+
+    /**
+     * @return the cached value, or null if there is none or the cache is unavailable
+     */
+    public <T> T get(String key, CacheKeyPrefix prefix, Class<T> clazz) {
+        try (Jedis jedis = jedisFactory.newJedis()) {
+            return read(prefix + key, jedis.get(prefix + key), clazz);
+        } catch (Exception e) {
+            logger.error("Unable to connect to cache - {} -- {}", e.getClass(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return the cached value of each key, null where there is none, or a list of nulls if the
+     * cache is unavailable
+     */
+    public <T> List<T> getAll(List<String> keys, CacheKeyPrefix prefix, Class<T> clazz) {
+        List<T> values = new ArrayList<>(Collections.nCopies(keys.size(), null));
+        if (keys.isEmpty()) {
+            return values;
+        }
+        try (Jedis jedis = jedisFactory.newJedis()) {
+            List<String> json = jedis.mget(keys.stream().map(key -> prefix + key).toArray(String[]::new));
+            for (int i = 0; i < keys.size(); i++) {
+                values.set(i, read(prefix + keys.get(i), json.get(i), clazz));
+            }
+        } catch (Exception e) {
+            logger.error("Unable to connect to cache - {} -- {}", e.getClass(), e.getMessage());
+        }
+        return values;
+    }
+
+    /**
+     * Replaces the cached value, restarting its time to live.
+     */
+    public <T> void put(String key, T value, CacheKeyPrefix prefix) {
+        put(key, value, prefix, TTL_SECONDS);
+    }
+
+    public <T> void put(String key, T value, CacheKeyPrefix prefix, int ttlSeconds) {
+        try (Jedis jedis = jedisFactory.newJedis()) {
+            write(prefix + key, value, ttlSeconds, jedis);
+        } catch (Exception e) {
+            logger.error("Unable to connect to cache - {} -- {}", e.getClass(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return seconds each key has left to live, negative for keys that are not cached, or null
+     * if the cache is unavailable
+     */
+    public List<Long> ttls(List<String> keys, List<CacheKeyPrefix> prefixes) {
+        try (Jedis jedis = jedisFactory.newJedis()) {
+            Pipeline pipeline = jedis.pipelined();
+            List<Response<Long>> responses = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                responses.add(pipeline.ttl(prefixes.get(i) + keys.get(i)));
+            }
+            pipeline.sync();
+            return responses.stream().map(Response::get).collect(toList());
+        } catch (Exception e) {
+            logger.error("Unable to connect to cache - {} -- {}", e.getClass(), e.getMessage());
+            return null;
+        }
+    }
+
+    private <T> T read(String key, String json, Class<T> clazz) {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+        try {
+            return mapper.readValue(json, clazz);
+        } catch (IOException e) {
+            logger.warn("Unable to read cached value for {} - {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Results that had parts left out to meet the request's deadline are returned but not
+     * cached, so the next request tries again rather than being served the partial result.
+     */
     private <T> T fallback(String key, Supplier<T> func, Jedis jedis) {
+        Deadline deadline = Deadline.current();
+        int shortfalls = deadline.shortfalls();
         T response = func.get();
+        if (isPartial(key, deadline, shortfalls)) {
+            return response;
+        }
+        write(key, response, TTL_SECONDS, jedis);
+        return response;
+    }
+
+    private static boolean isPartial(String key, Deadline deadline, int shortfallsBefore) {
+        if (deadline.shortfalls() != shortfallsBefore || deadline.isExpired()) {
+            logger.info("Not caching partial result for {}", key);
+            return true;
+        }
+        return false;
+    }
+
+    private <T> void write(String key, T value, int ttlSeconds, Jedis jedis) {
         try {
-            String inputJson = mapper.writeValueAsString(response);
+            String inputJson = mapper.writeValueAsString(value);
             jedis.set(key, inputJson);
-            jedis.expire(key, 3000);
+            jedis.expire(key, ttlSeconds);
         } catch (IOException e) {
             logger.error("Exception writing value to Redis");
         }
-        return response;
     }
 
     public void setJedisFactory(JedisFactory jedisFactory) {
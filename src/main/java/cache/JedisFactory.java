@@ -1,8 +1,10 @@
 package cache;
 
 import com.google.inject.Inject;
+import pipeline.Deadline;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.Protocol;
 import service.config.JedisConfig;
 
 /**
@@ -22,7 +24,7 @@ public class JedisFactory {
     }
 
     public Jedis newJedis() {
-        JedisShardInfo shardInfo = new JedisShardInfo(host, port);
+        JedisShardInfo shardInfo = new JedisShardInfo(host, port, Deadline.current().timeoutMillis(Protocol.DEFAULT_TIMEOUT));
         if (!password.equals("") && !password.equals(null)) {
             shardInfo.setPassword(password);
         }
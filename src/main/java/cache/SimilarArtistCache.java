@@ -0,0 +1,179 @@
+package cache;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import graph.Neighbour;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import service.config.SimilarArtistCacheConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Similar artist names per artist, shared by every user. Lookups go through an in process tier,
+ * then a single MGET against Redis, and only the artists missing from both are handed to the
+ * loader. Only the names and match scores are kept, as that is all recommendations are built from.
+ */
+@Singleton
+public class SimilarArtistCache {
+    private static final Logger logger = LoggerFactory.getLogger(SimilarArtistCache.class);
+    private static final Splitter lines = Splitter.on('\n');
+
+    private final JedisFactory jedisFactory;
+    private final int ttlSeconds;
+    private final Cache<String, List<Neighbour>> near;
+    private final Meter requests;
+    private final Meter nearHits;
+    private final Meter redisHits;
+    private final Meter misses;
+
+    @Inject
+    public SimilarArtistCache(JedisFactory jedisFactory, SimilarArtistCacheConfig config, MetricRegistry metrics) {
+        this.jedisFactory = jedisFactory;
+        this.ttlSeconds = config.getTtlSeconds();
+        this.near = CacheBuilder.newBuilder()
+                .maximumSize(config.getNearMaxEntries())
+                .expireAfterWrite(config.getNearExpiryMinutes(), TimeUnit.MINUTES)
+                .build();
+        this.requests = metrics.meter(name(SimilarArtistCache.class, "requests"));
+        this.nearHits = metrics.meter(name(SimilarArtistCache.class, "near-hits"));
+        this.redisHits = metrics.meter(name(SimilarArtistCache.class, "redis-hits"));
+        this.misses = metrics.meter(name(SimilarArtistCache.class, "misses"));
+        metrics.register(name(SimilarArtistCache.class, "hit-ratio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(nearHits.getCount() + redisHits.getCount(), requests.getCount());
+            }
+        });
+    }
+
+    /**
+     * @param loader fetches the similar artists of the names it is given, omitting any it could not fetch
+     * @return similar artists keyed by lower case artist name, in the order of the given artists
+     */
+    public Map<String, List<Neighbour>> getOrLookup(List<String> artists, Function<List<String>, Map<String, List<Neighbour>>> loader) {
+        Map<String, String> pending = new LinkedHashMap<>();
+        for (String artist : artists) {
+            pending.putIfAbsent(artist.toLowerCase(), artist);
+        }
+        List<String> order = new ArrayList<>(pending.keySet());
+        Map<String, List<Neighbour>> found = new HashMap<>();
+        requests.mark(order.size());
+
+        for (String key : order) {
+            List<Neighbour> similar = near.getIfPresent(key);
+            if (similar != null) {
+                found.put(key, similar);
+                pending.remove(key);
+            }
+        }
+        nearHits.mark(found.size());
+
+        if (!pending.isEmpty()) {
+            readRedis(pending, found);
+        }
+        if (!pending.isEmpty()) {
+            misses.mark(pending.size());
+            load(pending, loader, found);
+        }
+
+        Map<String, List<Neighbour>> result = new LinkedHashMap<>();
+        for (String key : order) {
+            List<Neighbour> similar = found.get(key);
+            if (similar != null) {
+                result.put(key, similar);
+            }
+        }
+        return result;
+    }
+
+    private void readRedis(Map<String, String> pending, Map<String, List<Neighbour>> found) {
+        List<String> keys = new ArrayList<>(pending.keySet());
+        String[] redisKeys = keys.stream().map(this::redisKey).toArray(String[]::new);
+        try (Jedis jedis = jedisFactory.newJedis()) {
+            List<String> values = jedis.mget(redisKeys);
+            int hits = 0;
+            for (int i = 0; i < keys.size(); i++) {
+                String value = values.get(i);
+                if (value != null) {
+                    List<Neighbour> similar = decode(value);
+                    near.put(keys.get(i), similar);
+                    found.put(keys.get(i), similar);
+                    pending.remove(keys.get(i));
+                    hits++;
+                }
+            }
+            redisHits.mark(hits);
+        } catch (Exception e) {
+            logger.error("Unable to read similar artists from cache - {} -- {}", e.getClass(), e.getMessage());
+        }
+    }
+
+    private void load(Map<String, String> pending, Function<List<String>, Map<String, List<Neighbour>>> loader, Map<String, List<Neighbour>> found) {
+        Map<String, List<Neighbour>> loaded = loader.apply(new ArrayList<>(pending.values()));
+        Map<String, List<Neighbour>> fresh = new HashMap<>();
+        for (Map.Entry<String, List<Neighbour>> entry : loaded.entrySet()) {
+            String key = entry.getKey().toLowerCase();
+            near.put(key, entry.getValue());
+            found.put(key, entry.getValue());
+            fresh.put(key, entry.getValue());
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+        try (Jedis jedis = jedisFactory.newJedis()) {
+            Pipeline pipeline = jedis.pipelined();
+            for (Map.Entry<String, List<Neighbour>> entry : fresh.entrySet()) {
+                pipeline.setex(redisKey(entry.getKey()), ttlSeconds, encode(entry.getValue()));
+            }
+            pipeline.sync();
+        } catch (Exception e) {
+            logger.error("Unable to write similar artists to cache - {} -- {}", e.getClass(), e.getMessage());
+        }
+    }
+
+    private String redisKey(String key) {
+        return CacheKeyPrefix.SIMILAR + key;
+    }
+
+    // One "name<tab>match" line per similar artist
+    private static String encode(List<Neighbour> similar) {
+        StringBuilder builder = new StringBuilder();
+        for (Neighbour neighbour : similar) {
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+            builder.append(neighbour.getName()).append('\t').append(neighbour.getMatch());
+        }
+        return builder.toString();
+    }
+
+    private static List<Neighbour> decode(String value) {
+        if (value.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Neighbour> result = new ArrayList<>();
+        for (String line : lines.split(value)) {
+            int tab = line.lastIndexOf('\t');
+            result.add(tab < 0 ? new Neighbour(line, 1f) : new Neighbour(line.substring(0, tab), Float.parseFloat(line.substring(tab + 1))));
+        }
+        return result;
+    }
+}
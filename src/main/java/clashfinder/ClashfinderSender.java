@@ -1,18 +1,22 @@
 package clashfinder;
 
+import client.Async;
+import client.Timeouts;
+import client.UpstreamClients;
 import clashfinder.domain.ClashFinderData;
 import clashfinder.domain.ClashfinderResponse;
 import com.google.inject.Inject;
 import exception.FestivalNotFoundException;
-import org.glassfish.jersey.client.JerseyClientBuilder;
+import pipeline.Deadline;
 import service.config.MappingConfig;
 
-import javax.ws.rs.NotFoundException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static java.util.stream.Collectors.toSet;
 
@@ -20,10 +24,13 @@ public class ClashfinderSender {
 
     private static final String baseUrl = "http://clashfinder.com/data/event/";
     private final Client client;
+    private final Timeouts timeouts;
 
 
-    public ClashfinderSender() {
-        client = JerseyClientBuilder.newClient();
+    @Inject
+    public ClashfinderSender(UpstreamClients clients) {
+        client = clients.clashfinder();
+        timeouts = clients.clashfinderTimeouts();
     }
 
     private static final Map<String,String> clashfinderFestivalMap = new HashMap<>();
@@ -89,9 +96,25 @@ public class ClashfinderSender {
         clashfinderFestivalMap.put("vvvchelmsford2010","v2010chelmsford");
     }
 
-    public ClashFinderData fetchData(String festival, String year) {
+    /**
+     * Completes with a {@link FestivalNotFoundException} for a festival Clashfinder doesn't know.
+     * Cancelling it cancels the request.
+     */
+    public CompletableFuture<ClashFinderData> fetchDataAsync(String festival, String year) {
         String actualSuffix = fetchClashfinderSuffix(festival, year);
-        ClashfinderResponse response = fetchRawResponse(actualSuffix);
+        CompletableFuture<ClashfinderResponse> request = fetchRawResponse(actualSuffix);
+        return Async.cancelling(request.handle((response, error) -> {
+            if (error == null) {
+                return toData(response);
+            }
+            if (Async.status(error) == 404) {
+                throw new FestivalNotFoundException(actualSuffix);
+            }
+            throw new CompletionException(Async.unwrap(error));
+        }), request);
+    }
+
+    private static ClashFinderData toData(ClashfinderResponse response) {
         response.getLocations().stream().forEach(l -> l.getEvents().stream().forEach(e -> e.setStage(l.getName())));
         return new ClashFinderData(response.getLocations().stream().flatMap(l -> l.getEvents().stream()).collect(toSet()));
     }
@@ -102,16 +125,11 @@ public class ClashfinderSender {
         return suffix == null ? festival + actualYear :suffix;
     }
 
-    private ClashfinderResponse fetchRawResponse(String festival) {
+    private CompletableFuture<ClashfinderResponse> fetchRawResponse(String festival) {
         WebTarget resource = client.target(buildUrl(festival));
-
-        try {
-            return resource.request(MediaType.APPLICATION_JSON_TYPE)
-                    .accept(MediaType.APPLICATION_JSON_TYPE)
-                    .get(ClashfinderResponse.class);
-        } catch (NotFoundException e) {
-            throw new FestivalNotFoundException(festival);
-        }
+        Deadline.current().check("clashfinder");
+        return Async.get(timeouts.bound(resource.request(MediaType.APPLICATION_JSON_TYPE)
+                .accept(MediaType.APPLICATION_JSON_TYPE)), ClashfinderResponse.class);
     }
 
     private String buildUrl(String festival) {
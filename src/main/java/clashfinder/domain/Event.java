@@ -62,6 +62,11 @@ public class Event implements Show {
         this.matchString = matchString;
     }
 
+    public Event(Event e, int scrobs, int reccorank, String matchString) {
+        this(e,scrobs,reccorank);
+        this.matchString = matchString;
+    }
+
 
     public String getName() {
         return name;
@@ -0,0 +1,137 @@
+package client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Adapts JAX-RS async invocations to {@link CompletableFuture}s, so callers compose on a response
+ * instead of parking a thread until it arrives. The entity is read, and anything composed on the
+ * future without an executor runs, on the client's executor, so work done there should be short.
+ * Cancelling the future cancels the request, so one still queued never runs; one under way isn't
+ * interrupted, as pooled connection calls don't survive it, and is bounded by its timeouts.
+ * Futures derived from it only cancel it through {@link #cancelling(CompletableFuture, Future)}.
+ */
+public final class Async {
+    private static final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("async-timeout").setDaemon(true).build());
+
+    private Async() {
+    }
+
+    /**
+     * @return the entity, or a {@link WebApplicationException} carrying the response for any status
+     * other than 2xx
+     */
+    public static <T> CompletableFuture<T> get(Invocation.Builder builder, Class<T> type) {
+        return invoke(type, callback -> builder.async().get(callback));
+    }
+
+    public static <T> CompletableFuture<T> post(Invocation.Builder builder, Entity<?> entity, Class<T> type) {
+        return invoke(type, callback -> builder.async().post(entity, callback));
+    }
+
+    private static <T> CompletableFuture<T> invoke(Class<T> type, Function<InvocationCallback<Response>, Future<Response>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // Typed on Response rather than T, Jersey reads the callback's type argument to pick the entity type
+        Future<Response> request = call.apply(new InvocationCallback<Response>() {
+            @Override
+            public void completed(Response response) {
+                try {
+                    if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                        response.close();
+                        result.completeExceptionally(new WebApplicationException(response));
+                    } else {
+                        result.complete(response.readEntity(type));
+                    }
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void failed(Throwable throwable) {
+                result.completeExceptionally(throwable);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                request.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Cancels the source when the derived future is cancelled, as a future built with thenApply
+     * and the like doesn't pass its cancellation back to the one it was built from.
+     *
+     * @return the derived future
+     */
+    public static <T> CompletableFuture<T> cancelling(CompletableFuture<T> derived, Future<?> source) {
+        derived.whenComplete((value, error) -> {
+            if (derived.isCancelled()) {
+                source.cancel(false);
+            }
+        });
+        return derived;
+    }
+
+    /**
+     * Fails the future with a {@link TimeoutException} if it hasn't completed within the time.
+     *
+     * @return the same future
+     */
+    public static <T> CompletableFuture<T> within(CompletableFuture<T> future, long millis) {
+        if (!future.isDone()) {
+            ScheduledFuture<?> timeout = timer.schedule(() -> future.completeExceptionally(new TimeoutException()), millis, TimeUnit.MILLISECONDS);
+            future.whenComplete((value, error) -> timeout.cancel(false));
+        }
+        return future;
+    }
+
+    /**
+     * Waits for the stage, rethrowing the runtime exception it failed with rather than a
+     * {@link CompletionException}, so blocking callers see what they saw before.
+     */
+    public static <T> T await(CompletionStage<T> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            throw unwrap(e) instanceof RuntimeException ? (RuntimeException) unwrap(e) : e;
+        }
+    }
+
+    /**
+     * @return the failure behind any {@link CompletionException} wrapping
+     */
+    public static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * @return the HTTP status the request failed with, or -1 if it failed without a response
+     */
+    public static int status(Throwable error) {
+        Throwable cause = unwrap(error);
+        return cause instanceof WebApplicationException ? ((WebApplicationException) cause).getResponse().getStatus() : -1;
+    }
+}
@@ -0,0 +1,40 @@
+package client;
+
+import io.dropwizard.client.JerseyClientConfiguration;
+import pipeline.Deadline;
+
+import javax.ws.rs.client.Invocation;
+
+/**
+ * The read and connect timeouts an upstream's client is configured with. Per-request timeouts
+ * replace the client's own rather than adding to them, so a request bounded by its
+ * {@link Deadline} starts from these and is only ever given less.
+ */
+public final class Timeouts {
+    private final int readMillis;
+    private final int connectMillis;
+
+    public Timeouts(int readMillis, int connectMillis) {
+        this.readMillis = readMillis;
+        this.connectMillis = connectMillis;
+    }
+
+    static Timeouts of(JerseyClientConfiguration config) {
+        return new Timeouts((int) config.getTimeout().toMilliseconds(), (int) config.getConnectionTimeout().toMilliseconds());
+    }
+
+    /**
+     * @return the request, with its timeouts cut short by the current {@link Deadline}
+     */
+    public Invocation.Builder bound(Invocation.Builder builder) {
+        return Deadline.current().bound(builder, readMillis, connectMillis);
+    }
+
+    public int getReadMillis() {
+        return readMillis;
+    }
+
+    public int getConnectMillis() {
+        return connectMillis;
+    }
+}
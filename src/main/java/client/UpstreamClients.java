@@ -0,0 +1,93 @@
+package client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.client.JerseyClientBuilder;
+import io.dropwizard.client.JerseyClientConfiguration;
+import io.dropwizard.setup.Environment;
+import service.config.UpstreamsConfig;
+
+import javax.ws.rs.client.Client;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * One pooled HTTP client per upstream, shared by every sender talking to it. The clients are
+ * built on Dropwizard's Apache connector, so their executors are managed by the application and
+ * their connection pools and request timings are reported under
+ * org.apache.http.conn.HttpClientConnectionManager.&lt;upstream&gt; and
+ * org.apache.http.client.HttpClient.&lt;upstream&gt;.
+ */
+public class UpstreamClients {
+    private final Client lastFm;
+    private final Client spotify;
+    private final Client clashfinder;
+    private final Client efestivals;
+    private final Timeouts lastFmTimeouts;
+    private final Timeouts spotifyTimeouts;
+    private final Timeouts clashfinderTimeouts;
+    private final Timeouts efestivalsTimeouts;
+
+    public UpstreamClients(Environment environment, UpstreamsConfig config) {
+        ObjectMapper mapper = environment.getObjectMapper().copy().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.lastFm = build(environment, mapper, config.getLastFm(), "lastfm");
+        this.spotify = build(environment, mapper, config.getSpotify(), "spotify");
+        this.clashfinder = build(environment, mapper, config.getClashfinder(), "clashfinder");
+        this.efestivals = build(environment, mapper, config.getEfestivals(), "efestivals");
+        this.lastFmTimeouts = Timeouts.of(config.getLastFm());
+        this.spotifyTimeouts = Timeouts.of(config.getSpotify());
+        this.clashfinderTimeouts = Timeouts.of(config.getClashfinder());
+        this.efestivalsTimeouts = Timeouts.of(config.getEfestivals());
+    }
+
+    private static Client build(Environment environment, ObjectMapper mapper, JerseyClientConfiguration config, String name) {
+        return new JerseyClientBuilder(environment).using(config).using(executor(environment, config, name), mapper).build(name);
+    }
+
+    /**
+     * Async requests hold an executor thread until their response is read, as the Apache
+     * connector blocks. Dropwizard's default executor only grows past minThreads once its queue is
+     * full, so concurrent requests would wait on a single thread; this one keeps a thread for
+     * every connection the upstream's pool allows.
+     */
+    private static ExecutorService executor(Environment environment, JerseyClientConfiguration config, String name) {
+        int threads = Math.max(config.getMinThreads(), Math.min(config.getMaxThreads(), config.getMaxConnectionsPerRoute()));
+        return environment.lifecycle().executorService("jersey-client-" + name + "-%d")
+                .minThreads(threads)
+                .maxThreads(threads)
+                .workQueue(new ArrayBlockingQueue<>(config.getWorkQueueSize()))
+                .build();
+    }
+
+    public Client lastFm() {
+        return lastFm;
+    }
+
+    public Client spotify() {
+        return spotify;
+    }
+
+    public Client clashfinder() {
+        return clashfinder;
+    }
+
+    public Client efestivals() {
+        return efestivals;
+    }
+
+    public Timeouts lastFmTimeouts() {
+        return lastFmTimeouts;
+    }
+
+    public Timeouts spotifyTimeouts() {
+        return spotifyTimeouts;
+    }
+
+    public Timeouts clashfinderTimeouts() {
+        return clashfinderTimeouts;
+    }
+
+    public Timeouts efestivalsTimeouts() {
+        return efestivalsTimeouts;
+    }
+}
@@ -1,29 +1,115 @@
 package domain;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lastfm.domain.Artist;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by Adam on 16/02/2016.
+ *
+ * Serialised column-wise rather than as a map of full Artist objects, as only the key, playcount,
+ * rank and match of each entry are ever read back out of the cache.
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class ArtistMap {
 
     private Map<String,Artist> artistMap;
 
 
     public ArtistMap() {
+        this.artistMap = new HashMap<>();
     }
 
     public ArtistMap(Map<String, Artist> artistMap) {
         this.artistMap = artistMap;
     }
 
+    @JsonCreator
+    public ArtistMap(@JsonProperty("k") List<String> keys,
+                     @JsonProperty("p") List<Integer> playcounts,
+                     @JsonProperty("r") List<Integer> ranks,
+                     @JsonProperty("m") Map<Integer, String> matches) {
+        this.artistMap = new HashMap<>();
+        if (keys == null) {
+            return;
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            Integer playcount = playcounts.get(i);
+            String match = matches == null ? null : matches.get(i);
+            artistMap.put(keys.get(i), new Artist(keys.get(i), playcount == null ? null : playcount.toString(), ranks.get(i), match));
+        }
+    }
+
+    /**
+     * Entries whose key is not the lower case name of one of the shows can never be read,
+     * so drop them before the map is cached.
+     */
+    public ArtistMap retainShows(Set<? extends Show> shows) {
+        Map<String, Artist> result = new HashMap<>();
+        for (Show show : shows) {
+            String key = show.getName().toLowerCase();
+            Artist artist = artistMap.get(key);
+            if (artist != null) {
+                result.put(key, artist);
+            }
+        }
+        return new ArtistMap(result);
+    }
+
+    @JsonIgnore
     public Map<String, Artist> getArtistMap() {
         return artistMap;
     }
 
+    @JsonIgnore
     public void setArtistMap(Map<String, Artist> artistMap) {
         this.artistMap = artistMap;
     }
+
+    @JsonProperty("k")
+    public List<String> getKeys() {
+        return new ArrayList<>(artistMap.keySet());
+    }
+
+    @JsonProperty("p")
+    public List<Integer> getPlaycounts() {
+        List<Integer> result = new ArrayList<>(artistMap.size());
+        for (String key : artistMap.keySet()) {
+            String playcount = artistMap.get(key).getPlaycount();
+            result.add(playcount == null ? null : Integer.valueOf(playcount));
+        }
+        return result;
+    }
+
+    @JsonProperty("r")
+    public List<Integer> getRanks() {
+        List<Integer> result = new ArrayList<>(artistMap.size());
+        for (String key : artistMap.keySet()) {
+            result.add(artistMap.get(key).getRankValue());
+        }
+        return result;
+    }
+
+    // Sparse, as only partial matches carry a match string
+    @JsonProperty("m")
+    public Map<Integer, String> getMatches() {
+        Map<Integer, String> result = new HashMap<>();
+        int i = 0;
+        for (String key : artistMap.keySet()) {
+            String match = artistMap.get(key).getMatch();
+            if (match != null) {
+                result.put(i, match);
+            }
+            i++;
+        }
+        return result.isEmpty() ? null : result;
+    }
 }
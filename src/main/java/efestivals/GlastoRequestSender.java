@@ -2,16 +2,20 @@ package efestivals;
 /**
  * Created by Adam on 23/04/2015.
  */
+import client.Async;
+import client.Timeouts;
+import client.UpstreamClients;
 import com.google.inject.Inject;
 import exception.FestivalConnectionException;
 import efestivals.domain.Act;
-import org.glassfish.jersey.client.JerseyClientBuilder;
+import pipeline.Deadline;
 
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 
 public class GlastoRequestSender {
@@ -20,31 +24,52 @@ public class GlastoRequestSender {
     private static final String urlSuffix = "/lineup.shtml";
     private static final String vFestivalPrefix = "vvv";
     private final Client client;
+    private final Timeouts timeouts;
 
     @Inject
     private GlastoResponseParser parser;
 
-    public GlastoRequestSender() {
-        client = JerseyClientBuilder.createClient();
+    @Inject
+    public GlastoRequestSender(UpstreamClients clients) {
+        client = clients.efestivals();
+        timeouts = clients.efestivalsTimeouts();
     }
 
     public Set<Act> getFestivalData(String festival, String year) throws FestivalConnectionException {
-        String rawGlastoData = getRawResponse(festival, year);
-        return new HashSet<>(parser.parseRawResponse(rawGlastoData));
+        return Async.await(getFestivalDataAsync(festival, year));
+    }
+
+    /**
+     * The page is parsed on the common pool rather than the client's executor, which would
+     * otherwise be held for the whole parse. Cancelling the result cancels the request.
+     */
+    public CompletableFuture<Set<Act>> getFestivalDataAsync(String festival, String year) {
+        CompletableFuture<String> request = getRawResponse(festival, year);
+        return Async.cancelling(request.handle((body, error) -> {
+            if (error != null) {
+                throw new FestivalConnectionException();
+            }
+            return body;
+        }).thenApplyAsync(rawGlastoData -> new HashSet<>(parser.parseRawResponse(rawGlastoData))), request);
     }
 
-    private String getRawResponse(String festival, String inputYear) throws FestivalConnectionException {
+    private CompletableFuture<String> getRawResponse(String festival, String inputYear) {
         String year = inputYear == null ? "2015" : inputYear;
         if(festival.startsWith(vFestivalPrefix)) {
             String venue = festival.replaceAll("vvv", "");
             festival = "v/" + venue;
         }
+        Deadline deadline = Deadline.current();
+        deadline.check("efestivals");
+        CompletableFuture<String> response;
         try {
             WebTarget resource = client.target(urlPrefix + festival + "/" + year + urlSuffix);
-            return resource.request(MediaType.TEXT_HTML).get(String.class);
+            response = Async.get(timeouts.bound(resource.request(MediaType.TEXT_HTML)), String.class);
         } catch (Exception e) {
-            throw new FestivalConnectionException();
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
         }
+        return response;
     }
 
     public void setParser(GlastoResponseParser parser) {
@@ -38,6 +38,11 @@ public class Act implements Show {
         this.matchString = matchString;
     }
 
+    public Act(Act act, String scrobs, Integer recrank, String matchString) {
+        this(act, scrobs, recrank);
+        this.matchString = matchString;
+    }
+
     public String getMatchString() {
         return matchString;
     }
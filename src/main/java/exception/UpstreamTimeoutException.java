@@ -0,0 +1,15 @@
+package exception;
+
+public class UpstreamTimeoutException extends RuntimeException {
+
+    private final String stage;
+
+    public UpstreamTimeoutException(String stage) {
+        super("Timed out waiting for " + stage);
+        this.stage = stage;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+}
@@ -0,0 +1,15 @@
+package exception;
+
+import org.eclipse.jetty.http.HttpStatus;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+
+public class UpstreamTimeoutExceptionMapper implements ExceptionMapper<UpstreamTimeoutException> {
+
+    @Override
+    public Response toResponse(UpstreamTimeoutException e) {
+        return Response.status(HttpStatus.GATEWAY_TIMEOUT_504).entity(e).type(MediaType.APPLICATION_JSON_TYPE).build();
+    }
+}
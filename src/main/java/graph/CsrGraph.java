@@ -0,0 +1,304 @@
+package graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Immutable artist similarity graph in compressed sparse row layout, read straight out of a
+ * memory mapped file. All sections are big endian:
+ *
+ * <pre>
+ * header       magic, version, nodes, edges, tableSize, nameBytes
+ * offsets      int[nodes + 1]     edges of node n are [offsets[n], offsets[n + 1])
+ * targets      int[edges]
+ * matches      float[edges]
+ * table        int[tableSize]     open addressed name hash table of node + 1, 0 when empty
+ * nameOffsets  int[nodes + 1]
+ * fetchedAt    long[nodes]        epoch seconds the node's own similar artists were fetched, 0 if never
+ * names        byte[nameBytes]    UTF-8 names, lower case for expanded nodes
+ * </pre>
+ *
+ * Nodes that only ever appeared as a target are present but not expanded, so a lookup can tell
+ * "no similar artists" apart from "never fetched", and one fetched too long ago apart from both.
+ * The file is limited to 2GB by the mapping.
+ */
+public final class CsrGraph {
+    private static final int MAGIC = 0x53494D47;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 24;
+
+    private final ByteBuffer buffer;
+    private final int nodes;
+    private final int edges;
+    private final int tableSize;
+    private final int offsetsAt;
+    private final int targetsAt;
+    private final int matchesAt;
+    private final int tableAt;
+    private final int nameOffsetsAt;
+    private final int fetchedAt;
+    private final int namesAt;
+
+    private CsrGraph(ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a similarity graph file");
+        }
+        this.buffer = buffer;
+        this.nodes = buffer.getInt(8);
+        this.edges = buffer.getInt(12);
+        this.tableSize = buffer.getInt(16);
+        this.offsetsAt = HEADER_BYTES;
+        this.targetsAt = offsetsAt + 4 * (nodes + 1);
+        this.matchesAt = targetsAt + 4 * edges;
+        this.tableAt = matchesAt + 4 * edges;
+        this.nameOffsetsAt = tableAt + 4 * tableSize;
+        this.fetchedAt = nameOffsetsAt + 4 * (nodes + 1);
+        this.namesAt = fetchedAt + 8 * nodes;
+    }
+
+    public static CsrGraph open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new CsrGraph(buffer);
+        }
+    }
+
+    public static CsrGraph empty() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 4 + 4 + 4);
+        buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(16, 1);
+        return new CsrGraph(buffer);
+    }
+
+    /**
+     * @return the neighbours of the given lower case name, or null if it has not been expanded
+     */
+    public List<Neighbour> neighbours(String name) {
+        return neighbours(name, 1);
+    }
+
+    /**
+     * @return the neighbours of the given lower case name, or null if it has not been expanded
+     * since the given epoch second
+     */
+    public List<Neighbour> neighbours(String name, long fetchedSince) {
+        int node = nodeOf(name);
+        if (node < 0 || !fetchedSince(node, fetchedSince)) {
+            return null;
+        }
+        return neighboursOf(node);
+    }
+
+    /**
+     * @return the epoch second the given lower case name was expanded, or 0 if it has not been
+     */
+    public long fetchedAt(String name) {
+        int node = nodeOf(name);
+        return node < 0 ? 0 : buffer.getLong(fetchedAt + 8 * node);
+    }
+
+    public int nodeOf(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int mask = tableSize - 1;
+        for (int slot = hash(bytes) & mask; ; slot = (slot + 1) & mask) {
+            int entry = buffer.getInt(tableAt + 4 * slot);
+            if (entry == 0) {
+                return -1;
+            }
+            if (nameEquals(entry - 1, bytes)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    public int nodeCount() {
+        return nodes;
+    }
+
+    public int edgeCount() {
+        return edges;
+    }
+
+    public String name(int node) {
+        int start = buffer.getInt(nameOffsetsAt + 4 * node);
+        int end = buffer.getInt(nameOffsetsAt + 4 * (node + 1));
+        byte[] bytes = new byte[end - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(namesAt + start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return every expanded node and its neighbours, for rewriting the graph
+     */
+    public Map<String, List<Neighbour>> adjacency() {
+        return adjacency(1);
+    }
+
+    /**
+     * @return every node expanded since the given epoch second and its neighbours
+     */
+    public Map<String, List<Neighbour>> adjacency(long fetchedSince) {
+        Map<String, List<Neighbour>> result = new LinkedHashMap<>();
+        for (int node = 0; node < nodes; node++) {
+            if (fetchedSince(node, fetchedSince)) {
+                result.put(name(node), neighboursOf(node));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the given adjacency, keyed by lower case name, in this layout, as fetched now.
+     */
+    public static void write(Map<String, List<Neighbour>> adjacency, OutputStream stream) throws IOException {
+        long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        write(adjacency, name -> now, stream);
+    }
+
+    /**
+     * @param fetchedAt the epoch second each key of the adjacency was fetched
+     */
+    public static void write(Map<String, List<Neighbour>> adjacency, ToLongFunction<String> fetchedAt, OutputStream stream) throws IOException {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        int edges = 0;
+        for (Map.Entry<String, List<Neighbour>> entry : adjacency.entrySet()) {
+            id(entry.getKey(), ids, names);
+            for (Neighbour neighbour : entry.getValue()) {
+                id(neighbour.getName(), ids, names);
+            }
+            edges += entry.getValue().size();
+        }
+        int nodes = names.size();
+        int tableSize = Integer.highestOneBit(Math.max(1, nodes * 2 - 1)) << 1;
+        byte[][] nameBytes = new byte[nodes][];
+        int totalNameBytes = 0;
+        int[] table = new int[tableSize];
+        for (int node = 0; node < nodes; node++) {
+            nameBytes[node] = names.get(node).getBytes(StandardCharsets.UTF_8);
+            totalNameBytes += nameBytes[node].length;
+            int slot = hash(nameBytes[node]) & (tableSize - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            table[slot] = node + 1;
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(nodes);
+        out.writeInt(edges);
+        out.writeInt(tableSize);
+        out.writeInt(totalNameBytes);
+        int offset = 0;
+        for (int node = 0; node < nodes; node++) {
+            out.writeInt(offset);
+            List<Neighbour> neighbours = adjacency.get(names.get(node));
+            offset += neighbours == null ? 0 : neighbours.size();
+        }
+        out.writeInt(offset);
+        for (int node = 0; node < nodes; node++) {
+            for (Neighbour neighbour : adjacency.getOrDefault(names.get(node), Collections.<Neighbour>emptyList())) {
+                out.writeInt(ids.get(neighbour.getName()));
+            }
+        }
+        for (int node = 0; node < nodes; node++) {
+            for (Neighbour neighbour : adjacency.getOrDefault(names.get(node), Collections.<Neighbour>emptyList())) {
+                out.writeFloat(neighbour.getMatch());
+            }
+        }
+        for (int slot : table) {
+            out.writeInt(slot);
+        }
+        int nameOffset = 0;
+        for (int node = 0; node < nodes; node++) {
+            out.writeInt(nameOffset);
+            nameOffset += nameBytes[node].length;
+        }
+        out.writeInt(nameOffset);
+        for (int node = 0; node < nodes; node++) {
+            out.writeLong(adjacency.containsKey(names.get(node)) ? Math.max(1, fetchedAt.applyAsLong(names.get(node))) : 0);
+        }
+        for (byte[] bytes : nameBytes) {
+            out.write(bytes);
+        }
+        out.flush();
+    }
+
+    public static void write(Map<String, List<Neighbour>> adjacency, Path file) throws IOException {
+        try (OutputStream stream = Files.newOutputStream(file)) {
+            write(adjacency, stream);
+        }
+    }
+
+    public static void write(Map<String, List<Neighbour>> adjacency, ToLongFunction<String> fetchedAt, Path file) throws IOException {
+        try (OutputStream stream = Files.newOutputStream(file)) {
+            write(adjacency, fetchedAt, stream);
+        }
+    }
+
+    private boolean fetchedSince(int node, long epochSecond) {
+        long fetched = buffer.getLong(fetchedAt + 8 * node);
+        return fetched != 0 && fetched >= epochSecond;
+    }
+
+    private List<Neighbour> neighboursOf(int node) {
+        int start = buffer.getInt(offsetsAt + 4 * node);
+        int end = buffer.getInt(offsetsAt + 4 * (node + 1));
+        List<Neighbour> result = new ArrayList<>(end - start);
+        for (int edge = start; edge < end; edge++) {
+            result.add(new Neighbour(name(buffer.getInt(targetsAt + 4 * edge)), buffer.getFloat(matchesAt + 4 * edge)));
+        }
+        return result;
+    }
+
+    private boolean nameEquals(int node, byte[] bytes) {
+        int start = buffer.getInt(nameOffsetsAt + 4 * node);
+        int end = buffer.getInt(nameOffsetsAt + 4 * (node + 1));
+        if (end - start != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(namesAt + start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void id(String name, Map<String, Integer> ids, List<String> names) {
+        if (!ids.containsKey(name)) {
+            ids.put(name, names.size());
+            names.add(name);
+        }
+    }
+
+    // FNV-1a, over the UTF-8 bytes so reader and writer agree regardless of String hashing
+    private static int hash(byte[] bytes) {
+        int hash = 0x811C9DC5;
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
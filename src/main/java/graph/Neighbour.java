@@ -0,0 +1,39 @@
+package graph;
+
+import java.util.Objects;
+
+public class Neighbour {
+    private final String name;
+    private final float match;
+
+    public Neighbour(String name, float match) {
+        this.name = name;
+        this.match = match;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public float getMatch() {
+        return match;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Neighbour neighbour = (Neighbour) o;
+        return Float.compare(neighbour.match, match) == 0 && Objects.equals(name, neighbour.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, match);
+    }
+
+    @Override
+    public String toString() {
+        return name + ":" + match;
+    }
+}
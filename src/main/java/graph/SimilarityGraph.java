@@ -0,0 +1,162 @@
+package graph;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import service.config.SimilarArtistCacheConfig;
+import service.config.SimilarityGraphConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Artist similarity graph filled from Last.fm similar artist responses. Reads go to the memory
+ * mapped graph file, with edges fetched since it was written held in memory until the next
+ * compaction rewrites the file with them merged in. Without a file the graph lives in memory only.
+ * An artist's similar artists are only answered for as long as the similar artist cache would
+ * keep them, after which they are fetched again, and compaction leaves them out of the file. At
+ * most {@link SimilarityGraphConfig#getMaxPendingArtists()} are held in memory, the least
+ * recently used giving way first.
+ */
+@Singleton
+public class SimilarityGraph implements Managed {
+    private static final Logger logger = LoggerFactory.getLogger(SimilarityGraph.class);
+
+    private final Path file;
+    private final int compactionIntervalMinutes;
+    private final long maxAgeSeconds;
+    private final LongSupplier clock;
+    private final Cache<String, Pending> delta;
+    private volatile CsrGraph base = CsrGraph.empty();
+    private ScheduledExecutorService compactor;
+
+    @Inject
+    public SimilarityGraph(SimilarityGraphConfig config, SimilarArtistCacheConfig similarArtists) {
+        this(config, similarArtists.getTtlSeconds(), System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock epoch millis
+     */
+    SimilarityGraph(SimilarityGraphConfig config, long maxAgeSeconds, LongSupplier clock) {
+        this.file = config.getFile() == null || config.getFile().isEmpty() ? null : Paths.get(config.getFile());
+        this.compactionIntervalMinutes = config.getCompactionIntervalMinutes();
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.clock = clock;
+        this.delta = CacheBuilder.newBuilder()
+                .maximumSize(config.getMaxPendingArtists())
+                .expireAfterWrite(maxAgeSeconds, TimeUnit.SECONDS)
+                .ticker(new Ticker() {
+                    @Override
+                    public long read() {
+                        return TimeUnit.MILLISECONDS.toNanos(clock.getAsLong());
+                    }
+                })
+                .build();
+        if (file != null && Files.exists(file)) {
+            try {
+                base = CsrGraph.open(file);
+                logger.info("Opened similarity graph {} - {} artists, {} edges", file, base.nodeCount(), base.edgeCount());
+            } catch (IOException | RuntimeException e) {
+                logger.error("Unable to open similarity graph, starting empty - {} -- {}", e.getClass(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return the similar artists of the given lower case name, or null if they have never been fetched
+     */
+    public List<Neighbour> neighbours(String name) {
+        Pending fresh = delta.getIfPresent(name);
+        return fresh != null ? fresh.neighbours : base.neighbours(name, now() - maxAgeSeconds);
+    }
+
+    /**
+     * Keys the artist by lower case name; its similar artists keep the names they are given.
+     */
+    public void add(String name, List<Neighbour> neighbours) {
+        delta.put(name.toLowerCase(), new Pending(Collections.unmodifiableList(new ArrayList<>(neighbours)), now()));
+    }
+
+    public int pending() {
+        delta.cleanUp();
+        return (int) delta.size();
+    }
+
+    /**
+     * Rewrites the graph file with the pending edges merged in, leaving out any fetched too long
+     * ago, and maps the new file.
+     */
+    public synchronized void compact() {
+        delta.cleanUp();
+        if (file == null || delta.size() == 0) {
+            return;
+        }
+        try {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            Map<String, Pending> merging = new LinkedHashMap<>(delta.asMap());
+            CsrGraph current = base;
+            Map<String, List<Neighbour>> adjacency = current.adjacency(now() - maxAgeSeconds);
+            merging.forEach((name, pending) -> adjacency.put(name, pending.neighbours));
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            CsrGraph.write(adjacency, name -> merging.containsKey(name) ? merging.get(name).fetchedAt : current.fetchedAt(name), temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            base = CsrGraph.open(file);
+            // Only what was merged, an artist fetched again meanwhile stays pending
+            merging.forEach((name, pending) -> delta.asMap().remove(name, pending));
+            logger.info("Compacted similarity graph in {} ms - {} artists, {} edges",
+                    stopwatch.elapsed(TimeUnit.MILLISECONDS), base.nodeCount(), base.edgeCount());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Unable to compact similarity graph - {} -- {}", e.getClass(), e.getMessage());
+        }
+    }
+
+    private long now() {
+        return TimeUnit.MILLISECONDS.toSeconds(clock.getAsLong());
+    }
+
+    private static final class Pending {
+        private final List<Neighbour> neighbours;
+        private final long fetchedAt;
+
+        private Pending(List<Neighbour> neighbours, long fetchedAt) {
+            this.neighbours = neighbours;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    @Override
+    public void start() {
+        if (file != null && compactionIntervalMinutes > 0) {
+            compactor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("graph-compaction").setDaemon(true).build());
+            compactor.scheduleWithFixedDelay(this::compact, compactionIntervalMinutes, compactionIntervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+        compact();
+    }
+}
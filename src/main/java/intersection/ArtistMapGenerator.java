@@ -1,14 +1,21 @@
 package intersection;
 
+import alias.AliasDictionary;
 import com.google.common.base.Splitter;
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import domain.ArtistMap;
 import domain.Show;
 import lastfm.domain.Artist;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pipeline.Deadline;
+import service.config.MatchingConfig;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -21,15 +28,22 @@ import static java.util.stream.Collectors.toMap;
  */
 @Singleton
 public class ArtistMapGenerator {
-    private BiMap<String, String> aliases = HashBiMap.create();
+    private static final Logger logger = LoggerFactory.getLogger(ArtistMapGenerator.class);
+    private static final int BUDGET_CHECK_INTERVAL = 64;
+    private static final int INDEXED_FESTIVALS = 16;
+
+    private final AliasDictionary aliases;
+    private final MatchingConfig matchingConfig;
+    private final Cache<Set<String>, TrigramIndex> indexes = CacheBuilder.newBuilder().maximumSize(INDEXED_FESTIVALS).build();
 
     public ArtistMapGenerator() {
-        aliases.put("omd", "orchestral manoeuvres in the dark");
-        aliases.put("orchestral manoeuvres in the dark", "o.m.d.");
-        aliases.put("o.m.d.", "omd");
-        aliases.put("elo", "electric light orchestra");
-        aliases.put("electric light orchestra", "e.l.o.");
-        aliases.put("e.l.o", "elo");
+        this(AliasDictionary.builtIn(), new MatchingConfig());
+    }
+
+    @Inject
+    public ArtistMapGenerator(AliasDictionary aliases, MatchingConfig matchingConfig) {
+        this.aliases = aliases;
+        this.matchingConfig = matchingConfig;
     }
 
     public ArtistMap generateLastFmMap(Set<? extends Show> festivalData, List<Artist> artists) {
@@ -46,18 +60,74 @@ public class ArtistMapGenerator {
 
         Map<String, Artist> additionalMap = generatePartialMatchMap(new ArrayList<>(artistList), festivalData);
         additionalMap.putAll(lastFmMap);
+        if (matchingConfig.isFuzzyEnabled()) {
+            addFuzzyMatches(additionalMap, festivalData, artists);
+        }
         return new ArtistMap(additionalMap);
     }
 
+    public ArtistMap generateFestivalMap(Set<? extends Show> festivalData, List<Artist> artists) {
+        return generateLastFmMap(festivalData, artists).retainShows(festivalData);
+    }
+
+    /**
+     * Only artists not already matched to a show, by name, alias, variant or partial match, are
+     * looked up, and only shows not already matched can be claimed. The index of a festival's
+     * shows is kept for the festival's next request. Stops early rather than exceed the configured
+     * time budget, recording a shortfall so the map isn't cached.
+     */
+    private void addFuzzyMatches(Map<String, Artist> artistMap, Set<? extends Show> festivalData, List<Artist> artists) {
+        if (festivalData.isEmpty()) {
+            return;
+        }
+        Set<String> showNames = festivalData.stream().map(s -> s.getName().toLowerCase()).collect(Collectors.toSet());
+        Set<String> matched = new HashSet<>();
+        artistMap.forEach((name, artist) -> {
+            if (showNames.contains(name)) {
+                matched.add(name);
+                if (artist.getMatch() != null) {
+                    matched.add(artist.getMatch().toLowerCase());
+                }
+            }
+        });
+        TrigramIndex index = indexes.getIfPresent(showNames);
+        if (index == null) {
+            index = new TrigramIndex(festivalData);
+            indexes.put(showNames, index);
+        }
+        int[] counts = new int[index.size()];
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(matchingConfig.getFuzzyBudgetMillis());
+        for (int i = 0; i < artists.size(); i++) {
+            if (i % BUDGET_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                logger.warn("Fuzzy matching stopped after {} of {} artists, budget of {} ms spent", i, artists.size(), matchingConfig.getFuzzyBudgetMillis());
+                Deadline.current().shortfall();
+                return;
+            }
+            Artist artist = artists.get(i);
+            if (isMatched(artist.getName().toLowerCase(), matched)) {
+                continue;
+            }
+            Show show = index.bestMatch(artist.getName(), matchingConfig.getFuzzyThreshold(), counts);
+            if (show != null) {
+                String key = show.getName().toLowerCase();
+                artistMap.putIfAbsent(key, new Artist(key, artist.getPlaycount(), artist.getRankValue(), artist.getName()));
+            }
+        }
+    }
+
+    private boolean isMatched(String name, Set<String> matched) {
+        if (matched.contains(name) || matched.contains(name.replace(" and ", " & ")) || matched.contains(name.replace(" & ", " and "))) {
+            return true;
+        }
+        return aliases.aliasesOf(name).stream().anyMatch(matched::contains);
+    }
+
     private List<Artist> fetchKnownAliases(List<Artist> artists) {
-        List<Artist> aliasedForward = artists.stream().filter(x -> aliases.containsKey(x.getName().toLowerCase()))
-                .map(x -> new Artist(aliases.get(x.getName().toLowerCase()), x.getPlaycount(), x.getRankValue()))
+        return artists.stream()
+                .flatMap(x -> aliases.aliasesOf(x.getName().toLowerCase()).stream()
+                        .map(alias -> new Artist(alias, x.getPlaycount(), x.getRankValue())))
+                .distinct()
                 .collect(toList());
-        List<Artist> aliasedBack = artists.stream().filter(x -> aliases.inverse().containsKey(x.getName().toLowerCase()))
-                .map(x -> new Artist(aliases.inverse().get(x.getName().toLowerCase()), x.getPlaycount(), x.getRankValue()))
-                .collect(toList());
-
-        return Stream.concat(aliasedForward.stream(), aliasedBack.stream()).distinct().collect(toList());
     }
 
     public Map<String, Artist> generatePartialMatchMap(List<Artist> artists, Set<? extends Show> festivalData) {
@@ -116,7 +186,7 @@ public class ArtistMapGenerator {
             if (showArtist.contains(" and ") || showArtist.contains(" & ")) {
                 Splitter splitter = Splitter.on("&").omitEmptyStrings();
                 List<String> entries = splitter.splitToList(listened);
-                return entries.stream().allMatch(x -> showArtist.contains(x));
+                return entries.stream().allMatch(x -> showArtist.toLowerCase().contains(x.toLowerCase()));
             }
         }
         return false;
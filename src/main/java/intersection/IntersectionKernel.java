@@ -0,0 +1,65 @@
+package intersection;
+
+import clashfinder.domain.Event;
+import domain.Show;
+import lastfm.domain.Artist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Single pass intersection of festival shows with an artist map. Each show is looked up once,
+ * each match builds exactly one result, and results are ordered by sorting primitive
+ * (sort key, position) pairs rather than with a comparator over the map.
+ */
+public final class IntersectionKernel {
+
+    private IntersectionKernel() {
+    }
+
+    /**
+     * @return one result per show with an entry in the artist map, ascending by sort key, ties
+     * kept in show iteration order
+     */
+    public static <S extends Show, R> List<R> intersect(Collection<S> shows, Map<String, Artist> artistMap,
+                                                        BiFunction<S, Artist, R> factory, ToIntFunction<? super R> sortKey) {
+        Object[] results = new Object[shows.size()];
+        long[] order = new long[shows.size()];
+        int matched = 0;
+        for (S show : shows) {
+            Artist artist = artistMap.get(show.getName().toLowerCase());
+            if (artist != null) {
+                R result = factory.apply(show, artist);
+                order[matched] = ((long) sortKey.applyAsInt(result) << 32) | matched;
+                results[matched] = result;
+                matched++;
+            }
+        }
+        Arrays.sort(order, 0, matched);
+
+        List<R> sorted = new ArrayList<>(matched);
+        for (int i = 0; i < matched; i++) {
+            @SuppressWarnings("unchecked")
+            R result = (R) results[(int) order[i]];
+            sorted.add(result);
+        }
+        return sorted;
+    }
+
+    public static List<Event> eventsByPlays(Collection<Event> events, Map<String, Artist> artistMap) {
+        return intersect(events, artistMap,
+                (e, a) -> new Event(e, Integer.parseInt(a.getPlaycount()), -1, a.getMatch()),
+                e -> -e.getScrobs());
+    }
+
+    public static List<Event> eventsByRank(Collection<Event> events, Map<String, Artist> artistMap) {
+        return intersect(events, artistMap,
+                (e, a) -> new Event(e, 0, a.getRankValue(), a.getMatch()),
+                Event::getReccorank);
+    }
+}
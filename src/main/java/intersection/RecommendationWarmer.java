@@ -0,0 +1,163 @@
+package intersection;
+
+import cache.CheckerCache;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.dropwizard.lifecycle.Managed;
+import lastfm.LastFmScheduler;
+import lastfm.domain.Artist;
+import lastfm.domain.Recommendations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pipeline.Deadline;
+import service.config.WarmerConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static cache.CacheKeyPrefix.RECCOMENDEDOWN;
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Keeps the recommendations of recently active Last.fm users in the cache. Users are tracked for
+ * a while after each request, and a periodic scan regenerates the recommendations of any whose
+ * cached copy is missing or close to expiry, one user at a time on a low priority thread whose
+ * Last.fm requests queue behind interactive ones. A refresh has a deadline of its own, longer
+ * than a request's, and replaces the cached copy only if it got everything it asked for.
+ */
+@Singleton
+public class RecommendationWarmer implements Managed {
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationWarmer.class);
+
+    private final WarmerConfig config;
+    private final CheckerCache cache;
+    private final RecommendedArtistGenerator generator;
+    private final Cache<String, Supplier<List<Artist>>> active;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Meter refreshes;
+    private final Meter failures;
+    private ThreadPoolExecutor refresher;
+    private ScheduledExecutorService scanner;
+
+    @Inject
+    public RecommendationWarmer(WarmerConfig config, CheckerCache cache, RecommendedArtistGenerator generator, MetricRegistry metrics) {
+        this.config = config;
+        this.cache = cache;
+        this.generator = generator;
+        this.active = CacheBuilder.newBuilder()
+                .maximumSize(config.getMaxTrackedUsers())
+                .expireAfterAccess(config.getActiveWindowMinutes(), TimeUnit.MINUTES)
+                .build();
+        this.refreshes = metrics.meter(name(RecommendationWarmer.class, "refreshes"));
+        this.failures = metrics.meter(name(RecommendationWarmer.class, "failures"));
+    }
+
+    /**
+     * @param sources looks up the artists the user listens to, called again on every refresh
+     */
+    public Recommendations recommendations(String username, Supplier<List<Artist>> sources) {
+        return recommendations(username, sources, sources);
+    }
+
+    /**
+     * @param current the artists to generate from if nothing is cached, for callers already
+     * fetching them for this request
+     */
+    public Recommendations recommendations(String username, Supplier<List<Artist>> sources, Supplier<List<Artist>> current) {
+        track(username, sources);
+        return cache.getOrLookup(username, () -> generator.fetchRecommendations(username, current.get()), RECCOMENDEDOWN, Recommendations.class);
+    }
+
+    /**
+     * Tracks the user without looking up their recommendations, for requests answered from
+     * results cached further along.
+     */
+    public void track(String username, Supplier<List<Artist>> sources) {
+        if (config.isEnabled()) {
+            active.put(username, sources);
+        }
+    }
+
+    /**
+     * Queues a refresh for every tracked user whose recommendations expire within the configured window.
+     */
+    public void scan() {
+        List<String> users = new ArrayList<>(active.asMap().keySet());
+        if (users.isEmpty()) {
+            return;
+        }
+        List<Long> ttls = cache.ttls(users, Collections.nCopies(users.size(), RECCOMENDEDOWN));
+        if (ttls == null) {
+            return;
+        }
+        for (int i = 0; i < users.size(); i++) {
+            if (ttls.get(i) < config.getRefreshBeforeExpirySeconds()) {
+                refresh(users.get(i));
+            }
+        }
+    }
+
+    void refresh(String username) {
+        Supplier<List<Artist>> sources = active.getIfPresent(username);
+        if (sources == null || !refreshing.add(username)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                Deadline deadline = Deadline.after(TimeUnit.SECONDS.toMillis(config.getRefreshTimeoutSeconds()));
+                try (Deadline.Scope ignored = deadline.install()) {
+                    Recommendations recommendations = LastFmScheduler.inBackground(() -> generator.fetchRecommendations(username, sources.get()));
+                    if (deadline.shortfalls() > 0) {
+                        failures.mark();
+                        logger.info("Refresh of recommendations for {} incomplete, keeping the cached copy", username);
+                        return;
+                    }
+                    cache.put(username, recommendations, RECCOMENDEDOWN);
+                    refreshes.mark();
+                } catch (RuntimeException e) {
+                    failures.mark();
+                    logger.warn("Unable to refresh recommendations for {} - {} -- {}", username, e.getClass(), e.getMessage());
+                } finally {
+                    refreshing.remove(username);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(username);
+        }
+    }
+
+    @Override
+    public void start() {
+        refresher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(config.getMaxTrackedUsers()),
+                new ThreadFactoryBuilder().setNameFormat("recommendation-warmer").setDaemon(true).setPriority(Thread.MIN_PRIORITY).build());
+        if (config.isEnabled()) {
+            scanner = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("recommendation-scan").setDaemon(true).build());
+            scanner.scheduleWithFixedDelay(this::scan, config.getScanIntervalSeconds(), config.getScanIntervalSeconds(), TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (scanner != null) {
+            scanner.shutdownNow();
+        }
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+}
@@ -1,38 +1,165 @@
 package intersection;
 
+import cache.SimilarArtistCache;
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
+import graph.Neighbour;
+import graph.SimilarityGraph;
 import lastfm.LastFmSender;
 import lastfm.domain.Artist;
 import lastfm.domain.Recommendations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pipeline.Deadline;
+import service.config.RecommendationConfig;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
 /**
  * Created by Adam on 07/02/2016.
  */
 public class RecommendedArtistGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(RecommendedArtistGenerator.class);
 
     public static final int LIMIT = 500;
     private static final int RESULT_CAP = 600;
+    private static final int MIN_SOURCES = 2;
     @Inject
     private LastFmSender lastFmSender;
     @Inject
-    private OrderingCreator orderingCreator;
-
-    public Recommendations fetchRecommendations(List<Artist> actualArtists) {
-        List<Artist> rawRecArtists = lastFmSender.fetchSimilarArtists(actualArtists.stream().map(Artist::getName).collect(toList()), LIMIT);
-        List<Artist> recArtists = orderingCreator.artistListByFrequency(rawRecArtists);
-        recArtists.removeAll(actualArtists);
-        List<Artist> finalRecArtists = recArtists.stream().filter(x -> x.getPlaycountInt() > 1).limit(RESULT_CAP).collect(toList());
-        enrichReccoRank(finalRecArtists);
+    private SimilarArtistCache similarArtistCache;
+    @Inject
+    private SimilarityGraph similarityGraph;
+    @Inject
+    private RecommendationConfig config;
+    @Inject
+    private MetricRegistry metrics;
+
+    /**
+     * Scores every artist similar to the user's artists, per the configured {@link ScoringMode},
+     * keeping those similar to at least two of them. Playcount of each recommendation is the
+     * number of the user's artists it is similar to.
+     */
+    public Recommendations fetchRecommendations(String user, List<Artist> actualArtists) {
+        List<Artist> sources = actualArtists.stream().limit(LIMIT).collect(toList());
+        Set<String> actualNames = actualArtists.stream().map(x -> x.getName().toLowerCase()).collect(toSet());
+        Predicate<String> notListened = x -> !actualNames.contains(x);
+        ScoreBoard board = new ScoreBoard(sources.size() * 20);
+
+        if (config.isAdaptive()) {
+            scoreUntilStable(user, sources, board, notListened);
+        } else {
+            score(board, sources, similarArtists(user, names(sources)));
+        }
+
+        int[] top = board.top(RESULT_CAP, MIN_SOURCES, notListened);
+        List<Artist> finalRecArtists = new ArrayList<>(top.length);
+        for (int i = 0; i < top.length; i++) {
+            finalRecArtists.add(new Artist(board.displayName(top[i]), Integer.toString(board.count(top[i])), i));
+        }
         return new Recommendations(finalRecArtists);
     }
 
-    private void enrichReccoRank(List<Artist> artist) {
-        for (int i = 0; i < artist.size(); i++) {
-            artist.get(i).setReccoRank(i);
+    /**
+     * Scores the user's artists a batch at a time in rank order, stopping once the top
+     * recommendations have come out the same for the configured number of batches in a row, as
+     * the rest of a long tail rarely moves them.
+     */
+    private void scoreUntilStable(String user, List<Artist> sources, ScoreBoard board, Predicate<String> include) {
+        int processed = 0;
+        int stable = 0;
+        int[] previous = null;
+        while (processed < sources.size() && stable < config.getStableBatches() && !Deadline.current().isExpired()) {
+            List<Artist> batch = sources.subList(processed, Math.min(sources.size(), processed + config.getBatchSize()));
+            score(board, batch, similarArtists(user, names(batch)));
+            processed += batch.size();
+
+            int[] current = board.top(config.getStableTopN(), MIN_SOURCES, include);
+            Arrays.sort(current);
+            stable = current.length > 0 && Arrays.equals(current, previous) ? stable + 1 : 0;
+            previous = current;
+        }
+        if (processed < sources.size() && stable < config.getStableBatches()) {
+            // Stopped by the deadline rather than settled
+            Deadline.current().shortfall();
+        }
+        // Not lookups saved, as a skipped artist may have been in the graph or the cache anyway
+        int skipped = sources.size() - processed;
+        metrics.histogram(name(RecommendedArtistGenerator.class, "sources-skipped")).update(skipped);
+        logger.info("Recommendations for {} settled after {} of {} artists, {} skipped", user, processed, sources.size(), skipped);
+    }
+
+    private void score(ScoreBoard board, List<Artist> sources, Map<String, List<Neighbour>> similar) {
+        ScoringMode mode = config.getScoringMode();
+        for (Artist source : sources) {
+            List<Neighbour> neighbours = similar.get(source.getName().toLowerCase());
+            if (neighbours == null) {
+                continue;
+            }
+            double sourceWeight = mode.sourceWeight(playcount(source));
+            for (Neighbour neighbour : neighbours) {
+                board.add(neighbour.getName().toLowerCase(), neighbour.getName(), mode.score(neighbour.getMatch(), sourceWeight));
+            }
+        }
+    }
+
+    private static List<String> names(List<Artist> artists) {
+        return artists.stream().map(Artist::getName).collect(toList());
+    }
+
+    /**
+     * Artists already in the local similarity graph are answered from it; only the rest go to the
+     * similar artist cache and, for its misses, Last.fm, whose responses then fill the graph.
+     * Keyed by lower cased name; the similar artists keep their names as Last.fm gives them, and
+     * are only lower cased for scoring, so recommendations are shown and matched to festival
+     * acts under their own names.
+     */
+    private Map<String, List<Neighbour>> similarArtists(String user, List<String> names) {
+        Map<String, List<Neighbour>> result = new LinkedHashMap<>();
+        List<String> unknown = new ArrayList<>();
+        for (String name : names) {
+            List<Neighbour> neighbours = similarityGraph.neighbours(name.toLowerCase());
+            if (neighbours != null) {
+                result.put(name.toLowerCase(), neighbours);
+            } else {
+                unknown.add(name);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            result.putAll(similarArtistCache.getOrLookup(unknown, x -> fetchSimilarArtists(user, x)));
+        }
+        return result;
+    }
+
+    private Map<String, List<Neighbour>> fetchSimilarArtists(String user, List<String> names) {
+        Map<String, List<Neighbour>> result = new LinkedHashMap<>();
+        lastFmSender.fetchSimilarArtistsByName(user, names).forEach((name, similar) -> {
+            List<Neighbour> neighbours = new ArrayList<>(similar.size());
+            for (int i = 0; i < similar.size(); i++) {
+                float match = similar.match(i);
+                neighbours.add(new Neighbour(similar.name(i), Float.isNaN(match) ? 0f : match));
+            }
+            similarityGraph.add(name, neighbours);
+            result.put(name, neighbours);
+        });
+        return result;
+    }
+
+    private static int playcount(Artist artist) {
+        try {
+            return artist.getPlaycount() == null ? 0 : Integer.parseInt(artist.getPlaycount());
+        } catch (NumberFormatException e) {
+            return 0;
         }
     }
 }
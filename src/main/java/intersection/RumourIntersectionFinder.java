@@ -8,19 +8,23 @@ import efestivals.GlastoRequestSender;
 import efestivals.domain.Act;
 import exception.FestivalConnectionException;
 import lastfm.LastFmSender;
+import lastfm.ListeningProfiles;
 import lastfm.domain.Artist;
 import lastfm.domain.Recommendations;
 import lastfm.domain.Response;
+import pipeline.Stage;
+import pipeline.StageExecutor;
 import spotify.SpotifyDataGrabber;
+import spotify.SpotifyUsers;
 import spotify.domain.SpotifyArtists;
+import spotify.domain.SpotifyUser;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 import static cache.CacheKeyPrefix.*;
-import static java.util.stream.Collectors.toList;
 
 /**
  * Created by Adam on 24/09/2015.
@@ -31,60 +35,84 @@ public class RumourIntersectionFinder {
     @Inject
     private LastFmSender lastFmSender;
     @Inject
+    private ListeningProfiles listeningProfiles;
+    @Inject
     private SpotifyDataGrabber spotifyDataGrabber;
     @Inject
+    private SpotifyUsers spotifyUsers;
+    @Inject
     private CheckerCache cache;
     @Inject
     private ArtistMapGenerator artistMapGenerator;
     @Inject
     private RecommendedArtistGenerator recommendedArtistGenerator;
+    @Inject
+    private RecommendationWarmer warmer;
+    @Inject
+    private StageExecutor stages;
 
     public RumourResponse findIntersection(String username, String festival, String year) throws FestivalConnectionException {
-        Response lastFmData = cache.getOrLookup(username, () -> lastFmSender.simpleRequest(username), LISTENED, Response.class);
+        Stage<Set<Act>> festivalStage = festivalStage(festival, year);
+        Response lastFmData = stages.userStage(() -> cache.getOrLookup(username, () -> listeningProfiles.topArtists(username), LISTENED, Response.class)).join();
         List<Artist> artists = lastFmData.getTopartists().getArtist();
-        List<Act> acts = computeIntersection(artists, festival, year, Artist::getRankValue);
+        List<Act> acts = computeIntersection(artists, festivalStage, Act::getRecrank);
         return new RumourResponse(acts);
     }
 
     public List<Act> findRecommendedIntersection(String username, String festival, String year) {
-        Response lastFmData = cache.getOrLookup(username, () -> lastFmSender.simpleRequest(username), LISTENED, Response.class);
-        List<Artist> artists = lastFmData.getTopartists().getArtist();
-        Recommendations recArtists = cache.getOrLookup(username, () -> recommendedArtistGenerator.fetchRecommendations(artists), RECCOMENDEDOWN, Recommendations.class);
-        return computeIntersection(recArtists.getArtist(), festival, year, Artist::getRankValue);
+        Stage<Set<Act>> festivalStage = festivalStage(festival, year);
+        Recommendations recArtists = stages.userStage(() -> warmer.recommendations(username, () -> listenedArtists(username))).join();
+        return computeIntersection(recArtists.getArtist(), festivalStage, Act::getRecrank);
     }
 
     public List<Act> findSpotifyIntersection(String authCode, String festival, String year, String redirectUrl, boolean externalPlaylistsIncluded) throws FestivalConnectionException {
-        CacheKeyPrefix cacheKey = cacheKey(externalPlaylistsIncluded);
-        SpotifyArtists artists = cache.getOrLookup(authCode, () -> spotifyDataGrabber.fetchSpotifyArtists(authCode, redirectUrl, externalPlaylistsIncluded), cacheKey, SpotifyArtists.class);
-        return computeIntersection(artists.getArtists(),festival,year,x -> -1 * x.getPlaycountInt());
+        Stage<Set<Act>> festivalStage = festivalStage(festival, year);
+        SpotifyArtists artists = stages.then(spotifyUserStage(authCode, redirectUrl), user -> spotifyArtists(user, externalPlaylistsIncluded)).join();
+        return computeIntersection(artists.getArtists(), festivalStage, x -> -Integer.parseInt(x.getScrobs()));
     }
 
     public List<Act> findSpotifyRecommendedIntersection(String authCode, String festival, String year, String redirectUrl, boolean externalPlaylistsIncluded) {
-        CacheKeyPrefix cacheKey = cacheKey(externalPlaylistsIncluded);
         CacheKeyPrefix cacheKeyRec = cacheKeyRec(externalPlaylistsIncluded);
-        SpotifyArtists artists = cache.getOrLookup(authCode, () -> spotifyDataGrabber.fetchSpotifyArtists(authCode, redirectUrl, externalPlaylistsIncluded), cacheKey, SpotifyArtists.class);
-        Recommendations recArtists = cache.getOrLookup(authCode, () -> recommendedArtistGenerator.fetchRecommendations(artists.getArtists()), cacheKeyRec, Recommendations.class);
-        return computeIntersection(recArtists.getArtist(), festival, year, Artist::getRankValue);
+        Stage<Set<Act>> festivalStage = festivalStage(festival, year);
+        Recommendations recArtists = stages.then(spotifyUserStage(authCode, redirectUrl), user -> {
+            SpotifyArtists artists = spotifyArtists(user, externalPlaylistsIncluded);
+            return cache.getOrLookup(user.getCacheKey(), () -> recommendedArtistGenerator.fetchRecommendations(user.getCacheKey(), artists.getArtists()), cacheKeyRec, Recommendations.class);
+        }).join();
+        return computeIntersection(recArtists.getArtist(), festivalStage, Act::getRecrank);
     }
 
     public List<Act> findLastFmRecommendedIntersectionLegacy(String token, String festival, String year) throws FestivalConnectionException {
-        Response lastFmResponse = cache.getOrLookup(token, () -> lastFmSender.recommendedRequest(token), RECCOMENDEDOWN, Response.class);
+        Stage<Set<Act>> festivalStage = festivalStage(festival, year);
+        Response lastFmResponse = stages.userStage(() -> cache.getOrLookup(token, () -> lastFmSender.recommendedRequest(token), RECCOMENDEDOWN, Response.class)).join();
         List<Artist> artists = lastFmResponse.getRecommendations().getArtist();
-        return computeIntersection(artists, festival, year, Artist::getRankValue);
+        return computeIntersection(artists, festivalStage, Act::getRecrank);
     }
 
-    private List<Act> computeIntersection(List<Artist> artists, String festival, String year, Function<Artist,Integer> func) throws FestivalConnectionException {
-        Set<Act> glastoData = efestivalSender.getFestivalData(festival, year);
-        Map<String, Artist> lastFmMap = artistMapGenerator.generateLastFmMap(glastoData, artists).getArtistMap();
+    private Stage<SpotifyUser> spotifyUserStage(String authCode, String redirectUrl) {
+        return stages.userStageAsync(() -> spotifyUsers.resolveAsync(authCode, redirectUrl));
+    }
 
-        return glastoData.stream().filter(g -> lastFmMap.containsKey(g.getName().toLowerCase()))
-                .map(g -> new Act(g,lastFmMap.get(g.getName().toLowerCase()).getPlaycount(),lastFmMap.get(g.getName().toLowerCase()).getRankValue()))
-                .map(g -> new Act(g,lastFmMap.get(g.getName().toLowerCase()).getMatch()))
-                .sorted((x, y) -> Integer.compare(func.apply(lastFmMap.get(x.getName().toLowerCase())),
-                        func.apply(lastFmMap.get(y.getName().toLowerCase()))))
-                .collect(toList());
+    private SpotifyArtists spotifyArtists(SpotifyUser user, boolean externalPlaylistsIncluded) {
+        return cache.getOrLookup(user.getCacheKey(), () -> spotifyDataGrabber.fetchSpotifyArtists(user, externalPlaylistsIncluded), cacheKey(externalPlaylistsIncluded), SpotifyArtists.class);
+    }
 
+    private List<Artist> listenedArtists(String username) {
+        Response response = cache.getOrLookup(username, () -> listeningProfiles.topArtists(username), LISTENED, Response.class);
+        return response.getTopartists().getArtist();
     }
+
+    private Stage<Set<Act>> festivalStage(String festival, String year) {
+        return stages.festivalStageAsync(() -> efestivalSender.getFestivalDataAsync(festival, year));
+    }
+
+    private List<Act> computeIntersection(List<Artist> artists, Stage<Set<Act>> festivalStage, ToIntFunction<Act> sortKey) throws FestivalConnectionException {
+        Set<Act> glastoData = festivalStage.join();
+        Map<String, Artist> lastFmMap = artistMapGenerator.generateLastFmMap(glastoData, artists).getArtistMap();
+
+        return IntersectionKernel.intersect(glastoData, lastFmMap,
+                (g, a) -> new Act(g, a.getPlaycount(), a.getRankValue(), a.getMatch()), sortKey);
+    }
+
     private CacheKeyPrefix cacheKey(boolean externalPlaylistsIncluded) {
         return externalPlaylistsIncluded ? SPOTIFYARTISTSALL : SPOTIFYARTISTSOWN;
     }
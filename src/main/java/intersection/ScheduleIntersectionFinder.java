@@ -5,29 +5,34 @@ import cache.CheckerCache;
 import clashfinder.ClashfinderSender;
 import clashfinder.domain.ClashFinderData;
 import clashfinder.domain.Event;
+import client.Async;
 import com.google.inject.Inject;
 import domain.ArtistMap;
-import lastfm.LastFmSender;
+import lastfm.ListeningProfiles;
 import lastfm.domain.Artist;
 import lastfm.domain.Recommendations;
 import lastfm.domain.Response;
+import pipeline.Stage;
+import pipeline.StageExecutor;
 import spotify.SpotifyDataGrabber;
+import spotify.SpotifyUsers;
 import spotify.domain.SpotifyArtists;
+import spotify.domain.SpotifyUser;
 import strategy.PreferenceStrategy;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static cache.CacheKeyPrefix.*;
-import static java.util.stream.Collectors.toList;
 
 /**
  * Created by Adam on 24/09/2015.
  */
 public class ScheduleIntersectionFinder {
     @Inject
-    private LastFmSender lastFmSender;
+    private ListeningProfiles listeningProfiles;
     @Inject
     private CheckerCache cache;
     @Inject
@@ -37,84 +42,187 @@ public class ScheduleIntersectionFinder {
     @Inject
     private SpotifyDataGrabber spotifyDataGrabber;
     @Inject
+    private SpotifyUsers spotifyUsers;
+    @Inject
     private RecommendedArtistGenerator recommendedArtistGenerator;
+    @Inject
+    private RecommendationWarmer warmer;
+    @Inject
+    private StageExecutor stages;
 
 
     public List<Event> findSIntersection(String username, String festival, String year) {
-        ClashFinderData clashFinderData =
-                cache.getOrLookup(festival + year, () -> clashFinderSender.fetchData(festival, year), CLASHFINDER, ClashFinderData.class);
-        Response response = cache.getOrLookup(username, () -> lastFmSender.simpleRequest(username), LISTENED, Response.class);
-        List<Artist> artists = response.getTopartists().getArtist();
-        ArtistMap artistMap = cache.getOrLookup(username + festival + year, () -> artistMapGenerator.generateLastFmMap(clashFinderData.getEvents(), artists), ARTISTMAPOWN, ArtistMap.class);
+        Stage<ClashFinderData> festivalStage = festivalStage(festival, year);
+        List<Artist> artists = stages.userStage(() -> listenedArtists(username)).join();
+        ClashFinderData clashFinderData = festivalStage.join();
+        ArtistMap artistMap = cache.getOrLookup(username + festival + year, () -> artistMapGenerator.generateFestivalMap(clashFinderData.getEvents(), artists), ARTISTMAPOWN, ArtistMap.class);
         return matchingEventsByPlays(clashFinderData.getEvents(), artistMap.getArtistMap());
     }
 
     public List<Event> findReccoScheduleIntersection(String username, String festival, String year) {
-        ClashFinderData clashFinderData =
-                cache.getOrLookup(festival + year, () -> clashFinderSender.fetchData(festival, year), CLASHFINDER, ClashFinderData.class);
-        Response response = cache.getOrLookup(username, () -> lastFmSender.simpleRequest(username), LISTENED, Response.class);
-        List<Artist> artists = response.getTopartists().getArtist();
-        Recommendations recArtists = cache.getOrLookup(username, () -> recommendedArtistGenerator.fetchRecommendations(artists), RECCOMENDEDOWN, Recommendations.class);
-        ArtistMap artistMap = cache.getOrLookup(username + festival + year, () -> artistMapGenerator.generateLastFmMap(clashFinderData.getEvents(), recArtists.getArtist()), ARTISTMAPRECOWN, ArtistMap.class);
+        Stage<ClashFinderData> festivalStage = festivalStage(festival, year);
+        Recommendations recArtists = stages.userStage(() -> warmer.recommendations(username, () -> listenedArtists(username))).join();
+        ClashFinderData clashFinderData = festivalStage.join();
+        ArtistMap artistMap = cache.getOrLookup(username + festival + year, () -> artistMapGenerator.generateFestivalMap(clashFinderData.getEvents(), recArtists.getArtist()), ARTISTMAPRECOWN, ArtistMap.class);
         return matchingEventsByRank(clashFinderData.getEvents(), artistMap.getArtistMap());
     }
 
     public List<Event> findHybridScheduleIntersection(String username, String festival, String year, PreferenceStrategy strategy) {
-        ClashFinderData clashFinderData =
-                cache.getOrLookup(festival + year, () -> clashFinderSender.fetchData(festival, year), CLASHFINDER, ClashFinderData.class);
-        Response response = cache.getOrLookup(username, () -> lastFmSender.simpleRequest(username), LISTENED, Response.class);
-        List<Artist> artists = response.getTopartists().getArtist();
-        Recommendations recArtists = cache.getOrLookup(username, () -> recommendedArtistGenerator.fetchRecommendations(artists), RECCOMENDEDOWN, Recommendations.class);
+        Stage<ClashFinderData> festivalStage = festivalStage(festival, year);
+        Stage<List<Artist>> listenedStage = stages.userStage(() -> listenedArtists(username));
+        // Started alongside the listened artists, and only waits on them if it has to generate
+        Stage<Recommendations> reccoStage = stages.userStage(() -> warmer.recommendations(username, () -> listenedArtists(username), listenedStage::join));
+        List<Artist> artists = listenedStage.join();
+        Recommendations recArtists = reccoStage.join();
+        ClashFinderData clashFinderData = festivalStage.join();
 
         ArtistMap reccoArtists =
-                cache.getOrLookup(username + festival + year, () -> artistMapGenerator.generateLastFmMap(clashFinderData.getEvents(), recArtists.getArtist()), ARTISTMAPRECOWN, ArtistMap.class);
+                cache.getOrLookup(username + festival + year, () -> artistMapGenerator.generateFestivalMap(clashFinderData.getEvents(), recArtists.getArtist()), ARTISTMAPRECOWN, ArtistMap.class);
         ArtistMap listenedArtists =
-                cache.getOrLookup(username + festival + year, () -> artistMapGenerator.generateLastFmMap(clashFinderData.getEvents(), artists), ARTISTMAPOWN, ArtistMap.class);
+                cache.getOrLookup(username + festival + year, () -> artistMapGenerator.generateFestivalMap(clashFinderData.getEvents(), artists), ARTISTMAPOWN, ArtistMap.class);
 
         return strategy.findOrderedInterection(clashFinderData.getEvents(), listenedArtists.getArtistMap(), reccoArtists.getArtistMap());
     }
 
     public List<Event> findSpotifyScheduleIntersection(String authCode, String festival, String year, String redirectUrl, boolean externalPlaylistsIncluded) {
-        CacheKeyPrefix cacheKey = cacheKey(externalPlaylistsIncluded);
         CacheKeyPrefix artistMapcacheKey = cacheKeyArtistMap(externalPlaylistsIncluded);
-        SpotifyArtists artists = cache.getOrLookup(authCode, () -> spotifyDataGrabber.fetchSpotifyArtists(authCode, redirectUrl, externalPlaylistsIncluded), cacheKey, SpotifyArtists.class);
-        ClashFinderData clashFinderData =
-                cache.getOrLookup(festival + year, () -> clashFinderSender.fetchData(festival, year), CLASHFINDER, ClashFinderData.class);
-        ArtistMap artistMap = cache.getOrLookup(authCode, () -> artistMapGenerator.generateLastFmMap(clashFinderData.getEvents(), artists.getArtists()), artistMapcacheKey, ArtistMap.class);
+        Stage<ClashFinderData> festivalStage = festivalStage(festival, year);
+        Stage<SpotifyUser> userStage = spotifyUserStage(authCode, redirectUrl);
+        SpotifyArtists artists = stages.then(userStage, user -> spotifyArtists(user, externalPlaylistsIncluded)).join();
+        SpotifyUser user = userStage.join();
+        ClashFinderData clashFinderData = festivalStage.join();
+        ArtistMap artistMap = cache.getOrLookup(user.getCacheKey() + festival + year, () -> artistMapGenerator.generateFestivalMap(clashFinderData.getEvents(), artists.getArtists()), artistMapcacheKey, ArtistMap.class);
 
         return matchingEventsByPlays(clashFinderData.getEvents(), artistMap.getArtistMap());
     }
 
     public List<Event> findSpotifyRecommendedScheduleIntersection(String authCode, String festival, String year, String redirectUrl, boolean externalPlaylistsIncluded) {
-        CacheKeyPrefix cacheKey = cacheKey(externalPlaylistsIncluded);
-        CacheKeyPrefix cacheKeyRec = cacheKeyRec(externalPlaylistsIncluded);
         CacheKeyPrefix artistMapcacheKey = cacheKeyArtistMapRec(externalPlaylistsIncluded);
-        ClashFinderData clashFinderData =
-                cache.getOrLookup(festival + year, () -> clashFinderSender.fetchData(festival, year), CLASHFINDER, ClashFinderData.class);
-        SpotifyArtists artists = cache.getOrLookup(authCode, () -> spotifyDataGrabber.fetchSpotifyArtists(authCode, redirectUrl, externalPlaylistsIncluded), cacheKey, SpotifyArtists.class);
-        Recommendations recArtists = cache.getOrLookup(authCode, () -> recommendedArtistGenerator.fetchRecommendations(artists.getArtists()), cacheKeyRec, Recommendations.class);
-        ArtistMap artistMap = cache.getOrLookup(authCode + festival + year, () -> artistMapGenerator.generateLastFmMap(clashFinderData.getEvents(), recArtists.getArtist()), artistMapcacheKey, ArtistMap.class);
+        Stage<ClashFinderData> festivalStage = festivalStage(festival, year);
+        Stage<SpotifyUser> userStage = spotifyUserStage(authCode, redirectUrl);
+        Recommendations recArtists = stages.then(userStage, user -> spotifyRecommendations(user, spotifyArtists(user, externalPlaylistsIncluded), externalPlaylistsIncluded)).join();
+        SpotifyUser user = userStage.join();
+        ClashFinderData clashFinderData = festivalStage.join();
+        ArtistMap artistMap = cache.getOrLookup(user.getCacheKey() + festival + year, () -> artistMapGenerator.generateFestivalMap(clashFinderData.getEvents(), recArtists.getArtist()), artistMapcacheKey, ArtistMap.class);
 
         return matchingEventsByRank(clashFinderData.getEvents(), artistMap.getArtistMap());
     }
 
     public List<Event> findHybridSpotifyScheduleIntersection(String authCode, String festival, String year, String redirectUrl, PreferenceStrategy strategy, boolean externalPlaylistsIncluded) {
-        CacheKeyPrefix cacheKey = cacheKey(externalPlaylistsIncluded);
-        CacheKeyPrefix cacheKeyRec = cacheKeyRec(externalPlaylistsIncluded);
         CacheKeyPrefix artistMapcacheKey = cacheKeyArtistMap(externalPlaylistsIncluded);
         CacheKeyPrefix artistMapcacheKeyRec = cacheKeyArtistMapRec(externalPlaylistsIncluded);
-        ClashFinderData clashFinderData =
-                cache.getOrLookup(festival + year, () -> clashFinderSender.fetchData(festival, year), CLASHFINDER, ClashFinderData.class);
-        SpotifyArtists artists = cache.getOrLookup(authCode, () -> spotifyDataGrabber.fetchSpotifyArtists(authCode, redirectUrl, externalPlaylistsIncluded), cacheKey, SpotifyArtists.class);
-        Recommendations recArtists = cache.getOrLookup(authCode, () -> recommendedArtistGenerator.fetchRecommendations(artists.getArtists()), cacheKeyRec, Recommendations.class);
+        Stage<ClashFinderData> festivalStage = festivalStage(festival, year);
+        Stage<SpotifyUser> userStage = spotifyUserStage(authCode, redirectUrl);
+        Stage<SpotifyArtists> artistsStage = stages.then(userStage, user -> spotifyArtists(user, externalPlaylistsIncluded));
+        Recommendations recArtists = stages.then(artistsStage, artists -> spotifyRecommendations(userStage.join(), artists, externalPlaylistsIncluded)).join();
+        SpotifyArtists artists = artistsStage.join();
+        SpotifyUser user = userStage.join();
+        ClashFinderData clashFinderData = festivalStage.join();
         ArtistMap reccoArtists =
-                cache.getOrLookup(authCode + festival + year, () -> artistMapGenerator.generateLastFmMap(clashFinderData.getEvents(), recArtists.getArtist()), artistMapcacheKeyRec, ArtistMap.class);
+                cache.getOrLookup(user.getCacheKey() + festival + year, () -> artistMapGenerator.generateFestivalMap(clashFinderData.getEvents(), recArtists.getArtist()), artistMapcacheKeyRec, ArtistMap.class);
         ArtistMap listenedArtists =
-                cache.getOrLookup(authCode + festival + year, () -> artistMapGenerator.generateLastFmMap(clashFinderData.getEvents(), artists.getArtists()), artistMapcacheKey, ArtistMap.class);
+                cache.getOrLookup(user.getCacheKey() + festival + year, () -> artistMapGenerator.generateFestivalMap(clashFinderData.getEvents(), artists.getArtists()), artistMapcacheKey, ArtistMap.class);
 
         return strategy.findOrderedInterection(clashFinderData.getEvents(), listenedArtists.getArtistMap(), reccoArtists.getArtistMap());
     }
 
+    /**
+     * The recommended schedule from cached results alone, or null if any of them has to be
+     * looked up, so a warm request is answered without waiting for a request thread. As do the
+     * cached schedules below.
+     */
+    public List<Event> cachedReccoSchedule(String username, String festival, String year) {
+        ClashFinderData clashFinderData = cachedFestival(festival, year);
+        ArtistMap artistMap = clashFinderData == null ? null : cachedMap(username + festival + year, ARTISTMAPRECOWN);
+        if (artistMap == null) {
+            return null;
+        }
+        warmer.track(username, () -> listenedArtists(username));
+        return matchingEventsByRank(clashFinderData.getEvents(), artistMap.getArtistMap());
+    }
+
+    public List<Event> cachedHybridSchedule(String username, String festival, String year, PreferenceStrategy strategy) {
+        List<Event> schedule = cachedHybrid(username + festival + year, festival, year, strategy, ARTISTMAPOWN, ARTISTMAPRECOWN);
+        if (schedule != null) {
+            warmer.track(username, () -> listenedArtists(username));
+        }
+        return schedule;
+    }
+
+    public List<Event> cachedSpotifySchedule(String authCode, String festival, String year, boolean externalPlaylistsIncluded) {
+        SpotifyUser user = spotifyUsers.cached(authCode);
+        ClashFinderData clashFinderData = user == null ? null : cachedFestival(festival, year);
+        ArtistMap artistMap = clashFinderData == null ? null : cachedMap(user.getCacheKey() + festival + year, cacheKeyArtistMap(externalPlaylistsIncluded));
+        return artistMap == null ? null : matchingEventsByPlays(clashFinderData.getEvents(), artistMap.getArtistMap());
+    }
+
+    public List<Event> cachedSpotifyRecommendedSchedule(String authCode, String festival, String year, boolean externalPlaylistsIncluded) {
+        SpotifyUser user = spotifyUsers.cached(authCode);
+        ClashFinderData clashFinderData = user == null ? null : cachedFestival(festival, year);
+        ArtistMap artistMap = clashFinderData == null ? null : cachedMap(user.getCacheKey() + festival + year, cacheKeyArtistMapRec(externalPlaylistsIncluded));
+        return artistMap == null ? null : matchingEventsByRank(clashFinderData.getEvents(), artistMap.getArtistMap());
+    }
+
+    public List<Event> cachedHybridSpotifySchedule(String authCode, String festival, String year, PreferenceStrategy strategy, boolean externalPlaylistsIncluded) {
+        SpotifyUser user = spotifyUsers.cached(authCode);
+        return user == null ? null : cachedHybrid(user.getCacheKey() + festival + year, festival, year, strategy,
+                cacheKeyArtistMap(externalPlaylistsIncluded), cacheKeyArtistMapRec(externalPlaylistsIncluded));
+    }
+
+    private List<Event> cachedHybrid(String key, String festival, String year, PreferenceStrategy strategy, CacheKeyPrefix listenedPrefix, CacheKeyPrefix reccoPrefix) {
+        ClashFinderData clashFinderData = cachedFestival(festival, year);
+        ArtistMap listenedArtists = clashFinderData == null ? null : cachedMap(key, listenedPrefix);
+        ArtistMap reccoArtists = listenedArtists == null ? null : cachedMap(key, reccoPrefix);
+        if (reccoArtists == null) {
+            return null;
+        }
+        return strategy.findOrderedInterection(clashFinderData.getEvents(), listenedArtists.getArtistMap(), reccoArtists.getArtistMap());
+    }
+
+    private ClashFinderData cachedFestival(String festival, String year) {
+        return cache.get(festival + year, CLASHFINDER, ClashFinderData.class);
+    }
+
+    private ArtistMap cachedMap(String key, CacheKeyPrefix prefix) {
+        return cache.get(key, prefix, ArtistMap.class);
+    }
+
+    private Stage<SpotifyUser> spotifyUserStage(String authCode, String redirectUrl) {
+        return stages.userStageAsync(() -> spotifyUsers.resolveAsync(authCode, redirectUrl));
+    }
+
+    private SpotifyArtists spotifyArtists(SpotifyUser user, boolean externalPlaylistsIncluded) {
+        return cache.getOrLookup(user.getCacheKey(), () -> spotifyDataGrabber.fetchSpotifyArtists(user, externalPlaylistsIncluded), cacheKey(externalPlaylistsIncluded), SpotifyArtists.class);
+    }
+
+    private Recommendations spotifyRecommendations(SpotifyUser user, SpotifyArtists artists, boolean externalPlaylistsIncluded) {
+        return cache.getOrLookup(user.getCacheKey(), () -> recommendedArtistGenerator.fetchRecommendations(user.getCacheKey(), artists.getArtists()), cacheKeyRec(externalPlaylistsIncluded), Recommendations.class);
+    }
+
+    /**
+     * Read from the cache on the calling thread, otherwise fetched without a pipeline thread
+     * waiting on Clashfinder. The cache write is a single round trip, short enough for the
+     * client's thread.
+     */
+    private Stage<ClashFinderData> festivalStage(String festival, String year) {
+        return stages.festivalStageAsync(() -> {
+            ClashFinderData cached = cachedFestival(festival, year);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            CompletableFuture<ClashFinderData> request = clashFinderSender.fetchDataAsync(festival, year);
+            return Async.cancelling(request.thenApply(data -> {
+                cache.put(festival + year, data, CLASHFINDER);
+                return data;
+            }), request);
+        });
+    }
+
+    private List<Artist> listenedArtists(String username) {
+        Response response = cache.getOrLookup(username, () -> listeningProfiles.topArtists(username), LISTENED, Response.class);
+        return response.getTopartists().getArtist();
+    }
+
     private CacheKeyPrefix cacheKey(boolean externalPlaylistsIncluded) {
         return externalPlaylistsIncluded ? SPOTIFYARTISTSALL : SPOTIFYARTISTSOWN;
     }
@@ -132,18 +240,10 @@ public class ScheduleIntersectionFinder {
     }
 
     private List<Event> matchingEventsByPlays(Set<Event> clashfinderData, Map<String, Artist> artistMap) {
-        return clashfinderData.stream().filter(g -> artistMap.containsKey(g.getName().toLowerCase()))
-                .map(e -> new Event(e, Integer.parseInt(artistMap.get(e.getName().toLowerCase()).getPlaycount())))
-                .map(e -> new Event(e, artistMap.get(e.getName().toLowerCase()).getMatch()))
-                .sorted((x, y) -> Integer.compare(y.getScrobs(), x.getScrobs()))
-                .collect(toList());
+        return IntersectionKernel.eventsByPlays(clashfinderData, artistMap);
     }
 
     private List<Event> matchingEventsByRank(Set<Event> clashfinderData, Map<String, Artist> artistMap) {
-        return clashfinderData.stream().filter(g -> artistMap.containsKey(g.getName().toLowerCase()))
-                .map(e -> new Event(e, 0, artistMap.get(e.getName().toLowerCase()).getRankValue()))
-                .map(e -> new Event(e, artistMap.get(e.getName().toLowerCase()).getMatch()))
-                .sorted((x, y) -> Integer.compare(x.getReccorank(), y.getReccorank()))
-                .collect(toList());
+        return IntersectionKernel.eventsByRank(clashfinderData, artistMap);
     }
 }
@@ -0,0 +1,170 @@
+package intersection;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Accumulates a count and a score per artist name in primitive arrays, interning each name once
+ * in an open addressed table, and selects the best entries with a bounded heap rather than
+ * sorting everything. Ties on score go to the name seen first. Each name keeps the display name
+ * it was first added with, so callers can count on a normalised name and show the original.
+ */
+public final class ScoreBoard {
+    private String[] names;
+    private String[] displayNames;
+    private int[] counts;
+    private double[] scores;
+    private int[] table;
+    private int size;
+
+    public ScoreBoard(int expectedNames) {
+        int capacity = Math.max(16, expectedNames);
+        names = new String[capacity];
+        displayNames = new String[capacity];
+        counts = new int[capacity];
+        scores = new double[capacity];
+        table = new int[tableSize(capacity)];
+    }
+
+    public void add(String name, double score) {
+        add(name, name, score);
+    }
+
+    public void add(String name, String displayName, double score) {
+        int id = intern(name, displayName);
+        counts[id]++;
+        scores[id] += score;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public String displayName(int id) {
+        return displayNames[id];
+    }
+
+    public int count(int id) {
+        return counts[id];
+    }
+
+    public double score(int id) {
+        return scores[id];
+    }
+
+    /**
+     * @return ids of the k best scoring names counted at least minCount times and accepted by
+     * include, best first
+     */
+    public int[] top(int k, int minCount, Predicate<String> include) {
+        int[] heap = new int[Math.min(k, size)];
+        int heapSize = 0;
+        for (int id = 0; id < size; id++) {
+            if (counts[id] < minCount || !include.test(names[id])) {
+                continue;
+            }
+            if (heapSize < heap.length) {
+                heap[heapSize] = id;
+                siftUp(heap, heapSize++);
+            } else if (heapSize > 0 && better(id, heap[0])) {
+                heap[0] = id;
+                siftDown(heap, heapSize);
+            }
+        }
+        int[] result = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize);
+        }
+        return result;
+    }
+
+    private boolean better(int a, int b) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && a < b);
+    }
+
+    // Min heap, worst entry at the root
+    private void siftUp(int[] heap, int index) {
+        int id = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!better(heap[parent], id)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = id;
+    }
+
+    private void siftDown(int[] heap, int heapSize) {
+        if (heapSize == 0) {
+            return;
+        }
+        int index = 0;
+        int id = heap[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && better(heap[child], heap[child + 1])) {
+                child++;
+            }
+            if (!better(id, heap[child])) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = id;
+    }
+
+    private static int tableSize(int capacity) {
+        return Integer.highestOneBit(capacity * 2 - 1) << 1;
+    }
+
+    private int intern(String name, String displayName) {
+        int mask = table.length - 1;
+        int hash = name.hashCode();
+        for (int slot = (hash ^ (hash >>> 16)) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                if (size == names.length) {
+                    grow();
+                    return intern(name, displayName);
+                }
+                names[size] = name;
+                displayNames[size] = displayName;
+                table[slot] = ++size;
+                return size - 1;
+            }
+            if (names[entry - 1].equals(name)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = names.length * 2;
+        names = Arrays.copyOf(names, capacity);
+        displayNames = Arrays.copyOf(displayNames, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        scores = Arrays.copyOf(scores, capacity);
+        table = new int[tableSize(capacity)];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int hash = names[id].hashCode();
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+}
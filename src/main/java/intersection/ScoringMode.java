@@ -0,0 +1,21 @@
+package intersection;
+
+/**
+ * How much each similar artist edge adds to a recommendation's score.
+ */
+public enum ScoringMode {
+    /** Every edge counts the same, so artists similar to the most of the user's artists win */
+    FREQUENCY,
+    /** Edges count by their Last.fm match, 0 to 1 */
+    MATCH,
+    /** Edges count by their match, scaled by how much the user played the source artist */
+    MATCH_AND_PLAYCOUNT;
+
+    public double sourceWeight(int sourcePlaycount) {
+        return this == MATCH_AND_PLAYCOUNT ? Math.log1p(Math.max(0, sourcePlaycount)) : 1;
+    }
+
+    public double score(float match, double sourceWeight) {
+        return this == FREQUENCY ? 1 : match * sourceWeight;
+    }
+}
@@ -0,0 +1,152 @@
+package intersection;
+
+import domain.Show;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Character trigram index over the show names of one festival, for typo tolerant matching of
+ * artist names. Postings are packed as (trigram hash, show) pairs in a single sorted long array,
+ * and candidates are confirmed against the exact Dice coefficient of the two trigram sets.
+ */
+public class TrigramIndex {
+    private static final int MIN_NAME_LENGTH = 4;
+
+    private final List<Show> shows;
+    private final long[][] showTrigrams;
+    private final long[] postings;
+
+    public TrigramIndex(Collection<? extends Show> festivalData) {
+        this.shows = new ArrayList<>(festivalData);
+        this.showTrigrams = new long[shows.size()][];
+        int total = 0;
+        for (int i = 0; i < shows.size(); i++) {
+            showTrigrams[i] = trigrams(shows.get(i).getName());
+            total += showTrigrams[i].length;
+        }
+        long[] packed = new long[total];
+        int p = 0;
+        for (int i = 0; i < showTrigrams.length; i++) {
+            for (long trigram : showTrigrams[i]) {
+                packed[p++] = ((long) hash(trigram) << 32) | i;
+            }
+        }
+        Arrays.sort(packed);
+        this.postings = packed;
+    }
+
+    /**
+     * @param counts scratch space of at least {@link #size()} zeroed ints, left zeroed on return
+     * @return the show most similar to the name, or null if none reaches the threshold
+     */
+    public Show bestMatch(String name, double threshold, int[] counts) {
+        if (name.length() < MIN_NAME_LENGTH) {
+            return null;
+        }
+        long[] query = trigrams(name);
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        for (long trigram : query) {
+            long key = (long) hash(trigram) << 32;
+            int index = Arrays.binarySearch(postings, key);
+            for (int i = index < 0 ? -index - 1 : index; i < postings.length && (postings[i] & 0xFFFFFFFF00000000L) == key; i++) {
+                int show = (int) postings[i];
+                if (counts[show]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = show;
+                }
+            }
+        }
+
+        Show best = null;
+        double bestScore = threshold;
+        for (int t = 0; t < touchedCount; t++) {
+            int show = touched[t];
+            int candidateShared = counts[show];
+            counts[show] = 0;
+            if (2.0 * candidateShared / (query.length + showTrigrams[show].length) >= bestScore) {
+                double score = dice(query, showTrigrams[show]);
+                if (score >= bestScore) {
+                    bestScore = score;
+                    best = shows.get(show);
+                }
+            }
+        }
+        return best;
+    }
+
+    public int size() {
+        return shows.size();
+    }
+
+    static double dice(long[] a, long[] b) {
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return a.length + b.length == 0 ? 0 : 2.0 * shared / (a.length + b.length);
+    }
+
+    /**
+     * Sorted, distinct trigrams of the name lower cased, with accents stripped, punctuation folded
+     * to spaces and padded so that word boundaries contribute trigrams of their own.
+     */
+    static long[] trigrams(String name) {
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        StringBuilder normalised = new StringBuilder("  ");
+        boolean space = true;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = Character.toLowerCase(decomposed.charAt(i));
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                normalised.append(c);
+                space = false;
+            } else if (!space && c != '\'') {
+                normalised.append(' ');
+                space = true;
+            }
+        }
+        if (!space) {
+            normalised.append(' ');
+        }
+        if (normalised.length() < 3) {
+            return new long[0];
+        }
+        long[] result = new long[normalised.length() - 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ((long) normalised.charAt(i) << 32) | ((long) normalised.charAt(i + 1) << 16) | normalised.charAt(i + 2);
+        }
+        Arrays.sort(result);
+        int distinct = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) {
+                result[distinct++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, distinct);
+    }
+
+    // Non negative, so packed postings sort by trigram first
+    private static int hash(long trigram) {
+        long h = trigram * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 33);
+    }
+}
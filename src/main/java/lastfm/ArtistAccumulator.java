@@ -0,0 +1,53 @@
+package lastfm;
+
+import lastfm.domain.ArtistTable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the pages of a user's library as they arrive, in any order, and hands back the
+ * artists in page order, truncated to the cap. Pages that never arrive are left out.
+ */
+public class ArtistAccumulator {
+    private final int cap;
+    private final List<ArtistTable> pages;
+    private int size;
+
+    /**
+     * @param cap the most artists to keep, or 0 to keep them all
+     */
+    public ArtistAccumulator(int pageCount, int cap) {
+        this.cap = cap;
+        this.pages = new ArrayList<>(Collections.<ArtistTable>nCopies(pageCount, null));
+    }
+
+    public synchronized void add(int page, ArtistTable artists) {
+        if (artists == null || pages.get(page - 1) != null) {
+            return;
+        }
+        pages.set(page - 1, artists);
+        size += artists.size();
+    }
+
+    public synchronized int size() {
+        return cap > 0 ? Math.min(cap, size) : size;
+    }
+
+    public synchronized ArtistTable artists() {
+        ArtistTable result = new ArtistTable(size());
+        for (ArtistTable page : pages) {
+            if (page == null) {
+                continue;
+            }
+            for (int i = 0; i < page.size(); i++) {
+                if (cap > 0 && result.size() == cap) {
+                    return result;
+                }
+                result.add(page.name(i), page.playcount(i), page.rank(i), page.match(i));
+            }
+        }
+        return result;
+    }
+}
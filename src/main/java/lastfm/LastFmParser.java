@@ -0,0 +1,253 @@
+package lastfm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lastfm.domain.ArtistTable;
+import lastfm.domain.PageAttributes;
+import lastfm.domain.RecentScrobbles;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streams user.gettopartists and artist.getsimilar responses straight into an
+ * {@link ArtistTable}, and user.getrecenttracks into {@link RecentScrobbles}, skipping the images,
+ * urls and ids we never read instead of binding them. Numbers are accepted whether Last.fm sends
+ * them quoted or not.
+ */
+public final class LastFmParser {
+    private static final JsonFactory factory = new JsonFactory();
+
+    private LastFmParser() {
+    }
+
+    public static ArtistTable parse(InputStream in) throws IOException {
+        try (JsonParser parser = factory.createParser(in)) {
+            return parse(parser);
+        }
+    }
+
+    public static ArtistTable parse(byte[] json) throws IOException {
+        try (JsonParser parser = factory.createParser(json)) {
+            return parse(parser);
+        }
+    }
+
+    private static ArtistTable parse(JsonParser parser) throws IOException {
+        ArtistTable table = new ArtistTable();
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "topartists":
+                case "similarartists":
+                    readList(parser, table);
+                    break;
+                case "error":
+                    table.setError(parser.getValueAsString());
+                    break;
+                case "message":
+                    table.setMessage(parser.getValueAsString());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return table;
+    }
+
+    public static RecentScrobbles parseRecentTracks(InputStream in) throws IOException {
+        try (JsonParser parser = factory.createParser(in)) {
+            return parseRecentTracks(parser);
+        }
+    }
+
+    public static RecentScrobbles parseRecentTracks(byte[] json) throws IOException {
+        try (JsonParser parser = factory.createParser(json)) {
+            return parseRecentTracks(parser);
+        }
+    }
+
+    private static RecentScrobbles parseRecentTracks(JsonParser parser) throws IOException {
+        RecentScrobbles scrobbles = new RecentScrobbles();
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (field.equals("recenttracks") && token == JsonToken.START_OBJECT) {
+                readTracks(parser, scrobbles);
+            } else if (field.equals("error")) {
+                scrobbles.setError(parser.getValueAsString());
+            } else if (field.equals("message")) {
+                scrobbles.setMessage(parser.getValueAsString());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return scrobbles;
+    }
+
+    private static void readTracks(JsonParser parser, RecentScrobbles scrobbles) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (field.equals("track") && token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    readTrack(parser, scrobbles);
+                }
+            } else if (field.equals("track") && token == JsonToken.START_OBJECT) {
+                readTrack(parser, scrobbles);
+            } else if (field.equals("@attr") && token == JsonToken.START_OBJECT) {
+                scrobbles.setAttributes(readAttributes(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * The track being played now has no date yet and is left to the next sync.
+     */
+    private static void readTrack(JsonParser parser, RecentScrobbles scrobbles) throws IOException {
+        String artist = null;
+        long uts = -1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (field.equals("artist") && token == JsonToken.START_OBJECT) {
+                artist = readText(parser, "#text");
+            } else if (field.equals("date") && token == JsonToken.START_OBJECT) {
+                uts = epochSeconds(readText(parser, "uts"));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (artist != null && !artist.isEmpty() && uts >= 0) {
+            scrobbles.add(artist, uts);
+        }
+    }
+
+    private static long epochSeconds(String uts) {
+        try {
+            return uts == null ? -1 : Long.parseLong(uts);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String readText(JsonParser parser, String wanted) throws IOException {
+        String text = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals(wanted)) {
+                text = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return text;
+    }
+
+    private static void readList(JsonParser parser, ArtistTable table) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (field.equals("artist") && token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    readArtist(parser, table);
+                }
+            } else if (field.equals("artist") && token == JsonToken.START_OBJECT) {
+                // A list of one comes back as a bare object
+                readArtist(parser, table);
+            } else if (field.equals("@attr") && token == JsonToken.START_OBJECT) {
+                table.setAttributes(readAttributes(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readArtist(JsonParser parser, ArtistTable table) throws IOException {
+        String name = null;
+        int playcount = -1;
+        int rank = -1;
+        float match = Float.NaN;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "name":
+                    name = parser.getValueAsString();
+                    break;
+                case "playcount":
+                    playcount = parser.getValueAsInt(-1);
+                    break;
+                case "match":
+                    match = (float) parser.getValueAsDouble(Double.NaN);
+                    break;
+                case "@attr":
+                    if (token == JsonToken.START_OBJECT) {
+                        rank = readRank(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (name != null) {
+            table.add(name, playcount, rank, match);
+        }
+    }
+
+    private static int readRank(JsonParser parser) throws IOException {
+        int rank = -1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals("rank")) {
+                rank = parser.getValueAsInt(-1);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return rank;
+    }
+
+    private static PageAttributes readAttributes(JsonParser parser) throws IOException {
+        PageAttributes attributes = new PageAttributes();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "page":
+                    attributes.setPage(parser.getValueAsInt(0));
+                    break;
+                case "perPage":
+                    attributes.setPerPage(parser.getValueAsInt(0));
+                    break;
+                case "totalPages":
+                    attributes.setTotalPages(parser.getValueAsInt(0));
+                    break;
+                case "total":
+                    attributes.setTotal(parser.getValueAsInt(0));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return attributes;
+    }
+}
@@ -0,0 +1,224 @@
+package lastfm;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.dropwizard.lifecycle.Managed;
+import exception.UpstreamTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pipeline.Deadline;
+import service.config.LastFmConfig;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Runs every Last.fm request on a fixed number of workers, each request first taking a permit
+ * from a shared rate limiter. Requests are queued per user and the workers take from the users
+ * in turn, so one user's 500 similar artist lookups cannot starve another user's single request.
+ * Requests made inside {@link #inBackground} go to a separate lane that is only served while no
+ * interactive request is waiting.
+ */
+@Singleton
+public class LastFmScheduler implements Managed {
+    private static final Logger logger = LoggerFactory.getLogger(LastFmScheduler.class);
+
+    private static final ThreadLocal<Boolean> background = new ThreadLocal<>();
+
+    private final FairQueue interactive = new FairQueue();
+    private final FairQueue backgroundLane = new FairQueue();
+    private final RateLimiter rateLimiter;
+    private final int workers;
+    private final long requestTimeoutMillis;
+    private final Timer queueWait;
+    private int queued;
+    private ExecutorService executor;
+
+    @Inject
+    public LastFmScheduler(LastFmConfig config, MetricRegistry metrics) {
+        this.rateLimiter = RateLimiter.create(config.getRequestsPerSecond());
+        this.workers = config.getMaxConcurrentRequests();
+        this.requestTimeoutMillis = config.getRequestTimeoutMillis();
+        this.queueWait = metrics.timer(name(LastFmScheduler.class, "queue-wait"));
+        metrics.register(name(LastFmScheduler.class, "queued"), (Gauge<Integer>) this::queued);
+    }
+
+    /**
+     * Runs the work with any Last.fm requests it makes queued behind interactive ones.
+     */
+    public static <T> T inBackground(Supplier<T> work) {
+        Boolean previous = background.get();
+        background.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            background.set(previous);
+        }
+    }
+
+    /**
+     * @return whether the current thread's requests are queued behind interactive ones
+     */
+    public static boolean isInBackground() {
+        return Boolean.TRUE.equals(background.get());
+    }
+
+    public <T> CompletableFuture<T> submit(String user, Supplier<T> request) {
+        Task<T> task = new Task<>(request);
+        synchronized (this) {
+            (isInBackground() ? backgroundLane : interactive).add(user, task);
+            queued++;
+            notify();
+        }
+        return task.future;
+    }
+
+    /**
+     * Submits the request and waits for it, rethrowing whatever runtime exception it failed with.
+     * Waits no longer than the request timeout, or the {@link Deadline} if sooner, and then
+     * cancels the request so it never reaches Last.fm if it hasn't already.
+     */
+    public <T> T call(String user, Supplier<T> request) {
+        CompletableFuture<T> future = submit(user, request);
+        try {
+            return future.get(Deadline.current().capMillis(requestTimeoutMillis), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new UpstreamTimeoutException("last.fm");
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new UpstreamTimeoutException("last.fm");
+        }
+    }
+
+    /**
+     * @return how many requests the rate limit allows in the given time, at most
+     */
+    public int requestsWithin(long millis) {
+        return (int) Math.min(Integer.MAX_VALUE, rateLimiter.getRate() * millis / 1000);
+    }
+
+    public synchronized int queued() {
+        return queued;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newFixedThreadPool(workers, new ThreadFactoryBuilder().setNameFormat("lastfm-%d").setDaemon(true).build());
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::work);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void work() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Task<?> task = take();
+                if (task.future.isDone()) {
+                    // Cancelled by a caller that stopped waiting, don't spend a permit on it
+                    continue;
+                }
+                if (task.deadline.isExpired()) {
+                    task.future.completeExceptionally(new UpstreamTimeoutException("last.fm"));
+                    continue;
+                }
+                rateLimiter.acquire();
+                queueWait.update(System.nanoTime() - task.enqueued, TimeUnit.NANOSECONDS);
+                task.run();
+            }
+        } catch (InterruptedException e) {
+            logger.debug("Last.fm worker stopped");
+        }
+    }
+
+    private synchronized Task<?> take() throws InterruptedException {
+        while (interactive.isEmpty() && backgroundLane.isEmpty()) {
+            wait();
+        }
+        queued--;
+        return interactive.isEmpty() ? backgroundLane.poll() : interactive.poll();
+    }
+
+    private static class FairQueue {
+        private final Map<String, ArrayDeque<Task<?>>> queues = new HashMap<>();
+        private final ArrayDeque<String> ready = new ArrayDeque<>();
+
+        private void add(String user, Task<?> task) {
+            ArrayDeque<Task<?>> queue = queues.get(user);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                queues.put(user, queue);
+                ready.add(user);
+            }
+            queue.add(task);
+        }
+
+        private boolean isEmpty() {
+            return ready.isEmpty();
+        }
+
+        private Task<?> poll() {
+            String user = ready.poll();
+            ArrayDeque<Task<?>> queue = queues.get(user);
+            Task<?> task = queue.poll();
+            if (queue.isEmpty()) {
+                queues.remove(user);
+            } else {
+                ready.add(user);
+            }
+            return task;
+        }
+    }
+
+    private static class Task<T> {
+        private final Supplier<T> request;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long enqueued = System.nanoTime();
+        private final Deadline deadline = Deadline.current();
+
+        private Task(Supplier<T> request) {
+            this.request = request;
+        }
+
+        private void run() {
+            try (Deadline.Scope ignored = deadline.install()) {
+                future.complete(request.get());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
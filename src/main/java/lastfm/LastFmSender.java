@@ -1,29 +1,46 @@
 package lastfm;
 
+import client.Async;
+import client.Timeouts;
+import client.UpstreamClients;
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import exception.LastFmException;
 import lastfm.domain.Artist;
+import lastfm.domain.ArtistTable;
 import lastfm.domain.AuthSession;
+import lastfm.domain.PageAttributes;
+import lastfm.domain.RecentScrobbles;
 import lastfm.domain.Response;
 import lastfm.domain.Session;
 import org.apache.commons.codec.binary.Hex;
 import org.glassfish.jersey.client.JerseyClientBuilder;
+import pipeline.Deadline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import service.config.LastFmConfig;
 
 import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntFunction;
 
 import static java.util.stream.Collectors.toList;
 
@@ -34,60 +51,228 @@ import static java.util.stream.Collectors.toList;
 public class LastFmSender {
     private static final Logger logger = LoggerFactory.getLogger(LastFmSender.class);
     private static final String baseUrl = "http://ws.audioscrobbler.com/2.0/";
+    private static final String ARTIST_NOT_FOUND = "6";
 
     private final Client client;
+    private final Timeouts timeouts;
     private final String apiKey;
     private final String apiSecret;
+    private final LastFmScheduler scheduler;
+    private final long similarArtistsDeadlineMillis;
+    private final int topArtistsPageSize;
+    private final int topArtistsPageConcurrency;
+    private final int maxTopArtists;
 
     @Inject
-    public LastFmSender(LastFmConfig config) {
+    public LastFmSender(LastFmConfig config, LastFmScheduler scheduler, UpstreamClients clients) {
+        this(config, scheduler, clients.lastFm(), clients.lastFmTimeouts());
+    }
+
+    LastFmSender(LastFmConfig config, LastFmScheduler scheduler, Client client, Timeouts timeouts) {
         apiKey = config.getApiKey();
         apiSecret = config.getSecret();
-        client = JerseyClientBuilder.createClient();
+        this.client = client;
+        this.timeouts = timeouts;
+        this.scheduler = scheduler;
+        this.similarArtistsDeadlineMillis = config.getSimilarArtistsDeadlineMillis();
+        this.topArtistsPageSize = config.getTopArtistsPageSize();
+        this.topArtistsPageConcurrency = config.getTopArtistsPageConcurrency();
+        this.maxTopArtists = config.getMaxTopArtists();
     }
 
     public Response simpleRequest(String username) {
+        return library(username).toTopArtistsResponse();
+    }
+
+    /**
+     * @return the user's top artists, as read from Last.fm
+     */
+    public ArtistTable library(String username) {
         logger.info("sending request for user " + username);
-        WebTarget WebTarget = getWebTarget(username);
-        Response response = WebTarget.request(MediaType.APPLICATION_JSON_TYPE).accept(MediaType.APPLICATION_JSON_TYPE)
-                .get(Response.class);
-        if (response.getError() != null) {
-            throw new LastFmException(response.getMessage());
+        ArtistTable library = fetchLibrary(username, page -> parse(getWebTarget(username, page)));
+        logger.info("response recieved for user " + username + " - " + library.size() + " artists");
+        return library;
+    }
+
+    /**
+     * Fetches the first page of the user's top artists, which tells us how many pages there are,
+     * then keeps up to the configured number of the remaining pages in flight until the library,
+     * or as much of it as the cap allows, has been read. A failed later page is logged and left
+     * out rather than failing the whole library.
+     */
+    ArtistTable fetchLibrary(String username, IntFunction<ArtistTable> page) {
+        ArtistTable first = scheduler.call(username, () -> page.apply(1));
+        if (first.getError() != null) {
+            throw new LastFmException(first.getMessage());
         }
-        logger.info("response recieved for user " + username);
-        return response;
+        int pages = pagesToFetch(first.getAttributes());
+        ArtistAccumulator accumulator = new ArtistAccumulator(pages, maxTopArtists);
+        accumulator.add(1, first);
+
+        List<CompletableFuture<ArtistTable>> requests = new ArrayList<>(Collections.<CompletableFuture<ArtistTable>>nCopies(pages + 1, null));
+        ArrayDeque<Integer> inFlight = new ArrayDeque<>();
+        int next = 2;
+        boolean complete = true;
+        while (next <= pages || !inFlight.isEmpty()) {
+            while (next <= pages && inFlight.size() < topArtistsPageConcurrency && !Deadline.current().isExpired()) {
+                int number = next++;
+                requests.set(number, scheduler.submit(username, () -> page.apply(number)));
+                inFlight.add(number);
+            }
+            if (inFlight.isEmpty()) {
+                complete = false;
+                break;
+            }
+            int number = inFlight.poll();
+            try {
+                ArtistTable response = requests.get(number).join();
+                if (response.getError() != null) {
+                    logger.warn("No top artists on page {} for {} - {}", number, username, response.getMessage());
+                    complete = false;
+                } else {
+                    accumulator.add(number, response);
+                }
+            } catch (CompletionException | CancellationException e) {
+                logger.warn("Unable to fetch page {} of top artists for {} - {}", number, username, e.getMessage());
+                complete = false;
+            }
+        }
+        if (!complete) {
+            Deadline.current().shortfall();
+        }
+        ArtistTable library = accumulator.artists();
+        library.setAttributes(first.getAttributes());
+        return library;
+    }
+
+    /**
+     * Counts the user's scrobbles from the given time onwards, page by page.
+     *
+     * @return the scrobbles, or null if there are more than maxPages pages of them
+     */
+    public RecentScrobbles fetchScrobblesSince(String username, long fromEpochSeconds, int pageSize, int maxPages) {
+        RecentScrobbles scrobbles = scheduler.call(username, () -> parseRecentTracks(getRecentTracksWebTarget(username, fromEpochSeconds, pageSize, 1)));
+        if (scrobbles.getError() != null) {
+            throw new LastFmException(scrobbles.getMessage());
+        }
+        int pages = scrobbles.getAttributes() == null ? 1 : scrobbles.getAttributes().getTotalPages();
+        if (pages > maxPages) {
+            return null;
+        }
+        for (int page = 2; page <= pages; page++) {
+            int number = page;
+            RecentScrobbles next = scheduler.call(username, () -> parseRecentTracks(getRecentTracksWebTarget(username, fromEpochSeconds, pageSize, number)));
+            if (next.getError() != null) {
+                throw new LastFmException(next.getMessage());
+            }
+            scrobbles.addAll(next);
+        }
+        return scrobbles;
+    }
+
+    private int pagesToFetch(PageAttributes attributes) {
+        if (attributes == null || attributes.getPerPage() <= 0) {
+            return 1;
+        }
+        int pages = Math.max(1, attributes.getTotalPages());
+        if (maxTopArtists > 0) {
+            pages = Math.min(pages, (maxTopArtists + attributes.getPerPage() - 1) / attributes.getPerPage());
+        }
+        return pages;
     }
 
     public Response recommendedRequest(String token) {
-        Session session = getSession(token);
+        Session session = scheduler.call(token, () -> getSession(token));
         WebTarget resource = getRecommendedWebTarget(token, session.getKey());
 
-        Response response = resource.request(MediaType.APPLICATION_JSON_TYPE).accept(MediaType.APPLICATION_JSON_TYPE)
-                .get(Response.class);
+        Response response = scheduler.call(token, () -> request(resource).get(Response.class));
         response.setSession(session);
         enrichReccoRank(response.getRecommendations().getArtist());
         return response;
     }
 
-    public List<Artist> fetchSimilarArtists(List<String> actualArtists, int limit) {
-        List<Future<Response>> collect = actualArtists.parallelStream().limit(limit).map(x -> similarArtistRequestAsync(x)).collect(toList());
-        return collect.parallelStream().flatMap(x -> {
-            try {
-                return x.get(1500, TimeUnit.MILLISECONDS).getSimilarartists().getArtist().stream();
-            } catch (Exception e) {
-                return new ArrayList<Artist>().stream();
+    public List<Artist> fetchSimilarArtists(String user, List<String> actualArtists, int limit) {
+        List<String> requested = actualArtists.stream().limit(limit).collect(toList());
+        return fetchSimilarArtistsByName(user, requested).values().stream().flatMap(table -> table.toArtists().stream()).collect(toList());
+    }
+
+    public Map<String, ArtistTable> fetchSimilarArtistsByName(String user, List<String> actualArtists) {
+        return Async.await(fetchSimilarArtistsByNameAsync(user, actualArtists));
+    }
+
+    /**
+     * Queues a lookup per artist under the given user and completes with whatever has completed by
+     * the deadline, or the request's {@link Deadline} if sooner, without a thread waiting on them.
+     * Background work, whose lookups queue behind interactive ones, is only held to its Deadline.
+     * Lookups still queued at the deadline are cancelled so they never reach Last.fm, and recorded
+     * as a shortfall, as are the lookups beyond what the rate limit allows in that time, which are
+     * never queued. Artists Last.fm doesn't know come back with no similar artists.
+     */
+    public CompletableFuture<Map<String, ArtistTable>> fetchSimilarArtistsByNameAsync(String user, List<String> actualArtists) {
+        Deadline deadline = Deadline.current();
+        long waitMillis = LastFmScheduler.isInBackground() ? deadline.remainingMillis() : deadline.capMillis(similarArtistsDeadlineMillis);
+        int affordable = Math.max(1, scheduler.requestsWithin(waitMillis));
+        Map<String, CompletableFuture<ArtistTable>> requests = new LinkedHashMap<>();
+        for (String artist : actualArtists.subList(0, Math.min(affordable, actualArtists.size()))) {
+            requests.put(artist, scheduler.submit(user, () -> similarArtistRequest(artist)));
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(requests.values().toArray(new CompletableFuture<?>[requests.size()]));
+        return Async.within(all, waitMillis).handle((ignored, error) -> {
+            Map<String, ArtistTable> result = new LinkedHashMap<>();
+            int missing = actualArtists.size() - requests.size();
+            for (Map.Entry<String, CompletableFuture<ArtistTable>> request : requests.entrySet()) {
+                CompletableFuture<ArtistTable> lookup = request.getValue();
+                if (!lookup.isDone() || lookup.isCompletedExceptionally()) {
+                    lookup.cancel(false);
+                    logger.debug("No similar artists for {}", request.getKey());
+                    missing++;
+                    continue;
+                }
+                ArtistTable similar = lookup.join();
+                if (ARTIST_NOT_FOUND.equals(similar.getError())) {
+                    result.put(request.getKey(), new ArtistTable());
+                    continue;
+                }
+                if (similar.getError() != null) {
+                    logger.debug("No similar artists for {} - {}", request.getKey(), similar.getMessage());
+                    missing++;
+                    continue;
+                }
+                result.put(request.getKey(), similar);
             }
-        }).collect(toList());
+            if (missing > 0) {
+                logger.info("{} of {} similar artist lookups for {} missing", missing, actualArtists.size(), user);
+                deadline.shortfall();
+            }
+            return result;
+        });
     }
 
-    private Future<Response> similarArtistRequestAsync(String artistName) {
-        WebTarget resource =  getWebTargetSimilarAsync(artistName);
-        Future<Response> response = resource.request(MediaType.APPLICATION_JSON_TYPE).accept(MediaType.APPLICATION_JSON_TYPE).async()
-                .get(Response.class);
-        return response;
+    private ArtistTable similarArtistRequest(String artistName) {
+        return parse(getWebTargetSimilar(artistName));
+    }
+
+    private RecentScrobbles parseRecentTracks(WebTarget target) {
+        try (InputStream body = request(target).get(InputStream.class)) {
+            return LastFmParser.parseRecentTracks(body);
+        } catch (IOException e) {
+            throw new LastFmException("unreadable response - " + e.getMessage());
+        }
+    }
+
+    private ArtistTable parse(WebTarget target) {
+        try (InputStream body = request(target).get(InputStream.class)) {
+            return LastFmParser.parse(body);
+        } catch (IOException e) {
+            throw new LastFmException("unreadable response - " + e.getMessage());
+        }
+    }
+
+    private Invocation.Builder request(WebTarget target) {
+        return timeouts.bound(target.request(MediaType.APPLICATION_JSON_TYPE).accept(MediaType.APPLICATION_JSON_TYPE));
     }
 
-    private WebTarget getWebTargetSimilarAsync(final String artistName){
+    private WebTarget getWebTargetSimilar(final String artistName){
         WebTarget resource = client.target(baseUrl);
         return resource
                 .queryParam("method", "artist.getsimilar")
@@ -103,14 +288,27 @@ public class LastFmSender {
         }
     }
 
-    private WebTarget getWebTarget(final String username){
+    private WebTarget getWebTarget(final String username, int page){
         WebTarget resource = client.target(baseUrl);
         return resource
                 .queryParam("method", "user.gettopartists")
                 .queryParam("api_key", apiKey)
                 .queryParam("user", username)
                 .queryParam("format", "json")
-                .queryParam("limit", "1000");
+                .queryParam("limit", topArtistsPageSize)
+                .queryParam("page", page);
+    }
+
+    private WebTarget getRecentTracksWebTarget(final String username, long from, int limit, int page) {
+        WebTarget resource = client.target(baseUrl);
+        return resource
+                .queryParam("method", "user.getrecenttracks")
+                .queryParam("api_key", apiKey)
+                .queryParam("user", username)
+                .queryParam("format", "json")
+                .queryParam("from", from)
+                .queryParam("limit", limit)
+                .queryParam("page", page);
     }
 
     private WebTarget getSessionWebTarget(final String token) {
@@ -176,9 +374,7 @@ public class LastFmSender {
     private Session getSession(String token) {
         WebTarget resource = getSessionWebTarget(token);
 
-        AuthSession authSession = resource.request(MediaType.APPLICATION_JSON_TYPE)
-                .accept(MediaType.APPLICATION_JSON_TYPE)
-                .get(AuthSession.class);
+        AuthSession authSession = request(resource).get(AuthSession.class);
 
         if (authSession.getError() != null) {
             throw new LastFmException("error " + authSession.getError() + ":" + authSession.getMessage());
@@ -189,8 +385,10 @@ public class LastFmSender {
     public static void main(String[] args) {
         LastFmConfig config = new LastFmConfig();
         config.setApiKey("0ba3650498bb88d7328c97b461fc3636");
-        LastFmSender sender = new LastFmSender(config);
-        List<Artist> castroneves121 = sender.fetchSimilarArtists(Arrays.asList("blue october","peter gabriel"), 200);
+        LastFmScheduler scheduler = new LastFmScheduler(config, new MetricRegistry());
+        scheduler.start();
+        LastFmSender sender = new LastFmSender(config, scheduler, JerseyClientBuilder.createClient(), new Timeouts(5000, 2000));
+        List<Artist> castroneves121 = sender.fetchSimilarArtists("main", Arrays.asList("blue october","peter gabriel"), 200);
         System.out.println(castroneves121);
     }
 }
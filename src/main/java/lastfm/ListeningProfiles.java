@@ -0,0 +1,120 @@
+package lastfm;
+
+import cache.CacheKeyPrefix;
+import cache.JedisFactory;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import lastfm.domain.ArtistTable;
+import lastfm.domain.ListeningProfile;
+import lastfm.domain.RecentScrobbles;
+import lastfm.domain.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pipeline.Deadline;
+import redis.clients.jedis.Jedis;
+import service.config.LastFmConfig;
+import service.config.ListeningProfileConfig;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Each user's top artists kept in Redis as a {@link ListeningProfile}. The first request reads
+ * the whole library; after that only the scrobbles made since the last sync are fetched and
+ * added to the playcounts. A full read is done again once the profile is old, or when the user
+ * has scrobbled too much since the last sync for replaying it to be worth it.
+ */
+@Singleton
+public class ListeningProfiles {
+    private static final Logger logger = LoggerFactory.getLogger(ListeningProfiles.class);
+
+    private final LastFmSender lastFmSender;
+    private final JedisFactory jedisFactory;
+    private final ObjectMapper mapper;
+    private final ListeningProfileConfig config;
+    private final int maxTopArtists;
+    private final Meter fullSyncs;
+    private final Meter incrementalSyncs;
+
+    @Inject
+    public ListeningProfiles(LastFmSender lastFmSender, JedisFactory jedisFactory, ObjectMapper mapper,
+                             ListeningProfileConfig config, LastFmConfig lastFmConfig, MetricRegistry metrics) {
+        this.lastFmSender = lastFmSender;
+        this.jedisFactory = jedisFactory;
+        this.mapper = mapper;
+        this.config = config;
+        this.maxTopArtists = lastFmConfig.getMaxTopArtists();
+        this.fullSyncs = metrics.meter(name(ListeningProfiles.class, "full-syncs"));
+        this.incrementalSyncs = metrics.meter(name(ListeningProfiles.class, "incremental-syncs"));
+    }
+
+    /**
+     * @return the user's artists, most played first, as a user.gettopartists response
+     */
+    public Response topArtists(String username) {
+        if (!config.isEnabled()) {
+            return lastFmSender.simpleRequest(username);
+        }
+        long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        ListeningProfile profile = load(username);
+        if (profile == null || now - profile.getFullSyncAt() > TimeUnit.HOURS.toSeconds(config.getFullSyncIntervalHours())) {
+            return fullSync(username, now);
+        }
+        RecentScrobbles scrobbles = lastFmSender.fetchScrobblesSince(username, profile.getSyncedUntil() + 1,
+                config.getRecentTracksPageSize(), config.getMaxRecentTrackPages());
+        if (scrobbles == null) {
+            return fullSync(username, now);
+        }
+        profile.apply(scrobbles, maxTopArtists);
+        save(username, profile);
+        incrementalSyncs.mark();
+        logger.info("Synced {} scrobbled artists onto the profile of {}", scrobbles.getCounts().size(), username);
+        return profile.toResponse();
+    }
+
+    /**
+     * A library only partly read by the deadline is returned but not saved, as incremental syncs
+     * would build on it for the life of the profile.
+     */
+    private Response fullSync(String username, long now) {
+        int shortfalls = Deadline.current().shortfalls();
+        ArtistTable library = lastFmSender.library(username);
+        if (Deadline.current().shortfalls() == shortfalls) {
+            save(username, ListeningProfile.of(library, now));
+        } else {
+            logger.info("Not saving the partly read library of {}", username);
+        }
+        fullSyncs.mark();
+        return library.toTopArtistsResponse();
+    }
+
+    private ListeningProfile load(String username) {
+        try (Jedis jedis = jedisFactory.newJedis()) {
+            String json = jedis.get(redisKey(username));
+            return json == null ? null : mapper.readValue(json, ListeningProfile.class);
+        } catch (IOException e) {
+            logger.warn("Unable to read listening profile of {} - {}", username, e.getMessage());
+            return null;
+        } catch (Exception e) {
+            logger.error("Unable to connect to cache - {} -- {}", e.getClass(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void save(String username, ListeningProfile profile) {
+        try (Jedis jedis = jedisFactory.newJedis()) {
+            jedis.setex(redisKey(username), (int) TimeUnit.DAYS.toSeconds(config.getTtlDays()), mapper.writeValueAsString(profile));
+        } catch (Exception e) {
+            logger.error("Unable to connect to cache - {} -- {}", e.getClass(), e.getMessage());
+        }
+    }
+
+    static String redisKey(String username) {
+        return CacheKeyPrefix.PROFILE + username;
+    }
+}
@@ -0,0 +1,121 @@
+package lastfm.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The artists of one Last.fm list response held column-wise: only name, playcount, rank and
+ * match are kept, as primitives, with -1 standing in for a playcount or rank the response did
+ * not carry and NaN for a missing match.
+ */
+public class ArtistTable {
+    private String[] names;
+    private int[] playcounts;
+    private int[] ranks;
+    private float[] matches;
+    private int size;
+    private PageAttributes attributes;
+    private String error;
+    private String message;
+
+    public ArtistTable() {
+        this(16);
+    }
+
+    public ArtistTable(int capacity) {
+        names = new String[capacity];
+        playcounts = new int[capacity];
+        ranks = new int[capacity];
+        matches = new float[capacity];
+    }
+
+    public void add(String name, int playcount, int rank, float match) {
+        if (size == names.length) {
+            int grown = Math.max(16, size * 2);
+            names = Arrays.copyOf(names, grown);
+            playcounts = Arrays.copyOf(playcounts, grown);
+            ranks = Arrays.copyOf(ranks, grown);
+            matches = Arrays.copyOf(matches, grown);
+        }
+        names[size] = name;
+        playcounts[size] = playcount;
+        ranks[size] = rank;
+        matches[size] = match;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int i) {
+        return names[i];
+    }
+
+    public int playcount(int i) {
+        return playcounts[i];
+    }
+
+    public int rank(int i) {
+        return ranks[i];
+    }
+
+    public float match(int i) {
+        return matches[i];
+    }
+
+    /**
+     * @return the rows as {@link Artist}s, for the callers and cached responses still built on them
+     */
+    public List<Artist> toArtists() {
+        List<Artist> artists = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            artists.add(new Artist(names[i],
+                    playcounts[i] < 0 ? null : Integer.toString(playcounts[i]),
+                    ranks[i] < 0 ? null : ranks[i],
+                    Float.isNaN(matches[i]) ? null : Float.toString(matches[i])));
+        }
+        return artists;
+    }
+
+    /**
+     * @return a user.gettopartists style response holding these rows
+     */
+    public Response toTopArtistsResponse() {
+        Response response = new Response();
+        response.setError(error);
+        response.setMessage(message);
+        if (error == null) {
+            TopArtists topArtists = new TopArtists();
+            topArtists.setArtist(toArtists());
+            topArtists.setAttributes(attributes);
+            response.setTopartists(topArtists);
+        }
+        return response;
+    }
+
+    public PageAttributes getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(PageAttributes attributes) {
+        this.attributes = attributes;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,128 @@
+package lastfm.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A user's artists and playcounts, most played first, as of the last sync with Last.fm.
+ * Serialised column-wise, like {@link domain.ArtistMap}.
+ */
+public class ListeningProfile {
+    private final List<String> names;
+    private final List<Integer> playcounts;
+    private long syncedUntil;
+    private long fullSyncAt;
+
+    @JsonCreator
+    public ListeningProfile(@JsonProperty("n") List<String> names,
+                            @JsonProperty("p") List<Integer> playcounts,
+                            @JsonProperty("s") long syncedUntil,
+                            @JsonProperty("f") long fullSyncAt) {
+        this.names = names == null ? new ArrayList<>() : new ArrayList<>(names);
+        this.playcounts = playcounts == null ? new ArrayList<>() : new ArrayList<>(playcounts);
+        this.syncedUntil = syncedUntil;
+        this.fullSyncAt = fullSyncAt;
+    }
+
+    /**
+     * Starts a profile from a full read of the user's top artists.
+     */
+    public static ListeningProfile of(ArtistTable artists, long now) {
+        List<String> names = new ArrayList<>(artists.size());
+        List<Integer> playcounts = new ArrayList<>(artists.size());
+        for (int i = 0; i < artists.size(); i++) {
+            names.add(artists.name(i));
+            playcounts.add(Math.max(0, artists.playcount(i)));
+        }
+        return new ListeningProfile(names, playcounts, now, now);
+    }
+
+    /**
+     * Adds the scrobbles to the playcounts, matching artists case insensitively, and re-sorts.
+     *
+     * @param cap the most artists to keep, or 0 to keep them all
+     */
+    public void apply(RecentScrobbles scrobbles, int cap) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            index.putIfAbsent(names.get(i).toLowerCase(), i);
+        }
+        scrobbles.getCounts().forEach((artist, count) -> {
+            Integer i = index.get(artist.toLowerCase());
+            if (i == null) {
+                index.put(artist.toLowerCase(), names.size());
+                names.add(artist);
+                playcounts.add(count);
+            } else {
+                playcounts.set(i, playcounts.get(i) + count);
+            }
+        });
+        List<Integer> order = IntStream.range(0, names.size()).boxed()
+                .sorted(Comparator.comparing(playcounts::get, Comparator.reverseOrder()))
+                .limit(cap > 0 ? cap : Long.MAX_VALUE)
+                .collect(toList());
+        List<String> sortedNames = order.stream().map(names::get).collect(toList());
+        List<Integer> sortedPlaycounts = order.stream().map(playcounts::get).collect(toList());
+        names.clear();
+        names.addAll(sortedNames);
+        playcounts.clear();
+        playcounts.addAll(sortedPlaycounts);
+        syncedUntil = Math.max(syncedUntil, scrobbles.getLatest());
+    }
+
+    /**
+     * @return the profile as a user.gettopartists response, ranked from 1
+     */
+    public Response toResponse() {
+        List<Artist> artists = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            artists.add(new Artist(names.get(i), playcounts.get(i).toString(), i + 1));
+        }
+        TopArtists topArtists = new TopArtists();
+        topArtists.setArtist(artists);
+        Response response = new Response();
+        response.setTopartists(topArtists);
+        return response;
+    }
+
+    @JsonProperty("n")
+    public List<String> getNames() {
+        return names;
+    }
+
+    @JsonProperty("p")
+    public List<Integer> getPlaycounts() {
+        return playcounts;
+    }
+
+    /**
+     * @return epoch seconds up to which scrobbles have been counted
+     */
+    @JsonProperty("s")
+    public long getSyncedUntil() {
+        return syncedUntil;
+    }
+
+    /**
+     * @return epoch seconds of the last full read of the user's top artists
+     */
+    @JsonProperty("f")
+    public long getFullSyncAt() {
+        return fullSyncAt;
+    }
+
+    @JsonIgnore
+    public int size() {
+        return names.size();
+    }
+}
@@ -0,0 +1,60 @@
+package lastfm.domain;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Scrobble counts per artist read from user.getrecenttracks, with the time of the latest one.
+ */
+public class RecentScrobbles {
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+    private long latest;
+    private PageAttributes attributes;
+    private String error;
+    private String message;
+
+    public void add(String artist, long uts) {
+        counts.merge(artist, 1, Integer::sum);
+        latest = Math.max(latest, uts);
+    }
+
+    public void addAll(RecentScrobbles other) {
+        other.counts.forEach((artist, count) -> counts.merge(artist, count, Integer::sum));
+        latest = Math.max(latest, other.latest);
+    }
+
+    public Map<String, Integer> getCounts() {
+        return counts;
+    }
+
+    /**
+     * @return epoch seconds of the latest scrobble, 0 if there were none
+     */
+    public long getLatest() {
+        return latest;
+    }
+
+    public PageAttributes getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(PageAttributes attributes) {
+        this.attributes = attributes;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
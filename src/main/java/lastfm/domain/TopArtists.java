@@ -2,6 +2,8 @@ package lastfm.domain;
 
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.List;
 
@@ -9,8 +11,10 @@ import java.util.List;
  * Created by Adam on 27/04/2015.
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class TopArtists {
     private List<Artist> artist;
+    private PageAttributes attributes;
 
     public List<Artist> getArtist() {
         return artist;
@@ -19,4 +23,14 @@ public class TopArtists {
     public void setArtist(List<Artist> artist) {
         this.artist = artist;
     }
+
+    @JsonProperty("@attr")
+    public PageAttributes getAttributes() {
+        return attributes;
+    }
+
+    @JsonProperty("@attr")
+    public void setAttributes(PageAttributes attributes) {
+        this.attributes = attributes;
+    }
 }
@@ -1,5 +1,7 @@
 package module;
 
+import client.UpstreamClients;
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.AbstractModule;
 import service.config.*;
 
@@ -15,16 +17,31 @@ import static java.util.stream.Collectors.toMap;
 public class GlastoCheckerModule extends AbstractModule {
 
     private GlastoConfiguration config;
+    private MetricRegistry metrics;
+    private UpstreamClients clients;
 
-    public GlastoCheckerModule(GlastoConfiguration config) {
+    public GlastoCheckerModule(GlastoConfiguration config, MetricRegistry metrics, UpstreamClients clients) {
         this.config = config;
+        this.metrics = metrics;
+        this.clients = clients;
     }
 
     @Override
     protected void configure() {
         bind(LastFmConfig.class).toInstance(config.getLastFm());
         bind(SpotifyConfig.class).toInstance(config.getSpotify());
+        bind(PaginationConfig.class).toInstance(config.getSpotify().getPagination());
         bind(JedisConfig.class).toInstance(config.getJedis());
+        bind(AliasConfig.class).toInstance(config.getAliases());
+        bind(MatchingConfig.class).toInstance(config.getMatching());
+        bind(PipelineConfig.class).toInstance(config.getPipeline());
+        bind(SimilarArtistCacheConfig.class).toInstance(config.getSimilarArtists());
+        bind(SimilarityGraphConfig.class).toInstance(config.getSimilarityGraph());
+        bind(RecommendationConfig.class).toInstance(config.getRecommendations());
+        bind(WarmerConfig.class).toInstance(config.getWarmer());
+        bind(ListeningProfileConfig.class).toInstance(config.getListeningProfiles());
+        bind(MetricRegistry.class).toInstance(metrics);
+        bind(UpstreamClients.class).toInstance(clients);
 
 //        List<MappingTuple> mappingConfig = config.getMappingConfig();
 //        Map<String, String> collect = mappingConfig.stream().collect(toMap(a -> a.getInput(), b -> b.getTo()));
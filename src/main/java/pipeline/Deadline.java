@@ -0,0 +1,158 @@
+package pipeline;
+
+import exception.UpstreamTimeoutException;
+import org.glassfish.jersey.client.ClientProperties;
+
+import javax.ws.rs.client.Invocation;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The point in time by which the current request must be answered. Installed per thread, from
+ * {@link DeadlineFilter} for resource requests, and carried onto pipeline and Last.fm worker
+ * threads with the work they run, so every upstream call and cache read below a request can
+ * bound its own timeout by what is left of the request's budget. Threads with no deadline
+ * installed, such as background jobs, see one that never expires.
+ * <p>
+ * Work that leaves part of a result out to keep within the deadline records a shortfall on it,
+ * so the result is returned to the request but not cached as if it were complete.
+ */
+public final class Deadline {
+    private static final Deadline NONE = new Deadline(0, false);
+    private static final ThreadLocal<Deadline> current = new ThreadLocal<>();
+
+    private final long expiresAtNanos;
+    private final boolean bounded;
+    private final AtomicInteger shortfalls = new AtomicInteger();
+
+    private Deadline(long expiresAtNanos, boolean bounded) {
+        this.expiresAtNanos = expiresAtNanos;
+        this.bounded = bounded;
+    }
+
+    public static Deadline after(long millis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis), true);
+    }
+
+    public static Deadline none() {
+        return NONE;
+    }
+
+    public static Deadline current() {
+        Deadline deadline = current.get();
+        return deadline == null ? NONE : deadline;
+    }
+
+    /**
+     * Wraps the supplier so it runs under the calling thread's deadline, whichever thread runs it.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> supplier) {
+        Deadline deadline = current();
+        return () -> {
+            try (Scope ignored = deadline.install()) {
+                return supplier.get();
+            }
+        };
+    }
+
+    /**
+     * Removes the calling thread's deadline, for a request handing the rest of its work to
+     * another thread.
+     *
+     * @return the deadline that was installed
+     */
+    public static Deadline detach() {
+        Deadline deadline = current();
+        current.remove();
+        return deadline;
+    }
+
+    /**
+     * @return a scope restoring the previous deadline when closed, which does nothing if closed
+     * on any other thread than this one
+     */
+    public Scope install() {
+        Thread owner = Thread.currentThread();
+        Deadline previous = current.get();
+        current.set(this);
+        return () -> {
+            if (Thread.currentThread() != owner) {
+                return;
+            }
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        };
+    }
+
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    public boolean isExpired() {
+        return bounded && System.nanoTime() - expiresAtNanos >= 0;
+    }
+
+    public long remainingMillis() {
+        return bounded ? Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime())) : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the given timeout, shortened to what is left of the deadline
+     */
+    public long capMillis(long millis) {
+        return Math.min(millis, remainingMillis());
+    }
+
+    /**
+     * @return a socket timeout of at most the given value, never 0 as that would mean no timeout
+     */
+    public int timeoutMillis(int defaultMillis) {
+        return (int) Math.max(1, capMillis(defaultMillis));
+    }
+
+    /**
+     * Records that part of a result was left out, because it could not be fetched in time. Not
+     * recorded when no deadline is installed, as that one is shared by every thread.
+     */
+    public void shortfall() {
+        if (this != NONE) {
+            shortfalls.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return how many shortfalls have been recorded so far; a lookup whose work records any
+     * between reading this before and after it has a partial result
+     */
+    public int shortfalls() {
+        return shortfalls.get();
+    }
+
+    public void check(String stage) {
+        if (isExpired()) {
+            throw new UpstreamTimeoutException(stage);
+        }
+    }
+
+    /**
+     * Bounds the read and connect timeouts of a Jersey request by the deadline, leaving the
+     * client's own timeouts in place when there is none. Per-request timeouts replace the
+     * client's, so pass the client's configured ones to have them shortened but never raised.
+     */
+    public Invocation.Builder bound(Invocation.Builder builder, int readTimeoutMillis, int connectTimeoutMillis) {
+        if (!bounded) {
+            return builder;
+        }
+        return builder.property(ClientProperties.READ_TIMEOUT, timeoutMillis(readTimeoutMillis))
+                .property(ClientProperties.CONNECT_TIMEOUT, timeoutMillis(connectTimeoutMillis));
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,35 @@
+package pipeline;
+
+import service.config.PipelineConfig;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+
+/**
+ * Gives each resource request the configured overall budget as its {@link Deadline}. Requests
+ * handed to {@link RequestExecutor} take it with them to the thread that answers them.
+ */
+public class DeadlineFilter implements ContainerRequestFilter, ContainerResponseFilter {
+    private static final String SCOPE = DeadlineFilter.class.getName() + ".scope";
+
+    private final long requestBudgetMillis;
+
+    public DeadlineFilter(PipelineConfig config) {
+        this.requestBudgetMillis = config.getRequestBudgetMillis();
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        request.setProperty(SCOPE, Deadline.after(requestBudgetMillis).install());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        Object scope = request.getProperty(SCOPE);
+        if (scope instanceof Deadline.Scope) {
+            ((Deadline.Scope) scope).close();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package pipeline;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import exception.UpstreamTimeoutException;
+import io.dropwizard.lifecycle.Managed;
+import service.config.PipelineConfig;
+
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.AsyncResponse;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Answers suspended resource requests from a pool of its own. Resources answer whole responses
+ * they find cached on Jetty's thread before handing off, so those never queue here. The rest hold
+ * one of these threads while they wait on upstreams, as the pipelines block on their stages, so
+ * the pool is sized like Jetty's own and requests are no more likely to queue than when Jetty ran
+ * them; its idle threads time out. Each request runs under the {@link Deadline} it arrived with
+ * and is answered with a timeout once that passes, whether it is still queued or running. A
+ * queued request that times out leaves the queue; running work isn't interrupted, as Redis and
+ * connection pool calls don't survive it, and gives up at its own deadline checks. Requests
+ * beyond the queue are turned away with a 503.
+ */
+@Singleton
+public class RequestExecutor implements Managed {
+    private final ExecutorService executor;
+    private final Meter rejected;
+
+    @Inject
+    public RequestExecutor(PipelineConfig config, MetricRegistry metrics) {
+        this(pool(config), metrics);
+    }
+
+    private static ThreadPoolExecutor pool(PipelineConfig config) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(config.getRequestThreads(), config.getRequestThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.getMaxQueuedRequests()),
+                new ThreadFactoryBuilder().setNameFormat("request-%d").setDaemon(true).build());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    public RequestExecutor(ExecutorService executor, MetricRegistry metrics) {
+        this.executor = executor;
+        this.rejected = metrics.meter(name(RequestExecutor.class, "rejected"));
+        if (executor instanceof ThreadPoolExecutor) {
+            metrics.register(name(RequestExecutor.class, "queued"), (Gauge<Integer>) () -> ((ThreadPoolExecutor) executor).getQueue().size());
+        }
+    }
+
+    /**
+     * Hands the request to the pool, resuming the response with the result or with whatever
+     * the work failed with, so the usual exception mappers apply.
+     */
+    public <T> void resume(AsyncResponse response, Supplier<T> work) {
+        Deadline deadline = Deadline.detach();
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            try (Deadline.Scope ignored = deadline.install()) {
+                response.resume(work.get());
+            } catch (Throwable e) {
+                // Errors included, the task's future would otherwise swallow them and leave the response hanging
+                response.resume(e);
+            }
+        }, null);
+        // Set before the work is queued, a response can't be given a timeout once it has been resumed
+        if (deadline.isBounded()) {
+            response.setTimeoutHandler(timedOut -> {
+                task.cancel(false);
+                // A cancelled task keeps its place in the queue until a thread takes it, so it is removed to free the place
+                if (executor instanceof ThreadPoolExecutor) {
+                    ((ThreadPoolExecutor) executor).remove(task);
+                }
+                timedOut.resume(new UpstreamTimeoutException("request"));
+            });
+            response.setTimeout(Math.max(1, deadline.remainingMillis()), TimeUnit.MILLISECONDS);
+        }
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.mark();
+            response.resume(new ServiceUnavailableException());
+        }
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        executor.shutdownNow();
+    }
+}
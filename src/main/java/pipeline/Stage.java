@@ -0,0 +1,70 @@
+package pipeline;
+
+import exception.UpstreamTimeoutException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A pipeline stage running in the background, with a timeout measured from when it was started.
+ * A stage that times out has its work cancelled, so work that hasn't started never runs. Work
+ * under way isn't interrupted, as Redis and pooled connection calls don't survive it, and gives
+ * up at its own {@link Deadline} checks.
+ */
+public class Stage<T> {
+    private final String name;
+    private final CompletableFuture<T> future;
+    private final Future<?> work;
+    private final long deadlineNanos;
+
+    Stage(String name, CompletableFuture<T> future, long timeoutMillis) {
+        this(name, future, future, timeoutMillis);
+    }
+
+    /**
+     * @param work what to cancel on timeout, when that isn't the future itself
+     */
+    Stage(String name, CompletableFuture<T> future, Future<?> work, long timeoutMillis) {
+        this.name = name;
+        this.future = future;
+        this.work = work;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    CompletableFuture<T> future() {
+        return future;
+    }
+
+    long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * Waits for the stage, rethrowing whatever runtime exception it failed with so the usual
+     * exception mappers apply.
+     */
+    public T join() {
+        try {
+            return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            work.cancel(false);
+            throw new UpstreamTimeoutException(name);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            work.cancel(false);
+            throw new UpstreamTimeoutException(name);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
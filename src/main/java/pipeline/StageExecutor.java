@@ -0,0 +1,112 @@
+package pipeline;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.dropwizard.lifecycle.Managed;
+import service.config.PipelineConfig;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the independent upstream stages of a request, festival data and user listening data,
+ * concurrently so request latency tracks the slower of the two rather than their sum.
+ */
+@Singleton
+public class StageExecutor implements Managed {
+    private final ExecutorService executor;
+    private final PipelineConfig config;
+
+    @Inject
+    public StageExecutor(PipelineConfig config) {
+        this(Executors.newFixedThreadPool(config.getThreads(), new ThreadFactoryBuilder().setNameFormat("pipeline-%d").setDaemon(true).build()), config);
+    }
+
+    public StageExecutor(ExecutorService executor, PipelineConfig config) {
+        this.executor = executor;
+        this.config = config;
+    }
+
+    public <T> Stage<T> festivalStage(Supplier<T> stage) {
+        return start("festival data", config.getFestivalStageTimeoutMillis(), stage);
+    }
+
+    public <T> Stage<T> festivalStageAsync(Supplier<? extends CompletionStage<T>> stage) {
+        return startAsync("festival data", config.getFestivalStageTimeoutMillis(), stage);
+    }
+
+    public <T> Stage<T> userStage(Supplier<T> stage) {
+        return start("user data", config.getUserStageTimeoutMillis(), stage);
+    }
+
+    public <T> Stage<T> userStageAsync(Supplier<? extends CompletionStage<T>> stage) {
+        return startAsync("user data", config.getUserStageTimeoutMillis(), stage);
+    }
+
+    /**
+     * Runs the stage under the caller's {@link Deadline}, with its timeout cut short by the deadline.
+     */
+    public <T> Stage<T> start(String name, long timeoutMillis, Supplier<T> stage) {
+        long timeout = Deadline.current().capMillis(timeoutMillis);
+        Supplier<T> work = Deadline.propagate(stage);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // Submitted as a task of its own, so a stage cancelled before a thread takes it never runs
+        Future<?> task = executor.submit(() -> {
+            try {
+                result.complete(work.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return new Stage<>(name, result, task, timeout);
+    }
+
+    /**
+     * Starts a stage that carries on from an earlier one with its result. It is only handed to
+     * the pool once the earlier stage completes, so no pipeline thread waits on it. It has what
+     * is left of the earlier stage's timeout rather than a timeout of its own, so a chain of
+     * dependent lookups is bounded as a whole.
+     */
+    public <T, U> Stage<U> then(Stage<T> previous, Function<? super T, ? extends U> next) {
+        Deadline deadline = Deadline.current();
+        CompletableFuture<U> result = previous.future().thenApplyAsync(value -> {
+            try (Deadline.Scope ignored = deadline.install()) {
+                return next.apply(value);
+            }
+        }, executor);
+        return new Stage<>(previous.getName(), result, previous.remainingMillis());
+    }
+
+    /**
+     * As {@link #start(String, long, Supplier)}, for a stage that is already asynchronous. The
+     * stage is begun on the caller's thread and holds no pipeline thread while it waits. A timeout
+     * cancels the future the stage returned, so one derived from a request should pass that on,
+     * as {@link client.Async#cancelling} does.
+     */
+    public <T> Stage<T> startAsync(String name, long timeoutMillis, Supplier<? extends CompletionStage<T>> stage) {
+        long timeout = Deadline.current().capMillis(timeoutMillis);
+        CompletableFuture<T> future;
+        try {
+            future = stage.get().toCompletableFuture();
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        return new Stage<>(name, future, timeout);
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        executor.shutdownNow();
+    }
+}
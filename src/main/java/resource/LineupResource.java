@@ -4,17 +4,21 @@ import cache.CheckerCache;
 import com.codahale.metrics.annotation.Metered;
 import com.google.inject.Inject;
 import domain.RumourResponse;
-import efestivals.domain.Act;
 import intersection.RumourIntersectionFinder;
+import pipeline.RequestExecutor;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
-import java.util.List;
 
 import static cache.CacheKeyPrefix.RUMOUR;
 
 /**
  * Created by Adam on 20/02/2016.
+ *
+ * Requests are answered from {@link RequestExecutor}, apart from cache hits, which are answered
+ * straight away.
  */
 @Path("/")
 @Produces({"application/json"})
@@ -23,40 +27,49 @@ public class LineupResource {
     private RumourIntersectionFinder rumourIntersectionFinder;
     @Inject
     private CheckerCache cache;
+    @Inject
+    private RequestExecutor requests;
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/{festival}/{year}/{username}")
     @Metered
-    public List<Act> getActsForUsername(@PathParam("username") String username, @PathParam("festival") String festival, @PathParam("year") String year) {
-        RumourResponse response = cache.getOrLookup(username + festival + year, () -> rumourIntersectionFinder.findIntersection(username, festival, year), RUMOUR, RumourResponse.class);
-        return response.getActs();
+    public void getActsForUsername(@Suspended AsyncResponse asyncResponse, @PathParam("username") String username, @PathParam("festival") String festival, @PathParam("year") String year) {
+        RumourResponse cached = cache.get(username + festival + year, RUMOUR, RumourResponse.class);
+        if (cached != null) {
+            asyncResponse.resume(cached.getActs());
+            return;
+        }
+        requests.resume(asyncResponse, () -> {
+            RumourResponse response = cache.lookup(username + festival + year, () -> rumourIntersectionFinder.findIntersection(username, festival, year), RUMOUR);
+            return response.getActs();
+        });
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/rec/{festival}/{year}/{username}")
     @Metered
-    public List<Act> getRecommendedActsForUsername(@PathParam("username") String username, @PathParam("festival") String festival, @PathParam("year") String year) {
-        return rumourIntersectionFinder.findRecommendedIntersection(username, festival, year);
+    public void getRecommendedActsForUsername(@Suspended AsyncResponse asyncResponse, @PathParam("username") String username, @PathParam("festival") String festival, @PathParam("year") String year) {
+        requests.resume(asyncResponse, () -> rumourIntersectionFinder.findRecommendedIntersection(username, festival, year));
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/spotify/{festival}/{year}/{code}/{redirectUrl}")
     @Metered
-    public List<Act> getActsForSpotify(@PathParam("code") String code, @PathParam("festival") String festival, @PathParam("year") String year, @PathParam("redirectUrl") String redirectUrl, @DefaultValue("false") @QueryParam("externalPlaylists") boolean externalPlaylistsIncluded) {
+    public void getActsForSpotify(@Suspended AsyncResponse asyncResponse, @PathParam("code") String code, @PathParam("festival") String festival, @PathParam("year") String year, @PathParam("redirectUrl") String redirectUrl, @DefaultValue("false") @QueryParam("externalPlaylists") boolean externalPlaylistsIncluded) {
         String cleanedCode = code.endsWith("#_=_") ? code.replaceAll("#_=_", "") : code;
-        return rumourIntersectionFinder.findSpotifyIntersection(cleanedCode, festival, year, redirectUrl, externalPlaylistsIncluded);
+        requests.resume(asyncResponse, () -> rumourIntersectionFinder.findSpotifyIntersection(cleanedCode, festival, year, redirectUrl, externalPlaylistsIncluded));
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/spotify/rec/{festival}/{year}/{code}/{redirectUrl}")
     @Metered
-    public List<Act> getRecommendedActsForSpotify(@PathParam("code") String code, @PathParam("festival") String festival, @PathParam("year") String year, @PathParam("redirectUrl") String redirectUrl, @DefaultValue("false") @QueryParam("externalPlaylists") boolean externalPlaylistsIncluded) {
+    public void getRecommendedActsForSpotify(@Suspended AsyncResponse asyncResponse, @PathParam("code") String code, @PathParam("festival") String festival, @PathParam("year") String year, @PathParam("redirectUrl") String redirectUrl, @DefaultValue("false") @QueryParam("externalPlaylists") boolean externalPlaylistsIncluded) {
         String cleanedCode = code.endsWith("#_=_") ? code.replaceAll("#_=_", "") : code;
-        return rumourIntersectionFinder.findSpotifyRecommendedIntersection(cleanedCode, festival, year, redirectUrl, externalPlaylistsIncluded);
+        requests.resume(asyncResponse, () -> rumourIntersectionFinder.findSpotifyRecommendedIntersection(cleanedCode, festival, year, redirectUrl, externalPlaylistsIncluded));
     }
 
 }
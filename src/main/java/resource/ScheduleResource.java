@@ -8,17 +8,23 @@ import com.codahale.metrics.annotation.Metered;
 import com.google.inject.Inject;
 import intersection.ScheduleIntersectionFinder;
 import lastfm.LastFmSender;
+import pipeline.RequestExecutor;
 import schedule.ScheduleBuilder;
 import strategy.ListenedFirstPreferenceStrategy;
 import strategy.PreferenceStrategy;
 import strategy.ReccoFirstPreferenceStrategy;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import java.util.List;
 
 /**
  * Created by Adam on 27/04/2015.
+ *
+ * Requests are answered from {@link RequestExecutor}, apart from cache hits, which are answered
+ * straight away.
  */
 @Path("/s/")
 @Produces({"application/json"})
@@ -31,66 +37,108 @@ public class ScheduleResource {
     private CheckerCache cache;
     @Inject
     private LastFmSender lastFmSender;
+    @Inject
+    private RequestExecutor requests;
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/{festival}/{year}/{username}")
     @Metered
-    public Schedule getScheduleForUsername(@PathParam("username") String username, @PathParam("festival") String festival, @PathParam("year") String year) {
-        return cache.getOrLookup(username + festival + year, () -> {
+    public void getScheduleForUsername(@Suspended AsyncResponse asyncResponse, @PathParam("username") String username, @PathParam("festival") String festival, @PathParam("year") String year) {
+        Schedule cached = cache.get(username + festival + year, CacheKeyPrefix.SCHEDULE, Schedule.class);
+        if (cached != null) {
+            asyncResponse.resume(cached);
+            return;
+        }
+        requests.resume(asyncResponse, () -> cache.lookup(username + festival + year, () -> {
             List<Event> intersection = scheduleIntersectionFinder.findSIntersection(username, festival, year);
             return scheduleBuilder.createSchedule(intersection, festival, year);
-        }, CacheKeyPrefix.SCHEDULE, Schedule.class);
+        }, CacheKeyPrefix.SCHEDULE));
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/rec/{festival}/{year}/{username}")
     @Metered
-    public Schedule getReccomendedSchedule(@PathParam("username") String username, @PathParam("festival") String festival, @PathParam("year") String year) {
-        List<Event> intersection = scheduleIntersectionFinder.findReccoScheduleIntersection(username, festival, year);
-        return scheduleBuilder.createSchedule(intersection, festival, year);
+    public void getReccomendedSchedule(@Suspended AsyncResponse asyncResponse, @PathParam("username") String username, @PathParam("festival") String festival, @PathParam("year") String year) {
+        List<Event> cached = scheduleIntersectionFinder.cachedReccoSchedule(username, festival, year);
+        if (cached != null) {
+            asyncResponse.resume(scheduleBuilder.createSchedule(cached, festival, year));
+            return;
+        }
+        requests.resume(asyncResponse, () -> {
+            List<Event> intersection = scheduleIntersectionFinder.findReccoScheduleIntersection(username, festival, year);
+            return scheduleBuilder.createSchedule(intersection, festival, year);
+        });
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/h/{strategy}/{festival}/{year}/{username}")
     @Metered
-    public Schedule getHybridSchedule(@PathParam("username") String username, @PathParam("festival") String festival, @PathParam("year") String year, @PathParam("strategy") String strategy) {
+    public void getHybridSchedule(@Suspended AsyncResponse asyncResponse, @PathParam("username") String username, @PathParam("festival") String festival, @PathParam("year") String year, @PathParam("strategy") String strategy) {
         PreferenceStrategy preferenceStrategy = getPreferenceStrategy(strategy);
-        List<Event> intersection = scheduleIntersectionFinder.findHybridScheduleIntersection(username,festival,year, preferenceStrategy);
-        return scheduleBuilder.createSchedule(intersection, festival, year);
+        List<Event> cached = scheduleIntersectionFinder.cachedHybridSchedule(username, festival, year, preferenceStrategy);
+        if (cached != null) {
+            asyncResponse.resume(scheduleBuilder.createSchedule(cached, festival, year));
+            return;
+        }
+        requests.resume(asyncResponse, () -> {
+            List<Event> intersection = scheduleIntersectionFinder.findHybridScheduleIntersection(username,festival,year, preferenceStrategy);
+            return scheduleBuilder.createSchedule(intersection, festival, year);
+        });
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/spotify/{festival}/{year}/{authcode}/{redirectUrl}")
     @Metered
-    public Schedule getScheduleSpotify(@PathParam("authcode") String code, @PathParam("festival") String festival, @PathParam("year") String year, @PathParam("redirectUrl") String redirectUrl, @DefaultValue("false") @QueryParam("externalPlaylists") boolean externalPlaylistsIncluded) {
+    public void getScheduleSpotify(@Suspended AsyncResponse asyncResponse, @PathParam("authcode") String code, @PathParam("festival") String festival, @PathParam("year") String year, @PathParam("redirectUrl") String redirectUrl, @DefaultValue("false") @QueryParam("externalPlaylists") boolean externalPlaylistsIncluded) {
         System.out.println(externalPlaylistsIncluded);
         String cleanedCode = code.endsWith("#_=_") ? code.replaceAll("#_=_", "") : code;
-        List<Event> intersection = scheduleIntersectionFinder.findSpotifyScheduleIntersection(cleanedCode, festival, year, redirectUrl, externalPlaylistsIncluded);
-        return scheduleBuilder.createSchedule(intersection, festival, year);
+        List<Event> cached = scheduleIntersectionFinder.cachedSpotifySchedule(cleanedCode, festival, year, externalPlaylistsIncluded);
+        if (cached != null) {
+            asyncResponse.resume(scheduleBuilder.createSchedule(cached, festival, year));
+            return;
+        }
+        requests.resume(asyncResponse, () -> {
+            List<Event> intersection = scheduleIntersectionFinder.findSpotifyScheduleIntersection(cleanedCode, festival, year, redirectUrl, externalPlaylistsIncluded);
+            return scheduleBuilder.createSchedule(intersection, festival, year);
+        });
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/spotify/rec/{festival}/{year}/{authcode}/{redirectUrl}")
     @Metered
-    public Schedule getRecommendedScheduleSpotify(@PathParam("authcode") String code, @PathParam("festival") String festival, @PathParam("year") String year, @PathParam("redirectUrl") String redirectUrl, @DefaultValue("false") @QueryParam("externalPlaylists") boolean externalPlaylistsIncluded) {
+    public void getRecommendedScheduleSpotify(@Suspended AsyncResponse asyncResponse, @PathParam("authcode") String code, @PathParam("festival") String festival, @PathParam("year") String year, @PathParam("redirectUrl") String redirectUrl, @DefaultValue("false") @QueryParam("externalPlaylists") boolean externalPlaylistsIncluded) {
         String cleanedCode = code.endsWith("#_=_") ? code.replaceAll("#_=_", "") : code;
-        List<Event> intersection = scheduleIntersectionFinder.findSpotifyRecommendedScheduleIntersection(cleanedCode, festival, year, redirectUrl, externalPlaylistsIncluded);
-        return scheduleBuilder.createSchedule(intersection, festival, year);
+        List<Event> cached = scheduleIntersectionFinder.cachedSpotifyRecommendedSchedule(cleanedCode, festival, year, externalPlaylistsIncluded);
+        if (cached != null) {
+            asyncResponse.resume(scheduleBuilder.createSchedule(cached, festival, year));
+            return;
+        }
+        requests.resume(asyncResponse, () -> {
+            List<Event> intersection = scheduleIntersectionFinder.findSpotifyRecommendedScheduleIntersection(cleanedCode, festival, year, redirectUrl, externalPlaylistsIncluded);
+            return scheduleBuilder.createSchedule(intersection, festival, year);
+        });
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/h/spotify/{strategy}/{festival}/{year}/{authcode}/{redirectUrl}")
     @Metered
-    public Schedule getHybridSpotifySchedule(@PathParam("authcode") String authCode, @PathParam("festival") String festival, @PathParam("year") String year, @PathParam("redirectUrl") String redirectUrl, @PathParam("strategy") String strategy, @DefaultValue("false") @QueryParam("externalPlaylists") boolean externalPlaylistsIncluded) {
+    public void getHybridSpotifySchedule(@Suspended AsyncResponse asyncResponse, @PathParam("authcode") String authCode, @PathParam("festival") String festival, @PathParam("year") String year, @PathParam("redirectUrl") String redirectUrl, @PathParam("strategy") String strategy, @DefaultValue("false") @QueryParam("externalPlaylists") boolean externalPlaylistsIncluded) {
         PreferenceStrategy preferenceStrategy = getPreferenceStrategy(strategy);
-        List<Event> intersection = scheduleIntersectionFinder.findHybridSpotifyScheduleIntersection(authCode,festival,year, redirectUrl, preferenceStrategy, externalPlaylistsIncluded);
-        return scheduleBuilder.createSchedule(intersection, festival, year);
+        List<Event> cached = scheduleIntersectionFinder.cachedHybridSpotifySchedule(authCode, festival, year, preferenceStrategy, externalPlaylistsIncluded);
+        if (cached != null) {
+            asyncResponse.resume(scheduleBuilder.createSchedule(cached, festival, year));
+            return;
+        }
+        requests.resume(asyncResponse, () -> {
+            List<Event> intersection = scheduleIntersectionFinder.findHybridSpotifyScheduleIntersection(authCode,festival,year, redirectUrl, preferenceStrategy, externalPlaylistsIncluded);
+            return scheduleBuilder.createSchedule(intersection, festival, year);
+        });
     }
 
     private PreferenceStrategy getPreferenceStrategy(String strategy) {
@@ -1,16 +1,25 @@
 package service;
 
+import alias.AliasDictionary;
+import client.UpstreamClients;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import exception.FestivalNotFoundExceptionMapper;
+import graph.SimilarityGraph;
+import intersection.RecommendationWarmer;
 import exception.LastFmExceptionMapper;
+import exception.UpstreamTimeoutExceptionMapper;
 import io.dropwizard.Application;
+import lastfm.LastFmScheduler;
 import io.dropwizard.configuration.EnvironmentVariableSubstitutor;
 import io.dropwizard.configuration.SubstitutingSourceProvider;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 import module.GlastoCheckerModule;
 import org.eclipse.jetty.servlets.CrossOriginFilter;
+import pipeline.DeadlineFilter;
+import pipeline.RequestExecutor;
+import pipeline.StageExecutor;
 import resource.LineupResource;
 import resource.ScheduleResource;
 import service.config.GlastoConfiguration;
@@ -40,9 +49,16 @@ public class GlastoService extends Application<GlastoConfiguration> {
 
     @Override
     public void run(GlastoConfiguration configuration, Environment environment) throws Exception {
-        Injector injector = Guice.createInjector(new GlastoCheckerModule(configuration));
+        UpstreamClients clients = new UpstreamClients(environment, configuration.getUpstreams());
+        Injector injector = Guice.createInjector(new GlastoCheckerModule(configuration, environment.metrics(), clients));
         ScheduleResource scheduleResource = injector.getInstance(ScheduleResource.class);
         LineupResource lineupResource = injector.getInstance(LineupResource.class);
+        environment.lifecycle().manage(injector.getInstance(AliasDictionary.class));
+        environment.lifecycle().manage(injector.getInstance(StageExecutor.class));
+        environment.lifecycle().manage(injector.getInstance(RequestExecutor.class));
+        environment.lifecycle().manage(injector.getInstance(LastFmScheduler.class));
+        environment.lifecycle().manage(injector.getInstance(SimilarityGraph.class));
+        environment.lifecycle().manage(injector.getInstance(RecommendationWarmer.class));
 
 
         // Enable CORS headers
@@ -59,6 +75,8 @@ public class GlastoService extends Application<GlastoConfiguration> {
 
         environment.jersey().register(new LastFmExceptionMapper());
         environment.jersey().register(new FestivalNotFoundExceptionMapper());
+        environment.jersey().register(new UpstreamTimeoutExceptionMapper());
+        environment.jersey().register(new DeadlineFilter(configuration.getPipeline()));
         environment.jersey().register(scheduleResource);
         environment.jersey().register(lineupResource);
     }
@@ -0,0 +1,23 @@
+package service.config;
+
+public class AliasConfig {
+
+    private String file;
+    private int reloadIntervalSeconds = 60;
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public int getReloadIntervalSeconds() {
+        return reloadIntervalSeconds;
+    }
+
+    public void setReloadIntervalSeconds(int reloadIntervalSeconds) {
+        this.reloadIntervalSeconds = reloadIntervalSeconds;
+    }
+}
@@ -24,6 +24,42 @@ public class GlastoConfiguration extends Configuration {
     @NotNull
     private SpotifyConfig spotify = new SpotifyConfig();
 
+    @Valid
+    @NotNull
+    private AliasConfig aliases = new AliasConfig();
+
+    @Valid
+    @NotNull
+    private MatchingConfig matching = new MatchingConfig();
+
+    @Valid
+    @NotNull
+    private PipelineConfig pipeline = new PipelineConfig();
+
+    @Valid
+    @NotNull
+    private SimilarArtistCacheConfig similarArtists = new SimilarArtistCacheConfig();
+
+    @Valid
+    @NotNull
+    private SimilarityGraphConfig similarityGraph = new SimilarityGraphConfig();
+
+    @Valid
+    @NotNull
+    private RecommendationConfig recommendations = new RecommendationConfig();
+
+    @Valid
+    @NotNull
+    private WarmerConfig warmer = new WarmerConfig();
+
+    @Valid
+    @NotNull
+    private ListeningProfileConfig listeningProfiles = new ListeningProfileConfig();
+
+    @Valid
+    @NotNull
+    private UpstreamsConfig upstreams = new UpstreamsConfig();
+
     private List<MappingTuple> mappings;
 
 
@@ -67,4 +103,94 @@ public class GlastoConfiguration extends Configuration {
     public void setSpotify(SpotifyConfig spotify) {
         this.spotify = spotify;
     }
+
+    @JsonProperty
+    public AliasConfig getAliases() {
+        return aliases;
+    }
+
+    @JsonProperty
+    public void setAliases(AliasConfig aliases) {
+        this.aliases = aliases;
+    }
+
+    @JsonProperty
+    public MatchingConfig getMatching() {
+        return matching;
+    }
+
+    @JsonProperty
+    public void setMatching(MatchingConfig matching) {
+        this.matching = matching;
+    }
+
+    @JsonProperty
+    public PipelineConfig getPipeline() {
+        return pipeline;
+    }
+
+    @JsonProperty
+    public void setPipeline(PipelineConfig pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    @JsonProperty
+    public SimilarArtistCacheConfig getSimilarArtists() {
+        return similarArtists;
+    }
+
+    @JsonProperty
+    public void setSimilarArtists(SimilarArtistCacheConfig similarArtists) {
+        this.similarArtists = similarArtists;
+    }
+
+    @JsonProperty
+    public SimilarityGraphConfig getSimilarityGraph() {
+        return similarityGraph;
+    }
+
+    @JsonProperty
+    public void setSimilarityGraph(SimilarityGraphConfig similarityGraph) {
+        this.similarityGraph = similarityGraph;
+    }
+
+    @JsonProperty
+    public RecommendationConfig getRecommendations() {
+        return recommendations;
+    }
+
+    @JsonProperty
+    public void setRecommendations(RecommendationConfig recommendations) {
+        this.recommendations = recommendations;
+    }
+
+    @JsonProperty
+    public WarmerConfig getWarmer() {
+        return warmer;
+    }
+
+    @JsonProperty
+    public void setWarmer(WarmerConfig warmer) {
+        this.warmer = warmer;
+    }
+
+    @JsonProperty
+    public ListeningProfileConfig getListeningProfiles() {
+        return listeningProfiles;
+    }
+
+    @JsonProperty
+    public void setListeningProfiles(ListeningProfileConfig listeningProfiles) {
+        this.listeningProfiles = listeningProfiles;
+    }
+
+    @JsonProperty
+    public UpstreamsConfig getUpstreams() {
+        return upstreams;
+    }
+
+    @JsonProperty
+    public void setUpstreams(UpstreamsConfig upstreams) {
+        this.upstreams = upstreams;
+    }
 }
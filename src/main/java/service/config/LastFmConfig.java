@@ -2,6 +2,8 @@ package service.config;
 
 import org.hibernate.validator.constraints.NotEmpty;
 
+import javax.validation.constraints.Min;
+
 /**
  * Created by Adam on 21/07/2015.
  */
@@ -11,6 +13,19 @@ public class LastFmConfig {
     private String apiKey;
     @NotEmpty
     private String secret;
+    @Min(1)
+    private int maxConcurrentRequests = 16;
+    @Min(1)
+    private double requestsPerSecond = 20;
+    private long similarArtistsDeadlineMillis = 5000;
+    @Min(1)
+    private long requestTimeoutMillis = 30000;
+    @Min(1)
+    private int topArtistsPageSize = 500;
+    @Min(1)
+    private int topArtistsPageConcurrency = 4;
+    @Min(0)
+    private int maxTopArtists = 5000;
 
     public String getApiKey() {
         return apiKey;
@@ -27,4 +42,63 @@ public class LastFmConfig {
     public void setSecret(String secret) {
         this.secret = secret;
     }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public void setRequestsPerSecond(double requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    public long getRequestTimeoutMillis() {
+        return requestTimeoutMillis;
+    }
+
+    public void setRequestTimeoutMillis(long requestTimeoutMillis) {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+
+    public long getSimilarArtistsDeadlineMillis() {
+        return similarArtistsDeadlineMillis;
+    }
+
+    public void setSimilarArtistsDeadlineMillis(long similarArtistsDeadlineMillis) {
+        this.similarArtistsDeadlineMillis = similarArtistsDeadlineMillis;
+    }
+
+    public int getTopArtistsPageSize() {
+        return topArtistsPageSize;
+    }
+
+    public void setTopArtistsPageSize(int topArtistsPageSize) {
+        this.topArtistsPageSize = topArtistsPageSize;
+    }
+
+    public int getTopArtistsPageConcurrency() {
+        return topArtistsPageConcurrency;
+    }
+
+    public void setTopArtistsPageConcurrency(int topArtistsPageConcurrency) {
+        this.topArtistsPageConcurrency = topArtistsPageConcurrency;
+    }
+
+    /**
+     * @return the most artists read from a user's library, or 0 for all of them
+     */
+    public int getMaxTopArtists() {
+        return maxTopArtists;
+    }
+
+    public void setMaxTopArtists(int maxTopArtists) {
+        this.maxTopArtists = maxTopArtists;
+    }
 }
@@ -0,0 +1,59 @@
+package service.config;
+
+import javax.validation.constraints.Min;
+
+public class ListeningProfileConfig {
+
+    private boolean enabled = true;
+    @Min(1)
+    private int recentTracksPageSize = 200;
+    @Min(1)
+    private int maxRecentTrackPages = 5;
+    @Min(1)
+    private int fullSyncIntervalHours = 168;
+    @Min(1)
+    private int ttlDays = 30;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getRecentTracksPageSize() {
+        return recentTracksPageSize;
+    }
+
+    public void setRecentTracksPageSize(int recentTracksPageSize) {
+        this.recentTracksPageSize = recentTracksPageSize;
+    }
+
+    /**
+     * @return the most pages of recent scrobbles replayed onto a profile before a full read is cheaper
+     */
+    public int getMaxRecentTrackPages() {
+        return maxRecentTrackPages;
+    }
+
+    public void setMaxRecentTrackPages(int maxRecentTrackPages) {
+        this.maxRecentTrackPages = maxRecentTrackPages;
+    }
+
+    public int getFullSyncIntervalHours() {
+        return fullSyncIntervalHours;
+    }
+
+    public void setFullSyncIntervalHours(int fullSyncIntervalHours) {
+        this.fullSyncIntervalHours = fullSyncIntervalHours;
+    }
+
+    public int getTtlDays() {
+        return ttlDays;
+    }
+
+    public void setTtlDays(int ttlDays) {
+        this.ttlDays = ttlDays;
+    }
+}
@@ -0,0 +1,32 @@
+package service.config;
+
+public class MatchingConfig {
+
+    private boolean fuzzyEnabled = false;
+    private double fuzzyThreshold = 0.8;
+    private long fuzzyBudgetMillis = 100;
+
+    public boolean isFuzzyEnabled() {
+        return fuzzyEnabled;
+    }
+
+    public void setFuzzyEnabled(boolean fuzzyEnabled) {
+        this.fuzzyEnabled = fuzzyEnabled;
+    }
+
+    public double getFuzzyThreshold() {
+        return fuzzyThreshold;
+    }
+
+    public void setFuzzyThreshold(double fuzzyThreshold) {
+        this.fuzzyThreshold = fuzzyThreshold;
+    }
+
+    public long getFuzzyBudgetMillis() {
+        return fuzzyBudgetMillis;
+    }
+
+    public void setFuzzyBudgetMillis(long fuzzyBudgetMillis) {
+        this.fuzzyBudgetMillis = fuzzyBudgetMillis;
+    }
+}
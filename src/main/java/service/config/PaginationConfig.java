@@ -0,0 +1,100 @@
+package service.config;
+
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+
+public class PaginationConfig {
+
+    @Min(1)
+    private int initialWindow = 8;
+    @Min(1)
+    private int maxWindow = 32;
+    @Min(1)
+    private int maxAttempts = 4;
+    @DecimalMin("0")
+    private double retryBudgetRatio = 0.2;
+    @Min(0)
+    private int minRetryBudget = 3;
+    @Min(1)
+    private long baseBackoffMillis = 200;
+    @Min(1)
+    private long maxBackoffMillis = 5000;
+    @Min(1)
+    private int maxInFlight = 32;
+
+    /**
+     * @return pages requested at once when a pagination starts
+     */
+    public int getInitialWindow() {
+        return initialWindow;
+    }
+
+    public void setInitialWindow(int initialWindow) {
+        this.initialWindow = initialWindow;
+    }
+
+    public int getMaxWindow() {
+        return maxWindow;
+    }
+
+    public void setMaxWindow(int maxWindow) {
+        this.maxWindow = maxWindow;
+    }
+
+    /**
+     * @return tries per page, including the first
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * @return retries allowed per pagination, as a share of its pages
+     */
+    public double getRetryBudgetRatio() {
+        return retryBudgetRatio;
+    }
+
+    public void setRetryBudgetRatio(double retryBudgetRatio) {
+        this.retryBudgetRatio = retryBudgetRatio;
+    }
+
+    public int getMinRetryBudget() {
+        return minRetryBudget;
+    }
+
+    public void setMinRetryBudget(int minRetryBudget) {
+        this.minRetryBudget = minRetryBudget;
+    }
+
+    public long getBaseBackoffMillis() {
+        return baseBackoffMillis;
+    }
+
+    public void setBaseBackoffMillis(long baseBackoffMillis) {
+        this.baseBackoffMillis = baseBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    public void setMaxBackoffMillis(long maxBackoffMillis) {
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * @return pages in flight across every pagination on this node, at most the Spotify connection pool size
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+}
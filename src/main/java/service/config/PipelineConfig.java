@@ -0,0 +1,65 @@
+package service.config;
+
+import javax.validation.constraints.Min;
+
+public class PipelineConfig {
+
+    @Min(1)
+    private int threads = 64;
+    @Min(1)
+    private int requestThreads = 1024;
+    @Min(1)
+    private int maxQueuedRequests = 1024;
+    private long festivalStageTimeoutMillis = 15000;
+    private long userStageTimeoutMillis = 60000;
+    @Min(1)
+    private long requestBudgetMillis = 30000;
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getRequestThreads() {
+        return requestThreads;
+    }
+
+    public void setRequestThreads(int requestThreads) {
+        this.requestThreads = requestThreads;
+    }
+
+    public int getMaxQueuedRequests() {
+        return maxQueuedRequests;
+    }
+
+    public void setMaxQueuedRequests(int maxQueuedRequests) {
+        this.maxQueuedRequests = maxQueuedRequests;
+    }
+
+    public long getFestivalStageTimeoutMillis() {
+        return festivalStageTimeoutMillis;
+    }
+
+    public void setFestivalStageTimeoutMillis(long festivalStageTimeoutMillis) {
+        this.festivalStageTimeoutMillis = festivalStageTimeoutMillis;
+    }
+
+    public long getUserStageTimeoutMillis() {
+        return userStageTimeoutMillis;
+    }
+
+    public void setUserStageTimeoutMillis(long userStageTimeoutMillis) {
+        this.userStageTimeoutMillis = userStageTimeoutMillis;
+    }
+
+    public long getRequestBudgetMillis() {
+        return requestBudgetMillis;
+    }
+
+    public void setRequestBudgetMillis(long requestBudgetMillis) {
+        this.requestBudgetMillis = requestBudgetMillis;
+    }
+}
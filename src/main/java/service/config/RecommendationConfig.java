@@ -0,0 +1,59 @@
+package service.config;
+
+import intersection.ScoringMode;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class RecommendationConfig {
+
+    @NotNull
+    private ScoringMode scoringMode = ScoringMode.FREQUENCY;
+    private boolean adaptive = false;
+    @Min(1)
+    private int batchSize = 25;
+    @Min(1)
+    private int stableTopN = 50;
+    @Min(1)
+    private int stableBatches = 3;
+
+    public ScoringMode getScoringMode() {
+        return scoringMode;
+    }
+
+    public void setScoringMode(ScoringMode scoringMode) {
+        this.scoringMode = scoringMode;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getStableTopN() {
+        return stableTopN;
+    }
+
+    public void setStableTopN(int stableTopN) {
+        this.stableTopN = stableTopN;
+    }
+
+    public int getStableBatches() {
+        return stableBatches;
+    }
+
+    public void setStableBatches(int stableBatches) {
+        this.stableBatches = stableBatches;
+    }
+}
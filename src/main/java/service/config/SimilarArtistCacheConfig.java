@@ -0,0 +1,37 @@
+package service.config;
+
+import javax.validation.constraints.Min;
+
+public class SimilarArtistCacheConfig {
+
+    @Min(0)
+    private long nearMaxEntries = 20000;
+    @Min(1)
+    private long nearExpiryMinutes = 60;
+    @Min(1)
+    private int ttlSeconds = 7 * 24 * 3600;
+
+    public long getNearMaxEntries() {
+        return nearMaxEntries;
+    }
+
+    public void setNearMaxEntries(long nearMaxEntries) {
+        this.nearMaxEntries = nearMaxEntries;
+    }
+
+    public long getNearExpiryMinutes() {
+        return nearExpiryMinutes;
+    }
+
+    public void setNearExpiryMinutes(long nearExpiryMinutes) {
+        this.nearExpiryMinutes = nearExpiryMinutes;
+    }
+
+    public int getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(int ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+}
@@ -0,0 +1,35 @@
+package service.config;
+
+import javax.validation.constraints.Min;
+
+public class SimilarityGraphConfig {
+
+    private String file;
+    private int compactionIntervalMinutes = 10;
+    @Min(1)
+    private long maxPendingArtists = 100000;
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public int getCompactionIntervalMinutes() {
+        return compactionIntervalMinutes;
+    }
+
+    public void setCompactionIntervalMinutes(int compactionIntervalMinutes) {
+        this.compactionIntervalMinutes = compactionIntervalMinutes;
+    }
+
+    public long getMaxPendingArtists() {
+        return maxPendingArtists;
+    }
+
+    public void setMaxPendingArtists(long maxPendingArtists) {
+        this.maxPendingArtists = maxPendingArtists;
+    }
+}
@@ -3,11 +3,22 @@ package service.config;
 
 import org.hibernate.validator.constraints.NotEmpty;
 
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
 public class SpotifyConfig {
     @NotEmpty
     private String clientId;
     @NotEmpty
     private String secret;
+    @Valid
+    @NotNull
+    private PaginationConfig pagination = new PaginationConfig();
+    @Min(1)
+    private int refreshTokenTtlDays = 60;
+    @Min(1)
+    private int playlistTtlDays = 7;
 
 
     public String getClientId() {
@@ -25,4 +36,34 @@ public class SpotifyConfig {
     public void setSecret(String secret) {
         this.secret = secret;
     }
+
+    public PaginationConfig getPagination() {
+        return pagination;
+    }
+
+    public void setPagination(PaginationConfig pagination) {
+        this.pagination = pagination;
+    }
+
+    /**
+     * @return how long a user's refresh token is kept after their last sign in
+     */
+    public int getRefreshTokenTtlDays() {
+        return refreshTokenTtlDays;
+    }
+
+    public void setRefreshTokenTtlDays(int refreshTokenTtlDays) {
+        this.refreshTokenTtlDays = refreshTokenTtlDays;
+    }
+
+    /**
+     * @return how long the artists of a playlist snapshot stay cached after it was last paged
+     */
+    public int getPlaylistTtlDays() {
+        return playlistTtlDays;
+    }
+
+    public void setPlaylistTtlDays(int playlistTtlDays) {
+        this.playlistTtlDays = playlistTtlDays;
+    }
 }
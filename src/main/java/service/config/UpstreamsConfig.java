@@ -0,0 +1,88 @@
+package service.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.client.JerseyClientConfiguration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Pool size, keep alive, compression and timeouts of the HTTP client for each upstream.
+ */
+public class UpstreamsConfig {
+
+    @Valid
+    @NotNull
+    private JerseyClientConfiguration lastFm = client(5000, 2000, 16);
+
+    @Valid
+    @NotNull
+    private JerseyClientConfiguration spotify = client(5000, 2000, 32);
+
+    @Valid
+    @NotNull
+    private JerseyClientConfiguration clashfinder = client(15000, 2000, 4);
+
+    @Valid
+    @NotNull
+    private JerseyClientConfiguration efestivals = client(15000, 2000, 4);
+
+    /**
+     * Responses may be gzipped but request bodies are sent plain, as the Spotify token endpoint
+     * does not accept compressed forms.
+     */
+    static JerseyClientConfiguration client(long timeoutMillis, long connectTimeoutMillis, int maxConnectionsPerRoute) {
+        JerseyClientConfiguration config = new JerseyClientConfiguration();
+        config.setTimeout(Duration.milliseconds(timeoutMillis));
+        config.setConnectionTimeout(Duration.milliseconds(connectTimeoutMillis));
+        config.setConnectionRequestTimeout(Duration.milliseconds(connectTimeoutMillis));
+        config.setMaxConnections(maxConnectionsPerRoute);
+        config.setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+        config.setKeepAlive(Duration.seconds(30));
+        config.setGzipEnabled(true);
+        config.setGzipEnabledForRequests(false);
+        config.setChunkedEncodingEnabled(false);
+        return config;
+    }
+
+    @JsonProperty
+    public JerseyClientConfiguration getLastFm() {
+        return lastFm;
+    }
+
+    @JsonProperty
+    public void setLastFm(JerseyClientConfiguration lastFm) {
+        this.lastFm = lastFm;
+    }
+
+    @JsonProperty
+    public JerseyClientConfiguration getSpotify() {
+        return spotify;
+    }
+
+    @JsonProperty
+    public void setSpotify(JerseyClientConfiguration spotify) {
+        this.spotify = spotify;
+    }
+
+    @JsonProperty
+    public JerseyClientConfiguration getClashfinder() {
+        return clashfinder;
+    }
+
+    @JsonProperty
+    public void setClashfinder(JerseyClientConfiguration clashfinder) {
+        this.clashfinder = clashfinder;
+    }
+
+    @JsonProperty
+    public JerseyClientConfiguration getEfestivals() {
+        return efestivals;
+    }
+
+    @JsonProperty
+    public void setEfestivals(JerseyClientConfiguration efestivals) {
+        this.efestivals = efestivals;
+    }
+}
@@ -0,0 +1,66 @@
+package service.config;
+
+import javax.validation.constraints.Min;
+
+public class WarmerConfig {
+
+    private boolean enabled = true;
+    @Min(1)
+    private int maxTrackedUsers = 1000;
+    @Min(1)
+    private int activeWindowMinutes = 120;
+    @Min(1)
+    private int scanIntervalSeconds = 60;
+    @Min(1)
+    private int refreshBeforeExpirySeconds = 900;
+    @Min(1)
+    private int refreshTimeoutSeconds = 300;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxTrackedUsers() {
+        return maxTrackedUsers;
+    }
+
+    public void setMaxTrackedUsers(int maxTrackedUsers) {
+        this.maxTrackedUsers = maxTrackedUsers;
+    }
+
+    public int getActiveWindowMinutes() {
+        return activeWindowMinutes;
+    }
+
+    public void setActiveWindowMinutes(int activeWindowMinutes) {
+        this.activeWindowMinutes = activeWindowMinutes;
+    }
+
+    public int getScanIntervalSeconds() {
+        return scanIntervalSeconds;
+    }
+
+    public void setScanIntervalSeconds(int scanIntervalSeconds) {
+        this.scanIntervalSeconds = scanIntervalSeconds;
+    }
+
+    public int getRefreshBeforeExpirySeconds() {
+        return refreshBeforeExpirySeconds;
+    }
+
+    public void setRefreshBeforeExpirySeconds(int refreshBeforeExpirySeconds) {
+        this.refreshBeforeExpirySeconds = refreshBeforeExpirySeconds;
+    }
+
+    public int getRefreshTimeoutSeconds() {
+        return refreshTimeoutSeconds;
+    }
+
+    public void setRefreshTimeoutSeconds(int refreshTimeoutSeconds) {
+        this.refreshTimeoutSeconds = refreshTimeoutSeconds;
+    }
+}
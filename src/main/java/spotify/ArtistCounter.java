@@ -0,0 +1,82 @@
+package spotify;
+
+import intersection.ScoreBoard;
+import lastfm.domain.Artist;
+import spotify.domain.PlaylistArtists;
+import spotify.domain.SpotifyArtist;
+import spotify.domain.SpotifyTracksItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts tracks per artist as pages arrive, so pages can be dropped once folded in. Artists are
+ * told apart by Spotify id, falling back to the name for local files, which have none. Not thread
+ * safe.
+ */
+public final class ArtistCounter {
+    private static final String NO_ID = "\u0000";
+
+    private final ScoreBoard board = new ScoreBoard(256);
+    private final List<String> ids = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+
+    public void addTracks(List<SpotifyTracksItem> items) {
+        if (items == null) {
+            return;
+        }
+        for (SpotifyTracksItem item : items) {
+            // Tracks that are no longer available come back without a track
+            if (item.getTrack() != null && item.getTrack().getArtists() != null) {
+                for (SpotifyArtist artist : item.getTrack().getArtists()) {
+                    add(artist.getId(), artist.getName(), 1);
+                }
+            }
+        }
+    }
+
+    public void add(PlaylistArtists artists) {
+        for (int i = 0; i < artists.getNames().length; i++) {
+            add(artists.getIds()[i], artists.getNames()[i], artists.getCounts()[i]);
+        }
+    }
+
+    public void add(String id, String name, int tracks) {
+        if (name == null) {
+            return;
+        }
+        int before = board.size();
+        board.add(id == null ? NO_ID + name : id, tracks);
+        if (board.size() > before) {
+            ids.add(id);
+            names.add(name);
+        }
+    }
+
+    public int size() {
+        return board.size();
+    }
+
+    /**
+     * @return every artist, most tracks first, with the track count as playcount
+     */
+    public List<Artist> byFrequency() {
+        int[] top = board.top(board.size(), 1, x -> true);
+        List<Artist> result = new ArrayList<>(top.length);
+        for (int id : top) {
+            result.add(new Artist(names.get(id), Integer.toString((int) board.score(id)), 0));
+        }
+        return result;
+    }
+
+    public PlaylistArtists toPlaylistArtists() {
+        int size = board.size();
+        String[] idColumn = ids.toArray(new String[size]);
+        String[] nameColumn = names.toArray(new String[size]);
+        int[] counts = new int[size];
+        for (int id = 0; id < size; id++) {
+            counts[id] = (int) board.score(id);
+        }
+        return new PlaylistArtists(idColumn, nameColumn, counts);
+    }
+}
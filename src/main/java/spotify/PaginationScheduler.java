@@ -0,0 +1,295 @@
+package spotify;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pipeline.Deadline;
+import service.config.PaginationConfig;
+import spotify.domain.FuncTuple;
+import spotify.domain.SpotifyDetails;
+import spotify.domain.SpotifyResponse;
+
+import javax.ws.rs.core.Response;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Fetches a set of Spotify pages with a bounded number in flight. The window grows by one page
+ * per window of successes and halves on a 429 or timeout. Failed pages are retried after a
+ * jittered exponential backoff, or after Retry-After when Spotify sends one, which also holds
+ * back every other page. Retries are capped per page and per pagination, and nothing is retried
+ * past the request's {@link Deadline}. However many paginations are running, no more than
+ * {@link PaginationConfig#getMaxInFlight()} pages are in flight on the node at once. Pages
+ * given up on are recorded as a shortfall on the {@link Deadline}, so the result isn't cached.
+ */
+@Singleton
+public class PaginationScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(PaginationScheduler.class);
+    static final int TIMED_OUT = -1;
+
+    private final PaginationConfig config;
+    private final Histogram retries;
+    private final Meter throttled;
+    private final Meter abandoned;
+    private final Semaphore permits;
+
+    @Inject
+    public PaginationScheduler(PaginationConfig config, MetricRegistry metrics) {
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxInFlight());
+        metrics.register(name(PaginationScheduler.class, "inFlight"), (Gauge<Integer>) () -> config.getMaxInFlight() - permits.availablePermits());
+        this.retries = metrics.histogram(name(PaginationScheduler.class, "retries"));
+        this.throttled = metrics.meter(name(PaginationScheduler.class, "throttled"));
+        this.abandoned = metrics.meter(name(PaginationScheduler.class, "abandoned"));
+    }
+
+    /**
+     * @return the pages that were fetched, in the order they arrived; pages that could not be
+     * fetched within the retry limits are left out
+     */
+    public <T extends Response, S extends SpotifyResponse> List<S> fetchAll(List<FuncTuple<T>> funcs, Class<S> clazz, SpotifyDetails details) {
+        return fetchAll(funcs, clazz, details, (func, page) -> Collections.emptyList());
+    }
+
+    /**
+     * Pages may be read as different subtypes of the pagination's type, see {@link FuncTuple#getEntityClass()}.
+     *
+     * @param followUps given each fetched page, returns any further pages to fetch in the same run
+     */
+    public <T extends Response, S extends SpotifyResponse> List<S> fetchAll(List<FuncTuple<T>> funcs, Class<S> clazz, SpotifyDetails details,
+                                                                            BiFunction<FuncTuple<T>, S, List<FuncTuple<T>>> followUps) {
+        return new Run<>(funcs, clazz, details, followUps, true).fetch();
+    }
+
+    /**
+     * As {@link #fetchAll(List, Class, SpotifyDetails, BiFunction)}, for callers that fold each page
+     * into a result of their own in followUps, so pages are not kept.
+     */
+    public <T extends Response, S extends SpotifyResponse> void forEachPage(List<FuncTuple<T>> funcs, Class<S> clazz, SpotifyDetails details,
+                                                                            BiFunction<FuncTuple<T>, S, List<FuncTuple<T>>> followUps) {
+        new Run<>(funcs, clazz, details, followUps, false).fetch();
+    }
+
+    private final class Run<T extends Response, S extends SpotifyResponse> {
+        private final Class<S> clazz;
+        private final SpotifyDetails details;
+        private final BiFunction<FuncTuple<T>, S, List<FuncTuple<T>>> followUps;
+        private final boolean retain;
+        private final PriorityQueue<Page<T>> pending = new PriorityQueue<>(Comparator.<Page<T>>comparingLong(p -> p.notBefore).thenComparingInt(p -> p.func.getOffset()));
+        private final ArrayDeque<Page<T>> inFlight = new ArrayDeque<>();
+        private final List<S> result = new ArrayList<>();
+        private int fetched;
+        private int pages;
+        private double window;
+        private long pausedUntil = Long.MIN_VALUE;
+        private int retried;
+
+        private Run(List<FuncTuple<T>> funcs, Class<S> clazz, SpotifyDetails details, BiFunction<FuncTuple<T>, S, List<FuncTuple<T>>> followUps, boolean retain) {
+            this.clazz = clazz;
+            this.details = details;
+            this.followUps = followUps;
+            this.retain = retain;
+            funcs.forEach(this::enqueue);
+            this.window = Math.min(config.getInitialWindow(), config.getMaxWindow());
+        }
+
+        private List<S> fetch() {
+            try {
+                while (!pending.isEmpty() || !inFlight.isEmpty()) {
+                    if (Deadline.current().isExpired()) {
+                        logger.info("Request deadline passed, giving up on {} pages", pending.size() + inFlight.size());
+                        Deadline.current().shortfall();
+                        break;
+                    }
+                    launchReady();
+                    if (inFlight.isEmpty()) {
+                        if (!waitForNextPage()) {
+                            Deadline.current().shortfall();
+                            break;
+                        }
+                        continue;
+                    }
+                    collect(inFlight.poll());
+                }
+            } finally {
+                // Pages given up on, or left behind when launching or collecting a page throws
+                abandonInFlight();
+            }
+            retries.update(retried);
+            if (retried > 0) {
+                logger.info("Results: {} Retries: {} Window: {}", fetched, retried, (int) window);
+            }
+            return result;
+        }
+
+        private void abandonInFlight() {
+            for (Page<T> page = inFlight.poll(); page != null; page = inFlight.poll()) {
+                page.future.cancel(false);
+                permits.release();
+            }
+        }
+
+        private void enqueue(FuncTuple<T> func) {
+            pending.add(new Page<>(func, func.getDetails() == null ? details : func.getDetails()));
+            pages++;
+        }
+
+        private int budget() {
+            return Math.max(config.getMinRetryBudget(), (int) Math.ceil(pages * config.getRetryBudgetRatio()));
+        }
+
+        private void launchReady() {
+            long now = System.nanoTime();
+            while (inFlight.size() < (int) window && !pending.isEmpty() && pending.peek().notBefore <= now && pausedUntil <= now) {
+                // With pages of our own in flight, wait on those rather than for a permit
+                if (!permits.tryAcquire() && (!inFlight.isEmpty() || !awaitPermit())) {
+                    return;
+                }
+                Page<T> page = pending.poll();
+                page.attempts++;
+                try {
+                    page.future = page.func.getFunc().apply(page.func.getOffset(), page.details);
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+                inFlight.add(page);
+            }
+        }
+
+        private boolean awaitPermit() {
+            try {
+                return permits.tryAcquire(Deadline.current().capMillis(AsyncPaginationUtils.TIMEOUT_SUBSEQUENT_MILLIS), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private boolean waitForNextPage() {
+            long wakeAt = Math.max(pending.peek().notBefore, pausedUntil);
+            long sleepMillis = TimeUnit.NANOSECONDS.toMillis(wakeAt - System.nanoTime());
+            if (sleepMillis <= 0) {
+                return true;
+            }
+            if (sleepMillis >= Deadline.current().remainingMillis()) {
+                logger.info("Next retry is past the request deadline, giving up on {} pages", pending.size());
+                return false;
+            }
+            try {
+                Thread.sleep(sleepMillis);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private void collect(Page<T> page) {
+            int status = TIMED_OUT;
+            T response = null;
+            try {
+                response = page.future.get(Deadline.current().capMillis(AsyncPaginationUtils.TIMEOUT_SUBSEQUENT_MILLIS), TimeUnit.MILLISECONDS);
+                status = response.getStatus();
+                if (status < 400) {
+                    Class<? extends SpotifyResponse> entityClass = page.func.getEntityClass() == null ? clazz : page.func.getEntityClass();
+                    S entity = clazz.cast(response.readEntity(entityClass));
+                    if (entity != null) {
+                        fetched++;
+                        if (retain) {
+                            result.add(entity);
+                        }
+                        window = Math.min(config.getMaxWindow(), window + 1 / window);
+                        followUps.apply(page.func, entity).forEach(this::enqueue);
+                        return;
+                    }
+                }
+            } catch (Exception e) {
+                page.future.cancel(false);
+                logger.debug("Page at offset {} failed - {}", page.func.getOffset(), e.getMessage());
+            } finally {
+                permits.release();
+            }
+            if (status == AsyncPaginationUtils.HTTP_TOO_MANY_REQUESTS) {
+                throttled.mark();
+            }
+            if (status == AsyncPaginationUtils.HTTP_TOO_MANY_REQUESTS || status == TIMED_OUT) {
+                window = Math.max(1, window / 2);
+            }
+            if (status == AsyncPaginationUtils.HTTP_TOO_MANY_REQUESTS || status == TIMED_OUT || status >= 500) {
+                retry(page, status == AsyncPaginationUtils.HTTP_TOO_MANY_REQUESTS ? retryAfterMillis(response) : 0);
+            } else {
+                logger.info("Not retrying page at offset {} - status {}", page.func.getOffset(), status);
+            }
+            if (response != null) {
+                response.close();
+            }
+        }
+
+        private void retry(Page<T> page, long retryAfterMillis) {
+            long now = System.nanoTime();
+            if (retryAfterMillis > 0) {
+                pausedUntil = Math.max(pausedUntil, now + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis));
+            }
+            if (page.attempts >= config.getMaxAttempts() || retried >= budget()) {
+                abandoned.mark();
+                Deadline.current().shortfall();
+                logger.info("Giving up on page at offset {} after {} attempts, {} retries used", page.func.getOffset(), page.attempts, retried);
+                return;
+            }
+            retried++;
+            page.notBefore = now + TimeUnit.MILLISECONDS.toNanos(Math.max(retryAfterMillis, backoffMillis(page.attempts)));
+            pending.add(page);
+        }
+    }
+
+    /**
+     * Full jitter: anywhere up to the exponential backoff for the attempt, so retries from
+     * concurrent paginations spread out rather than arriving together.
+     */
+    long backoffMillis(int attempts) {
+        long ceiling = Math.min(config.getMaxBackoffMillis(), config.getBaseBackoffMillis() << Math.min(attempts - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    static long retryAfterMillis(Response response) {
+        String retryAfter = response == null ? null : response.getHeaderString("Retry-After");
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static final class Page<T> {
+        private final FuncTuple<T> func;
+        private final SpotifyDetails details;
+        private int attempts;
+        private long notBefore = Long.MIN_VALUE;
+        private Future<T> future;
+
+        private Page(FuncTuple<T> func, SpotifyDetails details) {
+            this.func = func;
+            this.details = details;
+        }
+    }
+}
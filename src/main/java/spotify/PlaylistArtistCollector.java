@@ -0,0 +1,93 @@
+package spotify;
+
+import spotify.domain.PlaylistArtists;
+import spotify.domain.SpotifyPlaylist;
+import spotify.domain.SpotifyPlaylistTracksResponse;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the artists of one user's playlists during a pagination run. Playlists found in the
+ * {@link PlaylistCache} are counted straight away; the rest as their track pages arrive, and each
+ * of those is cached once all of its pages are in, so a playlist with a failed page is paged
+ * again next time. Not thread safe, pages are handed over by the thread running the pagination.
+ */
+final class PlaylistArtistCollector {
+    private final PlaylistCache cache;
+    private final ArtistCounter counter;
+    private final Map<SpotifyPlaylist, Paging> paging = new IdentityHashMap<>();
+    private int cached;
+
+    PlaylistArtistCollector(PlaylistCache cache, ArtistCounter counter) {
+        this.cache = cache;
+        this.counter = counter;
+    }
+
+    /**
+     * Counts the artists of the playlists that are cached.
+     *
+     * @return the playlists whose tracks must be paged
+     */
+    List<SpotifyPlaylist> uncached(List<SpotifyPlaylist> playlists) {
+        List<SpotifyPlaylist> cacheable = new ArrayList<>();
+        List<SpotifyPlaylist> uncached = new ArrayList<>();
+        for (SpotifyPlaylist playlist : playlists) {
+            (PlaylistCache.cacheable(playlist) ? cacheable : uncached).add(playlist);
+        }
+        List<PlaylistArtists> hits = cache.get(cacheable);
+        for (int i = 0; i < cacheable.size(); i++) {
+            if (hits.get(i) == null) {
+                uncached.add(cacheable.get(i));
+            } else {
+                counter.add(hits.get(i));
+                cached++;
+            }
+        }
+        return uncached;
+    }
+
+    /**
+     * @param pages how many pages the playlist has, as given by its first page
+     */
+    void expect(SpotifyPlaylist playlist, int pages) {
+        paging.put(playlist, new Paging(pages, PlaylistCache.cacheable(playlist) ? new ArtistCounter() : null));
+    }
+
+    void add(SpotifyPlaylist playlist, SpotifyPlaylistTracksResponse page) {
+        Paging state = paging.get(playlist);
+        if (state == null) {
+            return;
+        }
+        counter.addTracks(page.getItems());
+        if (state.playlist == null) {
+            return;
+        }
+        state.playlist.addTracks(page.getItems());
+        if (++state.received == state.pages) {
+            cache.put(playlist, state.playlist.toPlaylistArtists());
+            state.playlist = null;
+        }
+    }
+
+    int cached() {
+        return cached;
+    }
+
+    int paged() {
+        return paging.size();
+    }
+
+    private static final class Paging {
+        private final int pages;
+        private ArtistCounter playlist;
+        private int received;
+
+        private Paging(int pages, ArtistCounter playlist) {
+            this.pages = pages;
+            this.playlist = playlist;
+        }
+    }
+}
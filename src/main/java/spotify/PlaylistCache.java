@@ -0,0 +1,55 @@
+package spotify;
+
+import cache.CheckerCache;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import service.config.SpotifyConfig;
+import spotify.domain.PlaylistArtists;
+import spotify.domain.SpotifyPlaylist;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static cache.CacheKeyPrefix.PLAYLIST;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The artists of playlists, shared between every user who follows them. Entries are keyed by the
+ * playlist's snapshot id as well as its id, so an edited playlist misses and is paged again.
+ */
+@Singleton
+public class PlaylistCache {
+    // Bumped whenever PlaylistArtists changes shape, so entries in an older shape are never read
+    private static final String VERSION = "v2";
+
+    private final CheckerCache cache;
+    private final int ttlSeconds;
+
+    @Inject
+    public PlaylistCache(CheckerCache cache, SpotifyConfig config) {
+        this.cache = cache;
+        this.ttlSeconds = (int) TimeUnit.DAYS.toSeconds(config.getPlaylistTtlDays());
+    }
+
+    /**
+     * @return the cached artists of each playlist, null for those not cached
+     */
+    public List<PlaylistArtists> get(List<SpotifyPlaylist> playlists) {
+        return cache.getAll(playlists.stream().map(PlaylistCache::key).collect(toList()), PLAYLIST, PlaylistArtists.class);
+    }
+
+    public void put(SpotifyPlaylist playlist, PlaylistArtists artists) {
+        cache.put(key(playlist), artists, PLAYLIST, ttlSeconds);
+    }
+
+    /**
+     * Playlists without a snapshot id can't be told apart from their edits, so they are not cached.
+     */
+    public static boolean cacheable(SpotifyPlaylist playlist) {
+        return playlist.getId() != null && playlist.getSnapshotId() != null;
+    }
+
+    private static String key(SpotifyPlaylist playlist) {
+        return VERSION + ":" + playlist.getId() + ":" + playlist.getSnapshotId();
+    }
+}
@@ -1,8 +1,11 @@
 package spotify;
 
+import client.Async;
+import client.Timeouts;
+import client.UpstreamClients;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import org.glassfish.jersey.client.JerseyClientBuilder;
+import pipeline.Deadline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import service.config.SpotifyConfig;
@@ -16,13 +19,14 @@ import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toList;
-import static spotify.AsyncPaginationUtils.paginateAsync;
 
 
 /**
@@ -33,21 +37,30 @@ public class SpotifySender {
     private static final Logger logger = LoggerFactory.getLogger(SpotifySender.class);
 
     private final Client client;
+    private final Timeouts timeouts;
 
     private static final String baseUrl = "https://accounts.spotify.com/api/token";
     private static final String tracksUrl = "https://api.spotify.com/v1/me/tracks";
+    // Playlist tracks come back as full track objects unless trimmed; /me/tracks has no equivalent
+    static final String playlistTrackFields = "total,items(track(artists(id,name)))";
 
     private final String clientId;
     private final String secret;
 
+    private final PaginationScheduler pagination;
+    private final PlaylistCache playlistCache;
+
     @Inject
-    public SpotifySender(SpotifyConfig config) {
+    public SpotifySender(SpotifyConfig config, UpstreamClients clients, PaginationScheduler pagination, PlaylistCache playlistCache) {
         clientId = config.getClientId();
         secret = config.getSecret();
-        client = JerseyClientBuilder.newClient();
+        client = clients.spotify();
+        timeouts = clients.spotifyTimeouts();
+        this.pagination = pagination;
+        this.playlistCache = playlistCache;
     }
 
-    public AccessToken getAuthToken(final String authCode, final String redirectUrl) {
+    public CompletableFuture<AccessToken> getAuthTokenAsync(final String authCode, final String redirectUrl) {
         WebTarget resource = client.target(baseUrl);
         MultivaluedMap<String, String> request = new MultivaluedHashMap<>();
         request.add("grant_type", "authorization_code");
@@ -55,14 +68,31 @@ public class SpotifySender {
         request.add("redirect_uri", redirectUrl);
         request.add("client_id", clientId);
         request.add("client_secret", secret);
-        return resource.request(MediaType.APPLICATION_FORM_URLENCODED_TYPE).accept(MediaType.APPLICATION_JSON_TYPE)
-                .post(Entity.form(request), AccessToken.class);
+        Deadline.current().check("spotify");
+        return Async.post(timeouts.bound(resource.request(MediaType.APPLICATION_FORM_URLENCODED_TYPE).accept(MediaType.APPLICATION_JSON_TYPE)),
+                Entity.form(request), AccessToken.class);
+    }
+
+    public CompletableFuture<AccessToken> refreshAuthTokenAsync(final String refreshToken) {
+        WebTarget resource = client.target(baseUrl);
+        MultivaluedMap<String, String> request = new MultivaluedHashMap<>();
+        request.add("grant_type", "refresh_token");
+        request.add("refresh_token", refreshToken);
+        request.add("client_id", clientId);
+        request.add("client_secret", secret);
+        Deadline.current().check("spotify");
+        return Async.post(timeouts.bound(resource.request(MediaType.APPLICATION_FORM_URLENCODED_TYPE).accept(MediaType.APPLICATION_JSON_TYPE)),
+                Entity.form(request), AccessToken.class);
     }
 
 
     // Use limit and offset to paginate
-    public List<SpotifyTracksResponse> getSavedTracks(final String accessCode) {
-        return paginateAsync(this::savedTracksRequest,SpotifyTracksResponse.class, new SpotifyDetails(accessCode), 50);
+    public void countSavedTrackArtists(final String accessCode, ArtistCounter counter) {
+        pagination.forEachPage(Collections.singletonList(new FuncTuple<>(this::savedTracksRequest, 0)), SpotifyTracksResponse.class, new SpotifyDetails(accessCode),
+                (page, response) -> {
+                    counter.addTracks(response.getItems());
+                    return AsyncPaginationUtils.remainingPages(page, response, 50);
+                });
     }
 
 
@@ -71,55 +101,66 @@ public class SpotifySender {
                 .queryParam("limit", "50")
                 .queryParam("offset", String.valueOf(retrieved));
 
-        return resource.request().header("Authorization", "Bearer " + details.getAccessCode()).accept(MediaType.APPLICATION_JSON_TYPE).async()
+        return timeouts.bound(resource.request().header("Authorization", "Bearer " + details.getAccessCode()).accept(MediaType.APPLICATION_JSON_TYPE)).async()
                 .get();
     }
 
-    private UserProfile getUserId(final String accessCode) {
+    public CompletableFuture<UserProfile> getUserProfileAsync(final String accessCode) {
         WebTarget resource = client.target("https://api.spotify.com/v1/me");
-        return resource.request().header("Authorization", "Bearer " + accessCode).accept(MediaType.APPLICATION_JSON_TYPE)
-                .get(UserProfile.class);
+        Deadline.current().check("spotify");
+        return Async.get(timeouts.bound(resource.request().header("Authorization", "Bearer " + accessCode).accept(MediaType.APPLICATION_JSON_TYPE)),
+                UserProfile.class);
     }
 
 
-    public List<SpotifyPlaylistTracksResponse> getPlayListTracks(String accessCode, boolean externalPlaylistsIncluded) {
-        UserProfile userId = getUserId(accessCode);
-        List<SpotifyPlaylist> playlists = getPlaylists(accessCode, userId.getId());
-        logger.info("Playlists for : " + userId.getId() + " :: " + playlists.stream().map(x -> x.getId()).collect(toList()));
-        return getTracksFromPlaylists(accessCode,userId.getId(),playlists, externalPlaylistsIncluded);
+    /**
+     * Pages through the user's playlists and their tracks in one run. Each page of playlists
+     * queues the first page of tracks of every playlist on it that isn't in the
+     * {@link PlaylistCache}, so track fetching starts before the last playlists are known.
+     */
+    public void countPlaylistArtists(SpotifyUser user, boolean externalPlaylistsIncluded, ArtistCounter counter) {
+        PlaylistArtistCollector collector = new PlaylistArtistCollector(playlistCache, counter);
+        FuncTuple<Response> playlists = new FuncTuple<>(this::playlistsRequest, 0, new SpotifyDetails(user.getAccessToken(), user.getUserId()), SpotifyPlaylistResponse.class);
+        pagination.forEachPage(Collections.singletonList(playlists), SpotifyResponse.class, null,
+                (page, response) -> followUps(page, response, externalPlaylistsIncluded, collector));
+        logger.info("Playlists for : {} :: {} paged, {} cached", user.getUserId(), collector.paged(), collector.cached());
     }
 
-
-    private List<SpotifyPlaylist> getPlaylists(final String accessCode, final String userId) {
-        SpotifyPlaylistResponse playlistResponse = getPlaylistResponse(0, new SpotifyDetails(accessCode, userId));
-        return playlistResponse.getItems();
+    private List<FuncTuple<Response>> followUps(FuncTuple<Response> page, SpotifyResponse response, boolean externalPlaylistsIncluded,
+                                                PlaylistArtistCollector collector) {
+        SpotifyDetails details = page.getDetails();
+        if (response instanceof SpotifyPlaylistTracksResponse) {
+            List<FuncTuple<Response>> remaining = AsyncPaginationUtils.remainingPages(page, response, 100);
+            if (page.getOffset() == 0) {
+                collector.expect(details.getPlaylist(), 1 + remaining.size());
+            }
+            collector.add(details.getPlaylist(), (SpotifyPlaylistTracksResponse) response);
+            return remaining;
+        }
+        List<FuncTuple<Response>> next = new ArrayList<>(AsyncPaginationUtils.remainingPages(page, response, 50));
+        List<SpotifyPlaylist> used = ((SpotifyPlaylistResponse) response).getItems().stream()
+                .filter(p -> shouldUsePlaylist(p, details.getUserId(), externalPlaylistsIncluded))
+                .collect(toList());
+        collector.uncached(used).stream()
+                .map(p -> new FuncTuple<>(this::getSpotifyPlaylistTracksResponse, 0, new SpotifyDetails(details.getAccessCode(), p, details.getUserId()), SpotifyPlaylistTracksResponse.class))
+                .forEach(next::add);
+        return next;
     }
 
-    private SpotifyPlaylistResponse getPlaylistResponse(int offset, SpotifyDetails details) {
+    private Future<Response> playlistsRequest(int offset, SpotifyDetails details) {
         WebTarget resource = client.target("https://api.spotify.com/v1/users/" + details.getUserId() + "/playlists")
                 .queryParam("limit", "50")
                 .queryParam("offset", String.valueOf(offset));
-        return resource.request().header("Authorization", "Bearer " + details.getAccessCode()).accept(MediaType.APPLICATION_JSON_TYPE)
-                .get(SpotifyPlaylistResponse.class);
-    }
-
-    private List<SpotifyPlaylistTracksResponse> getTracksFromPlaylists(final String accessCode, final String userId,
-                                                                       final List<SpotifyPlaylist> playlists, boolean externalPlaylistsIncluded) {
-        return playlists.stream()
-                .filter(p -> shouldUsePlaylist(p, userId, externalPlaylistsIncluded))
-                .flatMap(p -> paginateAsync(this::getSpotifyPlaylistTracksResponse,
-                        SpotifyPlaylistTracksResponse.class,
-                        new SpotifyDetails(accessCode, p, userId), 100)
-                        .stream())
-                .collect(toList());
+        return timeouts.bound(resource.request().header("Authorization", "Bearer " + details.getAccessCode()).accept(MediaType.APPLICATION_JSON_TYPE)).async().get();
     }
 
     private Future<Response> getSpotifyPlaylistTracksResponse(int retrieved, SpotifyDetails details) {
         WebTarget resource =
                 client.target("https://api.spotify.com/v1/users/" + details.getPlaylist().getOwner().getId() + "/playlists/" + details.getPlaylist().getId() + "/tracks")
                         .queryParam("limit", "100")
-                        .queryParam("offset", String.valueOf(retrieved));
-        return resource.request().header("Authorization", "Bearer " + details.getAccessCode()).accept(MediaType.APPLICATION_JSON_TYPE).async().get();
+                        .queryParam("offset", String.valueOf(retrieved))
+                        .queryParam("fields", playlistTrackFields);
+        return timeouts.bound(resource.request().header("Authorization", "Bearer " + details.getAccessCode()).accept(MediaType.APPLICATION_JSON_TYPE)).async().get();
     }
 
     private boolean shouldUsePlaylist(SpotifyPlaylist p, String userId, boolean externalPlaylistsIncluded) {
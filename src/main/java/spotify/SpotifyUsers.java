@@ -0,0 +1,142 @@
+package spotify;
+
+import cache.CacheKeyPrefix;
+import cache.CheckerCache;
+import cache.JedisFactory;
+import client.Async;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pipeline.Deadline;
+import redis.clients.jedis.Jedis;
+import service.config.SpotifyConfig;
+import spotify.domain.AccessToken;
+import spotify.domain.SpotifyUser;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static cache.CacheKeyPrefix.SPOTIFYSESSION;
+
+/**
+ * Resolves the single use authorization code of a sign in to the Spotify user id, so everything
+ * derived from the user's library can be cached under that id and found again on their next
+ * visit. The session is cached by authorization code, and the refresh token is kept per user id
+ * to mint a new access token when a cached one has expired.
+ */
+@Singleton
+public class SpotifyUsers {
+    private static final Logger logger = LoggerFactory.getLogger(SpotifyUsers.class);
+    private static final long EXPIRY_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final SpotifySender spotifySender;
+    private final CheckerCache cache;
+    private final JedisFactory jedisFactory;
+    private final int refreshTokenTtlSeconds;
+
+    @Inject
+    public SpotifyUsers(SpotifySender spotifySender, CheckerCache cache, JedisFactory jedisFactory, SpotifyConfig config) {
+        this.spotifySender = spotifySender;
+        this.cache = cache;
+        this.jedisFactory = jedisFactory;
+        this.refreshTokenTtlSeconds = (int) TimeUnit.DAYS.toSeconds(config.getRefreshTokenTtlDays());
+    }
+
+    /**
+     * Resolves the user without a thread waiting on Spotify. A cached session whose access token
+     * is still valid completes at once, an expired one is refreshed, and otherwise the code is
+     * exchanged for a token and the token for the user's profile.
+     */
+    public CompletableFuture<SpotifyUser> resolveAsync(String authCode, String redirectUrl) {
+        SpotifyUser user = cached(authCode);
+        if (user == null) {
+            CompletableFuture<SpotifyUser> signIn = signInAsync(authCode, redirectUrl);
+            return Async.cancelling(signIn.thenApply(signedIn -> store(authCode, signedIn)), signIn);
+        }
+        if (System.currentTimeMillis() + EXPIRY_MARGIN_MILLIS < user.getExpiresAt()) {
+            return CompletableFuture.completedFuture(user);
+        }
+        CompletableFuture<SpotifyUser> refresh = refreshAsync(user.getUserId());
+        return Async.cancelling(refresh.thenApply(refreshed -> refreshed == null ? user : store(authCode, refreshed)), refresh);
+    }
+
+    /**
+     * @return the user of a cached session, whether or not its access token is still valid, or
+     * null if the session isn't cached
+     */
+    public SpotifyUser cached(String authCode) {
+        return cache.get(authCode, SPOTIFYSESSION, SpotifyUser.class);
+    }
+
+    private SpotifyUser store(String authCode, SpotifyUser user) {
+        cache.put(authCode, user, SPOTIFYSESSION);
+        return user;
+    }
+
+    /**
+     * @return the user with an access token minted from their stored refresh token, or null if
+     * there is none
+     */
+    private CompletableFuture<SpotifyUser> refreshAsync(String userId) {
+        String refreshToken = loadRefreshToken(userId);
+        if (refreshToken == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<AccessToken> request = spotifySender.refreshAuthTokenAsync(refreshToken);
+        return Async.cancelling(request.thenApply(token -> {
+            // Spotify may rotate the refresh token, otherwise the old one stays valid
+            saveRefreshToken(userId, token.getRefreshToken() == null ? refreshToken : token.getRefreshToken());
+            return user(userId, token);
+        }), request);
+    }
+
+    private CompletableFuture<SpotifyUser> signInAsync(String authCode, String redirectUrl) {
+        // The profile is asked for on the client's thread, which has no deadline of its own
+        Deadline deadline = Deadline.current();
+        CompletableFuture<AccessToken> request = spotifySender.getAuthTokenAsync(authCode, redirectUrl);
+        return Async.cancelling(request.thenCompose(token -> {
+            try (Deadline.Scope ignored = deadline.install()) {
+                return spotifySender.getUserProfileAsync(token.getAccessToken()).thenApply(profile -> {
+                    if (token.getRefreshToken() != null) {
+                        saveRefreshToken(profile.getId(), token.getRefreshToken());
+                    }
+                    return user(profile.getId(), token);
+                });
+            }
+        }), request);
+    }
+
+    private static SpotifyUser user(String userId, AccessToken token) {
+        return new SpotifyUser(userId, token.getAccessToken(), System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(expiresInSeconds(token)));
+    }
+
+    private static long expiresInSeconds(AccessToken token) {
+        try {
+            return token.getExpiresIn() == null ? 0 : Long.parseLong(token.getExpiresIn());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private String loadRefreshToken(String userId) {
+        try (Jedis jedis = jedisFactory.newJedis()) {
+            return jedis.get(redisKey(userId));
+        } catch (Exception e) {
+            logger.error("Unable to connect to cache - {} -- {}", e.getClass(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void saveRefreshToken(String userId, String refreshToken) {
+        try (Jedis jedis = jedisFactory.newJedis()) {
+            jedis.setex(redisKey(userId), refreshTokenTtlSeconds, refreshToken);
+        } catch (Exception e) {
+            logger.error("Unable to connect to cache - {} -- {}", e.getClass(), e.getMessage());
+        }
+    }
+
+    static String redisKey(String userId) {
+        return CacheKeyPrefix.SPOTIFYREFRESH + userId;
+    }
+}
@@ -9,12 +9,31 @@ import java.util.function.BiFunction;
 public class FuncTuple<T> {
     private BiFunction<Integer, SpotifyDetails,  Future<T>> func;
     private int offset;
+    private SpotifyDetails details;
+    private Class<? extends SpotifyResponse> entityClass;
 
     public FuncTuple(BiFunction<Integer, SpotifyDetails, Future<T>> func, int offset) {
         this.func = func;
         this.offset = offset;
     }
 
+    public FuncTuple(BiFunction<Integer, SpotifyDetails, Future<T>> func, int offset, SpotifyDetails details) {
+        this(func, offset);
+        this.details = details;
+    }
+
+    public FuncTuple(BiFunction<Integer, SpotifyDetails, Future<T>> func, int offset, SpotifyDetails details, Class<? extends SpotifyResponse> entityClass) {
+        this(func, offset, details);
+        this.entityClass = entityClass;
+    }
+
+    /**
+     * @return the same request for another page
+     */
+    public FuncTuple<T> atOffset(int offset) {
+        return new FuncTuple<>(func, offset, details, entityClass);
+    }
+
     public BiFunction<Integer, SpotifyDetails, Future<T>> getFunc() {
         return func;
     }
@@ -22,4 +41,18 @@ public class FuncTuple<T> {
     public int getOffset() {
         return offset;
     }
+
+    /**
+     * @return the details this page is fetched with, or null to use those of the pagination
+     */
+    public SpotifyDetails getDetails() {
+        return details;
+    }
+
+    /**
+     * @return the type this page is read as, or null to use that of the pagination
+     */
+    public Class<? extends SpotifyResponse> getEntityClass() {
+        return entityClass;
+    }
 }
@@ -0,0 +1,47 @@
+package spotify.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * The artists of one snapshot of a playlist as columns, with how many of its tracks each is on.
+ * Ids are null for local files.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class PlaylistArtists {
+    private String[] ids = new String[0];
+    private String[] names = new String[0];
+    private int[] counts = new int[0];
+
+    public PlaylistArtists() {
+    }
+
+    public PlaylistArtists(String[] ids, String[] names, int[] counts) {
+        this.ids = ids;
+        this.names = names;
+        this.counts = counts;
+    }
+
+    public String[] getIds() {
+        return ids;
+    }
+
+    public void setIds(String[] ids) {
+        this.ids = ids;
+    }
+
+    public String[] getNames() {
+        return names;
+    }
+
+    public void setNames(String[] names) {
+        this.names = names;
+    }
+
+    public int[] getCounts() {
+        return counts;
+    }
+
+    public void setCounts(int[] counts) {
+        this.counts = counts;
+    }
+}
@@ -15,8 +15,17 @@ public class SpotifyArtist implements BasicArtist {
         this.name = name;
     }
 
+    private String id;
     private String name;
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getName() {
         return name;
     }
@@ -10,6 +10,8 @@ public class SpotifyPlaylist {
     private String id;
     private SpotifyOwner owner;
     private String uri;
+    @JsonProperty("snapshot_id")
+    private String snapshotId;
 
     @JsonProperty("external_urls")
     private ExternalUrls externalUrls;
@@ -38,6 +40,17 @@ public class SpotifyPlaylist {
         this.uri = uri;
     }
 
+    /**
+     * @return the version of the playlist's contents, changed by every edit
+     */
+    public String getSnapshotId() {
+        return snapshotId;
+    }
+
+    public void setSnapshotId(String snapshotId) {
+        this.snapshotId = snapshotId;
+    }
+
     public ExternalUrls getExternalUrls() {
         return externalUrls;
     }
@@ -0,0 +1,60 @@
+package spotify.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * A signed in Spotify user: the stable user id that their data is cached under, and an access
+ * token for fetching it.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SpotifyUser {
+    private String userId;
+    private String accessToken;
+    private long expiresAt;
+
+    public SpotifyUser() {
+    }
+
+    public SpotifyUser(String userId, String accessToken, long expiresAt) {
+        this.userId = userId;
+        this.accessToken = accessToken;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    /**
+     * @return the key the user's data is cached under, kept apart from Last.fm usernames that
+     * share the same prefixes
+     */
+    @JsonIgnore
+    public String getCacheKey() {
+        return "spotify:" + userId;
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public void setAccessToken(String accessToken) {
+        this.accessToken = accessToken;
+    }
+
+    /**
+     * @return when the access token expires, in epoch millis
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
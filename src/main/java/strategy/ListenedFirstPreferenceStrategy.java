@@ -1,6 +1,7 @@
 package strategy;
 
 import clashfinder.domain.Event;
+import intersection.IntersectionKernel;
 import lastfm.domain.Artist;
 
 import java.util.List;
@@ -16,16 +17,8 @@ import static java.util.stream.Collectors.toList;
 public class ListenedFirstPreferenceStrategy implements PreferenceStrategy {
     @Override
     public List<Event> findOrderedInterection(Set<Event> clashfinderData, Map<String, Artist> listenedArtists, Map<String, Artist> reccoArtists) {
-        List<Event> listened = clashfinderData.stream().filter(g -> listenedArtists.containsKey(g.getName().toLowerCase()))
-                .map(e -> new Event(e, Integer.parseInt(listenedArtists.get(e.getName().toLowerCase()).getPlaycount())))
-                .map(e -> new Event(e, listenedArtists.get(e.getName().toLowerCase()).getMatch()))
-                .sorted((x, y) -> Integer.compare(y.getScrobs(), x.getScrobs()))
-                .collect(toList());
-        List<Event> recco = clashfinderData.stream().filter(g -> reccoArtists.containsKey(g.getName().toLowerCase()))
-                .map(e -> new Event(e, 0, reccoArtists.get(e.getName().toLowerCase()).getRankValue()))
-                .map(e -> new Event(e, reccoArtists.get(e.getName().toLowerCase()).getMatch()))
-                .sorted((x, y) -> Integer.compare(x.getReccorank(), y.getReccorank()))
-                .collect(toList());
+        List<Event> listened = IntersectionKernel.eventsByPlays(clashfinderData, listenedArtists);
+        List<Event> recco = IntersectionKernel.eventsByRank(clashfinderData, reccoArtists);
 
         return Stream.concat(listened.stream(),recco.stream()).distinct().collect(toList());
     }
@@ -0,0 +1,107 @@
+package alias;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Stopwatch;
+import service.config.AliasConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load time, memory footprint and lookup cost of the alias dictionary against a synthetic
+ * MusicBrainz sized export. Run manually, not part of the test suite.
+ */
+public class AliasTrieBenchmark {
+    private static final int GROUPS = 40000;
+    private static final int LOOKUPS = 1000000;
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(42);
+        List<String> lines = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int g = 0; g < GROUPS; g++) {
+            List<String> group = new ArrayList<>();
+            String base = randomName(random);
+            group.add(base);
+            group.add("the " + base);
+            if (g % 3 == 0) {
+                group.add(base.replace(' ', '.'));
+            }
+            names.addAll(group);
+            lines.add(Joiner.on('\t').join(group));
+        }
+        Path file = Files.createTempFile("aliases", ".tsv");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+
+        AliasConfig config = new AliasConfig();
+        config.setFile(file.toString());
+        Stopwatch load = Stopwatch.createStarted();
+        AliasDictionary dictionary = new AliasDictionary(config);
+        long loadMillis = load.elapsed(TimeUnit.MILLISECONDS);
+        AliasTrie trie = dictionary.getTrie();
+
+        Map<String, List<String>> hashMap = new HashMap<>();
+        for (String line : lines) {
+            String[] group = line.split("\t");
+            for (String name : group) {
+                List<String> others = new ArrayList<>();
+                for (String other : group) {
+                    if (!other.equals(name)) {
+                        others.add(other);
+                    }
+                }
+                hashMap.put(name, others);
+            }
+        }
+
+        long hits = 0;
+        Stopwatch lookup = Stopwatch.createStarted();
+        for (int i = 0; i < LOOKUPS; i++) {
+            String name = i % 2 == 0 ? names.get(random.nextInt(names.size())) : randomName(random);
+            hits += trie.aliasesOf(name).size();
+        }
+        long lookupNanos = lookup.elapsed(TimeUnit.NANOSECONDS);
+
+        System.out.println("aliases: " + trie.nameCount() + " groups: " + trie.groupCount() + " trie nodes: " + trie.nodeCount());
+        System.out.println("load: " + loadMillis + " ms");
+        System.out.println("trie footprint: ~" + trie.estimatedBytes() / 1024 + " KB");
+        System.out.println("HashMap<String,List<String>> footprint: ~" + estimateHashMapBytes(hashMap) / 1024 + " KB");
+        System.out.println("lookup: " + lookupNanos / LOOKUPS + " ns/op (" + hits + " aliases resolved)");
+        Files.delete(file);
+    }
+
+    private static String randomName(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int words = 1 + random.nextInt(3);
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                builder.append(' ');
+            }
+            int length = 3 + random.nextInt(7);
+            for (int c = 0; c < length; c++) {
+                builder.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return builder.toString();
+    }
+
+    // 64 bit JVM with compressed oops: entry 32, String 24 + char[] 16 + 2/char, ArrayList 24 + Object[] 16 + 4/ref
+    private static long estimateHashMapBytes(Map<String, List<String>> map) {
+        long bytes = 48 + 16 + 4L * Integer.highestOneBit(map.size() * 2);
+        for (Map.Entry<String, List<String>> entry : map.entrySet()) {
+            bytes += 32 + 40 + 2L * entry.getKey().length();
+            bytes += 40 + 4L * entry.getValue().size();
+            for (String alias : entry.getValue()) {
+                bytes += 40 + 2L * alias.length();
+            }
+        }
+        return bytes;
+    }
+}
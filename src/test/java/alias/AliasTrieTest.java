@@ -0,0 +1,72 @@
+package alias;
+
+import org.testng.annotations.Test;
+import service.config.AliasConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.testng.Assert.*;
+
+public class AliasTrieTest {
+
+    @Test
+    public void resolvesEveryOtherNameInGroup() {
+        AliasTrie trie = AliasTrie.build(asList(asList("OMD", "Orchestral Manoeuvres in the Dark", "o.m.d.")));
+
+        assertEquals(new HashSet<>(trie.aliasesOf("omd")), new HashSet<>(asList("orchestral manoeuvres in the dark", "o.m.d.")));
+        assertEquals(new HashSet<>(trie.aliasesOf("o.m.d.")), new HashSet<>(asList("orchestral manoeuvres in the dark", "omd")));
+    }
+
+    @Test
+    public void prefixesAndUnknownNamesHaveNoAliases() {
+        AliasTrie trie = AliasTrie.build(asList(asList("elo", "electric light orchestra")));
+
+        assertTrue(trie.aliasesOf("el").isEmpty());
+        assertTrue(trie.aliasesOf("electric").isEmpty());
+        assertTrue(trie.aliasesOf("genesis").isEmpty());
+        assertTrue(trie.aliasesOf("").isEmpty());
+    }
+
+    @Test
+    public void groupsSharingANameAreMerged() {
+        AliasTrie trie = AliasTrie.build(asList(asList("elo", "electric light orchestra"), asList("e.l.o.", "elo")));
+
+        assertEquals(new HashSet<>(trie.aliasesOf("e.l.o.")), new HashSet<>(asList("elo", "electric light orchestra")));
+        assertEquals(trie.groupCount(), 1);
+        assertEquals(trie.nameCount(), 3);
+    }
+
+    @Test
+    public void dictionaryReloadsModifiedFile() throws Exception {
+        Path file = Files.createTempFile("aliases", ".tsv");
+        Files.write(file, Arrays.asList("omd\torchestral manoeuvres in the dark"), StandardCharsets.UTF_8);
+        AliasConfig config = new AliasConfig();
+        config.setFile(file.toString());
+        AliasDictionary dictionary = new AliasDictionary(config);
+
+        assertEquals(dictionary.aliasesOf("omd"), asList("orchestral manoeuvres in the dark"));
+        assertFalse(dictionary.reloadIfChanged());
+
+        Files.write(file, Arrays.asList("# comment", "elo\telectric light orchestra"), StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+
+        assertTrue(dictionary.reloadIfChanged());
+        assertTrue(dictionary.aliasesOf("omd").isEmpty());
+        assertEquals(dictionary.aliasesOf("elo"), asList("electric light orchestra"));
+        Files.delete(file);
+    }
+
+    @Test
+    public void builtInDictionaryLoaded() {
+        List<String> aliases = AliasDictionary.builtIn().aliasesOf("elo");
+
+        assertTrue(aliases.contains("electric light orchestra"));
+    }
+}
@@ -9,14 +9,19 @@ import org.testng.annotations.Test;
 import lastfm.domain.Artist;
 import lastfm.domain.Response;
 import lastfm.domain.TopArtists;
+import pipeline.Deadline;
 import redis.clients.jedis.Jedis;
 
 import java.util.Arrays;
+import java.util.List;
 
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 
 public class CheckerCacheTest {
@@ -45,6 +50,21 @@ public class CheckerCacheTest {
         assertEquals(result.getTopartists().getArtist(), createResponse().getTopartists().getArtist());
     }
 
+    @Test
+    public void getReturnsNullWithoutLookingUp() {
+        Jedis jedis = mock(Jedis.class);
+        when(jedisFactory.newJedis()).thenReturn(jedis);
+
+        assertNull(checkerCache.get(key, prefix, Response.class));
+    }
+
+    @Test
+    public void getReturnsNullWhenCacheIsUnavailable() {
+        when(jedisFactory.newJedis()).thenThrow(new RuntimeException());
+
+        assertNull(checkerCache.get(key, prefix, Response.class));
+    }
+
     @Test
     public void fallsbackWhenKeyNotFound() {
         Jedis jedis = mock(Jedis.class);
@@ -81,7 +101,86 @@ public class CheckerCacheTest {
         verify(jedis).expire(prefix + key, 3000);
     }
 
+    @Test
+    public void resultCutShortByTheDeadlineIsNotStored() {
+        Jedis jedis = mock(Jedis.class);
+        when(jedisFactory.newJedis()).thenReturn(jedis);
+        when(jedis.get(prefix + key)).thenReturn("");
+        Response response = createResponse();
+
+        Response result;
+        try (Deadline.Scope ignored = Deadline.after(10000).install()) {
+            result = checkerCache.getOrLookup(key, () -> {
+                Deadline.current().shortfall();
+                return response;
+            }, prefix, Response.class);
+        }
+
+        assertSame(result, response);
+        verify(jedis, never()).set(anyString(), anyString());
+    }
+
+    @Test
+    public void lookupStoresWithoutReadingTheCache() {
+        Jedis jedis = mock(Jedis.class);
+        when(jedisFactory.newJedis()).thenReturn(jedis);
+        Response response = createResponse();
+
+        Response result = checkerCache.lookup(key, () -> response, prefix);
+
+        assertSame(result, response);
+        verify(jedis, never()).get(anyString());
+        verify(jedis).expire(prefix + key, 3000);
+    }
 
+    @Test
+    public void lookupCutShortByTheDeadlineIsNotStored() {
+        Response response = createResponse();
+
+        Response result;
+        try (Deadline.Scope ignored = Deadline.after(10000).install()) {
+            result = checkerCache.lookup(key, () -> {
+                Deadline.current().shortfall();
+                return response;
+            }, prefix);
+        }
+
+        assertSame(result, response);
+        verify(jedisFactory, never()).newJedis();
+    }
+
+    @Test
+    public void replacesUnreadableCachedValue() {
+        Jedis jedis = mock(Jedis.class);
+        when(jedisFactory.newJedis()).thenReturn(jedis);
+        when(jedis.get(prefix + key)).thenReturn("{\"topartists\":");
+        Response response = createResponse();
+
+        Response result = checkerCache.getOrLookup(key, () -> response, prefix, Response.class);
+
+        assertSame(result, response);
+        verify(jedis).expire(prefix + key, 3000);
+    }
+
+    @Test
+    public void getAllLeavesMissingAndUnreadableValuesNull() {
+        Jedis jedis = mock(Jedis.class);
+        when(jedisFactory.newJedis()).thenReturn(jedis);
+        when(jedis.mget(prefix + "a", prefix + "b", prefix + "c")).thenReturn(Arrays.asList("{\"topartists\":{\"artist\":[]}}", null, "{\"topartists\":"));
+
+        List<Response> result = checkerCache.getAll(Arrays.asList("a", "b", "c"), prefix, Response.class);
+
+        assertEquals(result.get(0).getTopartists().getArtist().size(), 0);
+        assertNull(result.get(1));
+        assertNull(result.get(2));
+    }
+
+    @Test
+    public void getAllReturnsNullsWhenCacheIsDown() {
+        when(jedisFactory.newJedis()).thenThrow(new RuntimeException());
+
+        assertEquals(checkerCache.getAll(Arrays.asList("a", "b"), prefix, Response.class), Arrays.asList(null, null));
+    }
 
     private Response createResponse() {
         Response response = new Response();
@@ -0,0 +1,113 @@
+package cache;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import graph.Neighbour;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import service.config.SimilarArtistCacheConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class SimilarArtistCacheTest {
+    @Mock
+    private JedisFactory jedisFactory;
+    @Mock
+    private Jedis jedis;
+    @Mock
+    private Pipeline pipeline;
+
+    private MetricRegistry metrics;
+    private SimilarArtistCache cache;
+    private List<List<String>> loads;
+
+    @BeforeMethod
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(jedisFactory.newJedis()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        metrics = new MetricRegistry();
+        cache = new SimilarArtistCache(jedisFactory, new SimilarArtistCacheConfig(), metrics);
+        loads = new ArrayList<>();
+    }
+
+    @Test
+    public void onlyMissesAreLoaded() {
+        when(jedis.mget("SIMILARradiohead", "SIMILARmuse")).thenReturn(Arrays.asList("Muse\t1.0\nPortishead\t0.5", null));
+
+        Map<String, List<Neighbour>> result = cache.getOrLookup(Arrays.asList("Radiohead", "Muse"),
+                load(ImmutableMap.of("Muse", Arrays.asList(new Neighbour("Radiohead", 1f), new Neighbour("Placebo", 0.25f)))));
+
+        assertEquals(loads, Collections.singletonList(Collections.singletonList("Muse")));
+        assertEquals(result, ImmutableMap.of(
+                "radiohead", Arrays.asList(new Neighbour("Muse", 1f), new Neighbour("Portishead", 0.5f)),
+                "muse", Arrays.asList(new Neighbour("Radiohead", 1f), new Neighbour("Placebo", 0.25f))));
+        verify(pipeline).setex("SIMILARmuse", 604800, "Radiohead\t1.0\nPlacebo\t0.25");
+    }
+
+    @Test
+    public void entriesWithoutMatchCountAsFullMatch() {
+        when(jedis.mget("SIMILARradiohead")).thenReturn(Collections.singletonList("Muse\nPortishead"));
+
+        Map<String, List<Neighbour>> result = cache.getOrLookup(Collections.singletonList("Radiohead"), load(ImmutableMap.of()));
+
+        assertEquals(result.get("radiohead"), Arrays.asList(new Neighbour("Muse", 1f), new Neighbour("Portishead", 1f)));
+    }
+
+    @Test
+    public void nearTierServesRepeatLookups() {
+        when(jedis.mget("SIMILARradiohead")).thenReturn(Collections.singletonList(null));
+        cache.getOrLookup(Collections.singletonList("Radiohead"), load(ImmutableMap.of("Radiohead", Collections.singletonList(new Neighbour("Muse", 1f)))));
+
+        Map<String, List<Neighbour>> result = cache.getOrLookup(Collections.singletonList("RADIOHEAD"), load(ImmutableMap.of()));
+
+        assertEquals(result, ImmutableMap.of("radiohead", Collections.singletonList(new Neighbour("Muse", 1f))));
+        assertEquals(loads.size(), 1);
+        assertEquals(metrics.getMeters().get("cache.SimilarArtistCache.near-hits").getCount(), 1);
+        assertEquals(((Gauge<Double>) metrics.getGauges().get("cache.SimilarArtistCache.hit-ratio")).getValue(), 0.5);
+    }
+
+    @Test
+    public void failedLoadsAreNotCached() {
+        when(jedis.mget("SIMILARradiohead")).thenReturn(Collections.singletonList(null));
+
+        Map<String, List<Neighbour>> result = cache.getOrLookup(Collections.singletonList("Radiohead"), load(ImmutableMap.of()));
+
+        assertTrue(result.isEmpty());
+        verify(jedis, never()).pipelined();
+    }
+
+    @Test
+    public void redisUnavailableFallsBackToLoader() {
+        when(jedis.mget((String[]) anyVararg())).thenThrow(new RuntimeException());
+
+        Map<String, List<Neighbour>> result = cache.getOrLookup(Collections.singletonList("Radiohead"),
+                load(ImmutableMap.of("Radiohead", Collections.<Neighbour>emptyList())));
+
+        assertEquals(result, ImmutableMap.of("radiohead", Collections.<Neighbour>emptyList()));
+    }
+
+    private Function<List<String>, Map<String, List<Neighbour>>> load(Map<String, List<Neighbour>> available) {
+        return names -> {
+            loads.add(names);
+            return available;
+        };
+    }
+}
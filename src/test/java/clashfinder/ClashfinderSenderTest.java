@@ -0,0 +1,49 @@
+package clashfinder;
+
+import client.Async;
+import client.Timeouts;
+import client.UpstreamClients;
+import exception.FestivalNotFoundException;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.client.AsyncInvoker;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ClashfinderSenderTest {
+
+    @Test(expectedExceptions = FestivalNotFoundException.class)
+    @SuppressWarnings("unchecked")
+    public void unknownFestivalIsNotFound() {
+        Response notFound = mock(Response.class);
+        when(notFound.getStatusInfo()).thenReturn(Response.Status.NOT_FOUND);
+        when(notFound.getStatus()).thenReturn(404);
+        AsyncInvoker invoker = mock(AsyncInvoker.class);
+        when(invoker.get(any(InvocationCallback.class))).thenAnswer(invocation -> {
+            ((InvocationCallback<Response>) invocation.getArguments()[0]).completed(notFound);
+            return CompletableFuture.completedFuture(notFound);
+        });
+        Invocation.Builder builder = mock(Invocation.Builder.class);
+        when(builder.accept(any(MediaType.class))).thenReturn(builder);
+        when(builder.async()).thenReturn(invoker);
+        WebTarget target = mock(WebTarget.class);
+        when(target.request(any(MediaType.class))).thenReturn(builder);
+        Client client = mock(Client.class);
+        when(client.target(anyString())).thenReturn(target);
+        UpstreamClients clients = mock(UpstreamClients.class);
+        when(clients.clashfinder()).thenReturn(client);
+        when(clients.clashfinderTimeouts()).thenReturn(new Timeouts(1000, 1000));
+
+        Async.await(new ClashfinderSender(clients).fetchDataAsync("g", "2099"));
+    }
+}
@@ -0,0 +1,129 @@
+package client;
+
+import exception.FestivalNotFoundException;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.AsyncInvoker;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class AsyncTest {
+
+    @Test
+    public void unfinishedFutureTimesOut() throws InterruptedException {
+        CompletableFuture<String> future = Async.within(new CompletableFuture<>(), 50);
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+            return;
+        }
+        throw new AssertionError("Expected a timeout");
+    }
+
+    @Test
+    public void futureFinishingInTimeIsLeftAlone() throws InterruptedException {
+        CompletableFuture<String> future = Async.within(new CompletableFuture<>(), 50);
+        future.complete("done");
+        Thread.sleep(100);
+
+        assertEquals(future.join(), "done");
+        assertFalse(future.isCompletedExceptionally());
+    }
+
+    @Test(expectedExceptions = FestivalNotFoundException.class)
+    public void awaitRethrowsTheFailureUnwrapped() {
+        CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> {
+            throw new FestivalNotFoundException("g2099");
+        });
+        Async.await(future.thenApply(String::trim));
+    }
+
+    @Test
+    public void statusOfAnUpstreamFailure() {
+        WebApplicationException notFound = new WebApplicationException(Response.status(404).build());
+
+        assertEquals(Async.status(new CompletionException(notFound)), 404);
+        assertEquals(Async.status(new IllegalStateException()), -1);
+    }
+
+    @Test
+    public void entityOfASuccessfulResponse() {
+        Response response = mock(Response.class);
+        when(response.getStatusInfo()).thenReturn(Response.Status.OK);
+        when(response.readEntity(String.class)).thenReturn("lineup");
+
+        assertEquals(Async.get(respondingWith(response, mock(Future.class)), String.class).join(), "lineup");
+    }
+
+    @Test
+    public void unsuccessfulResponseFailsWithItsStatus() {
+        Response response = mock(Response.class);
+        when(response.getStatusInfo()).thenReturn(Response.Status.NOT_FOUND);
+        when(response.getStatus()).thenReturn(404);
+
+        CompletableFuture<String> future = Async.get(respondingWith(response, mock(Future.class)), String.class);
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(Async.status(catchError(future)), 404);
+        verify(response).close();
+    }
+
+    @Test
+    public void cancellingTheFutureCancelsTheRequest() {
+        Future<Response> request = mock(Future.class);
+        AsyncInvoker invoker = mock(AsyncInvoker.class);
+        when(invoker.get(any(InvocationCallback.class))).thenReturn(request);
+        Invocation.Builder builder = mock(Invocation.Builder.class);
+        when(builder.async()).thenReturn(invoker);
+
+        Async.get(builder, String.class).cancel(false);
+
+        verify(request).cancel(false);
+    }
+
+    @Test
+    public void cancellingADerivedFutureCancelsTheSource() {
+        CompletableFuture<String> source = new CompletableFuture<>();
+
+        Async.cancelling(source.thenApply(String::trim), source).cancel(false);
+
+        assertTrue(source.isCancelled());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Invocation.Builder respondingWith(Response response, Future<Response> request) {
+        AsyncInvoker invoker = mock(AsyncInvoker.class);
+        when(invoker.get(any(InvocationCallback.class))).thenAnswer(invocation -> {
+            ((InvocationCallback<Response>) invocation.getArguments()[0]).completed(response);
+            return request;
+        });
+        Invocation.Builder builder = mock(Invocation.Builder.class);
+        when(builder.async()).thenReturn(invoker);
+        return builder;
+    }
+
+    private static Throwable catchError(CompletableFuture<?> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            return e;
+        }
+        throw new AssertionError("Expected a failure");
+    }
+}
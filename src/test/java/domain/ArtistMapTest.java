@@ -0,0 +1,46 @@
+package domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lastfm.domain.Artist;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class ArtistMapTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void compactEncodingRoundTrips() throws Exception {
+        Map<String, Artist> map = new HashMap<>();
+        map.put("genesis", new Artist("Genesis", "5", 15));
+        map.put("peter gabriel, phil collins and mike rutherford", new Artist("peter gabriel, phil collins and mike rutherford", "2", 10, "Phil Collins"));
+
+        String json = mapper.writeValueAsString(new ArtistMap(map));
+        Map<String, Artist> result = mapper.readValue(json, ArtistMap.class).getArtistMap();
+
+        assertFalse(json.contains("@attr"));
+        assertEquals(result.size(), 2);
+        assertEquals(result.get("genesis").getPlaycount(), "5");
+        assertEquals(result.get("genesis").getRankValue(), new Integer(15));
+        assertNull(result.get("genesis").getMatch());
+        assertEquals(result.get("peter gabriel, phil collins and mike rutherford").getMatch(), "Phil Collins");
+    }
+
+    @Test
+    public void retainsOnlyShowKeys() {
+        Map<String, Artist> map = new HashMap<>();
+        map.put("genesis", new Artist("Genesis", "5", 15));
+        map.put("blue october", new Artist("Blue October", "10000", 1));
+        Show show = () -> "Genesis";
+
+        Map<String, Artist> result = new ArtistMap(map).retainShows(new HashSet<>(Arrays.asList(show))).getArtistMap();
+
+        assertEquals(result.keySet(), new HashSet<>(Arrays.asList("genesis")));
+    }
+}
@@ -0,0 +1,82 @@
+package graph;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class CsrGraphTest {
+
+    @Test
+    public void roundTripsThroughMappedFile() throws IOException {
+        Map<String, List<Neighbour>> adjacency = new LinkedHashMap<>();
+        adjacency.put("radiohead", Arrays.asList(new Neighbour("muse", 1f), new Neighbour("portishead", 0.5f)));
+        adjacency.put("muse", Collections.singletonList(new Neighbour("radiohead", 0.9f)));
+        adjacency.put("sigur r\u00f3s", Collections.<Neighbour>emptyList());
+        Path file = Files.createTempFile("graph", ".csr");
+
+        CsrGraph.write(adjacency, file);
+        CsrGraph graph = CsrGraph.open(file);
+
+        assertEquals(graph.nodeCount(), 4);
+        assertEquals(graph.edgeCount(), 3);
+        assertEquals(graph.neighbours("radiohead"), adjacency.get("radiohead"));
+        assertEquals(graph.neighbours("muse"), adjacency.get("muse"));
+        assertEquals(graph.neighbours("sigur r\u00f3s"), Collections.emptyList());
+        assertEquals(graph.adjacency(), adjacency);
+        Files.delete(file);
+    }
+
+    @Test
+    public void targetOnlyNodesAreNotExpanded() throws IOException {
+        CsrGraph graph = graphOf(Collections.singletonMap("radiohead", Collections.singletonList(new Neighbour("muse", 1f))));
+
+        assertEquals(graph.nodeOf("muse"), 1);
+        assertNull(graph.neighbours("muse"));
+        assertNull(graph.neighbours("coldplay"));
+    }
+
+    @Test
+    public void nodesFetchedTooLongAgoAreNotAnswered() throws IOException {
+        Map<String, List<Neighbour>> adjacency = new LinkedHashMap<>();
+        adjacency.put("radiohead", Collections.singletonList(new Neighbour("muse", 1f)));
+        adjacency.put("muse", Collections.singletonList(new Neighbour("radiohead", 0.9f)));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CsrGraph.write(adjacency, name -> name.equals("radiohead") ? 100 : 200, bytes);
+        Path file = Files.createTempFile("graph", ".csr");
+        Files.write(file, bytes.toByteArray());
+        file.toFile().deleteOnExit();
+        CsrGraph graph = CsrGraph.open(file);
+
+        assertEquals(graph.fetchedAt("radiohead"), 100);
+        assertEquals(graph.fetchedAt("coldplay"), 0);
+        assertNull(graph.neighbours("radiohead", 150));
+        assertEquals(graph.neighbours("muse", 150), adjacency.get("muse"));
+        assertEquals(graph.adjacency(150).keySet(), Collections.singleton("muse"));
+    }
+
+    @Test
+    public void emptyGraphKnowsNothing() {
+        assertNull(CsrGraph.empty().neighbours("radiohead"));
+        assertEquals(CsrGraph.empty().nodeCount(), 0);
+    }
+
+    private CsrGraph graphOf(Map<String, List<Neighbour>> adjacency) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CsrGraph.write(adjacency, bytes);
+        Path file = Files.createTempFile("graph", ".csr");
+        Files.write(file, bytes.toByteArray());
+        file.toFile().deleteOnExit();
+        return CsrGraph.open(file);
+    }
+}
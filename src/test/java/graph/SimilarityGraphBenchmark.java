@@ -0,0 +1,48 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Size and lookup time of a memory mapped graph of 100k artists with 20 similar artists each,
+ * about what Last.fm returns per artist. Run manually, not part of the test suite.
+ */
+public class SimilarityGraphBenchmark {
+    private static final int ARTISTS = 100000;
+    private static final int DEGREE = 20;
+    private static final int LOOKUPS = 500;
+
+    public static void main(String[] args) throws IOException {
+        Random random = new Random(42);
+        Map<String, List<Neighbour>> adjacency = new HashMap<>();
+        for (int i = 0; i < ARTISTS; i++) {
+            List<Neighbour> neighbours = new ArrayList<>(DEGREE);
+            for (int j = 0; j < DEGREE; j++) {
+                neighbours.add(new Neighbour("artist number " + random.nextInt(ARTISTS), 1f - j / (float) DEGREE));
+            }
+            adjacency.put("artist number " + i, neighbours);
+        }
+        Path file = Files.createTempFile("graph", ".csr");
+        long start = System.nanoTime();
+        CsrGraph.write(adjacency, file);
+        System.out.printf("wrote %d artists, %d KB in %d ms%n", ARTISTS, Files.size(file) / 1024, (System.nanoTime() - start) / 1000000);
+
+        CsrGraph graph = CsrGraph.open(file);
+        for (int round = 0; round < 5; round++) {
+            start = System.nanoTime();
+            int edges = 0;
+            for (int i = 0; i < LOOKUPS; i++) {
+                edges += graph.neighbours("artist number " + random.nextInt(ARTISTS)).size();
+            }
+            long micros = (System.nanoTime() - start) / 1000;
+            System.out.printf("%d lookups, %d edges in %d us (%.1f us per artist)%n", LOOKUPS, edges, micros, micros / (double) LOOKUPS);
+        }
+        Files.delete(file);
+    }
+}
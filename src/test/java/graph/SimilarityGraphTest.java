@@ -0,0 +1,120 @@
+package graph;
+
+import org.testng.annotations.Test;
+import service.config.SimilarityGraphConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class SimilarityGraphTest {
+    private static final long WEEK = TimeUnit.DAYS.toSeconds(7);
+
+    @Test
+    public void compactionPersistsPendingEdges() throws IOException {
+        Path dir = Files.createTempDirectory("graph");
+        SimilarityGraphConfig config = new SimilarityGraphConfig();
+        config.setFile(dir.resolve("similar.csr").toString());
+        SimilarityGraph graph = graph(config);
+
+        graph.add("Radiohead", Arrays.asList(new Neighbour("Muse", 1f), new Neighbour("Portishead", 0.5f)));
+        assertEquals(graph.neighbours("radiohead"), Arrays.asList(new Neighbour("Muse", 1f), new Neighbour("Portishead", 0.5f)));
+        graph.compact();
+        assertEquals(graph.pending(), 0);
+
+        graph.add("Muse", Collections.singletonList(new Neighbour("Radiohead", 0.9f)));
+        graph.stop();
+
+        SimilarityGraph reopened = graph(config);
+        assertEquals(reopened.neighbours("radiohead"), Arrays.asList(new Neighbour("Muse", 1f), new Neighbour("Portishead", 0.5f)));
+        assertEquals(reopened.neighbours("muse"), Collections.singletonList(new Neighbour("Radiohead", 0.9f)));
+        assertNull(reopened.neighbours("portishead"));
+    }
+
+    @Test
+    public void newerEdgesReplaceCompactedOnes() throws IOException {
+        SimilarityGraphConfig config = new SimilarityGraphConfig();
+        config.setFile(Files.createTempDirectory("graph").resolve("similar.csr").toString());
+        SimilarityGraph graph = graph(config);
+        graph.add("radiohead", Collections.singletonList(new Neighbour("muse", 1f)));
+        graph.compact();
+
+        graph.add("radiohead", Collections.singletonList(new Neighbour("thom yorke", 1f)));
+
+        assertEquals(graph.neighbours("radiohead"), Collections.singletonList(new Neighbour("thom yorke", 1f)));
+        graph.compact();
+        assertEquals(graph.neighbours("radiohead"), Collections.singletonList(new Neighbour("thom yorke", 1f)));
+    }
+
+    @Test
+    public void withoutFileGraphStaysInMemory() {
+        SimilarityGraph graph = graph(new SimilarityGraphConfig());
+        graph.add("radiohead", Collections.singletonList(new Neighbour("muse", 1f)));
+
+        graph.compact();
+
+        assertEquals(graph.pending(), 1);
+        assertEquals(graph.neighbours("radiohead"), Collections.singletonList(new Neighbour("muse", 1f)));
+    }
+
+    @Test
+    public void withoutFileGraphIsBounded() {
+        SimilarityGraphConfig config = new SimilarityGraphConfig();
+        config.setMaxPendingArtists(2);
+        SimilarityGraph graph = graph(config);
+
+        graph.add("radiohead", Collections.singletonList(new Neighbour("muse", 1f)));
+        graph.add("muse", Collections.singletonList(new Neighbour("radiohead", 1f)));
+        graph.add("portishead", Collections.singletonList(new Neighbour("massive attack", 1f)));
+
+        assertEquals(graph.pending(), 2);
+    }
+
+    @Test
+    public void edgesExpireWithTheSimilarArtistCache() {
+        AtomicLong now = new AtomicLong(TimeUnit.DAYS.toMillis(20000));
+        SimilarityGraph graph = new SimilarityGraph(new SimilarityGraphConfig(), WEEK, now::get);
+        graph.add("radiohead", Collections.singletonList(new Neighbour("muse", 1f)));
+
+        now.addAndGet(TimeUnit.DAYS.toMillis(8));
+
+        assertNull(graph.neighbours("radiohead"));
+        assertEquals(graph.pending(), 0);
+    }
+
+    @Test
+    public void compactionLeavesOutExpiredEdges() throws IOException {
+        AtomicLong now = new AtomicLong(TimeUnit.DAYS.toMillis(20000));
+        SimilarityGraphConfig config = new SimilarityGraphConfig();
+        config.setFile(Files.createTempDirectory("graph").resolve("similar.csr").toString());
+        SimilarityGraph graph = new SimilarityGraph(config, WEEK, now::get);
+        graph.add("radiohead", Collections.singletonList(new Neighbour("muse", 1f)));
+        graph.compact();
+
+        now.addAndGet(TimeUnit.DAYS.toMillis(4));
+        graph.add("muse", Collections.singletonList(new Neighbour("radiohead", 0.9f)));
+        graph.compact();
+        assertEquals(graph.neighbours("radiohead"), Collections.singletonList(new Neighbour("muse", 1f)));
+
+        now.addAndGet(TimeUnit.DAYS.toMillis(4));
+        assertNull(graph.neighbours("radiohead"));
+        assertEquals(graph.neighbours("muse"), Collections.singletonList(new Neighbour("radiohead", 0.9f)));
+        graph.add("portishead", Collections.<Neighbour>emptyList());
+        graph.compact();
+
+        SimilarityGraph reopened = new SimilarityGraph(config, WEEK, now::get);
+        assertNull(reopened.neighbours("radiohead"));
+        assertEquals(reopened.neighbours("muse"), Collections.singletonList(new Neighbour("radiohead", 0.9f)));
+    }
+
+    private static SimilarityGraph graph(SimilarityGraphConfig config) {
+        return new SimilarityGraph(config, WEEK, System::currentTimeMillis);
+    }
+}
@@ -1,6 +1,9 @@
 package intersection;
 
+import alias.AliasDictionary;
 import org.testng.annotations.Test;
+import pipeline.Deadline;
+import service.config.MatchingConfig;
 import lastfm.domain.Artist;
 import domain.Show;
 
@@ -47,6 +50,15 @@ public class ArtistMapGeneratorTest {
         assertEquals(resultArtist.getRankValue(), new Integer(10));
     }
 
+    @Test
+    public void ampersandBandMatchesWhateverItsCase() {
+        Show show = () -> "Mumford and Sons with Baaba Maal";
+        Artist artist = new Artist("mumford & sons", "2", 10);
+        Map<String, Artist> result = generator.generateFestivalMap(new HashSet<>(Arrays.asList(show)), Arrays.asList(artist)).getArtistMap();
+
+        assertTrue(result.containsKey("mumford and sons with baaba maal"));
+    }
+
     @Test
     public void partialMatchContainingSpace() {
         Show show = () -> "Peter Gabriel, Phil Collins and Mike Rutherford";
@@ -158,4 +170,97 @@ public class ArtistMapGeneratorTest {
 
         assertTrue(result.containsKey("mumford & sons"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void festivalMapOnlyKeepsShowKeys() {
+        Show show = () -> "Mumford & Sons";
+        Artist artist = new Artist("Mumford and Sons", "2", 10);
+        Artist artist1 = new Artist("Genesis", "5", 3);
+
+        Map<String, Artist> result = generator.generateFestivalMap(new HashSet<>(Arrays.asList(show)), Arrays.asList(artist, artist1)).getArtistMap();
+
+        assertEquals(result.size(), 1);
+        assertEquals(result.get("mumford & sons").getPlaycount(), "2");
+    }
+
+    @Test
+    public void knownAliasMatched() {
+        Show show = () -> "Orchestral Manoeuvres in the Dark";
+        Artist artist = new Artist("OMD", "7", 4);
+
+        Map<String, Artist> result = generator.generateFestivalMap(new HashSet<>(Arrays.asList(show)), Arrays.asList(artist)).getArtistMap();
+
+        assertEquals(result.get("orchestral manoeuvres in the dark").getPlaycount(), "7");
+    }
+
+    @Test
+    public void fuzzyMatchOnlyWhenEnabled() {
+        Show show = () -> "Florence + The Machine";
+        Artist artist = new Artist("Florence And The Machine", "12", 2);
+
+        Map<String, Artist> result = generator.generateFestivalMap(new HashSet<>(Arrays.asList(show)), Arrays.asList(artist)).getArtistMap();
+        Map<String, Artist> fuzzyResult = fuzzyGenerator().generateFestivalMap(new HashSet<>(Arrays.asList(show)), Arrays.asList(artist)).getArtistMap();
+
+        assertTrue(result.isEmpty());
+        assertEquals(fuzzyResult.get("florence + the machine").getPlaycount(), "12");
+        assertEquals(fuzzyResult.get("florence + the machine").getMatch(), "Florence And The Machine");
+    }
+
+    @Test
+    public void fuzzyMatchDoesNotOverrideExactMatch() {
+        Show show = () -> "Guns N' Roses";
+        Artist exact = new Artist("Guns N' Roses", "3", 1);
+        Artist typo = new Artist("Guns N Roses", "99", 2);
+
+        Map<String, Artist> result = fuzzyGenerator().generateFestivalMap(new HashSet<>(Arrays.asList(show)), Arrays.asList(typo, exact)).getArtistMap();
+
+        assertEquals(result.get("guns n' roses").getPlaycount(), "3");
+        assertNull(result.get("guns n' roses").getMatch());
+    }
+
+    @Test
+    public void dissimilarNamesNotFuzzyMatched() {
+        Show show = () -> "The Beatbox";
+        Artist artist = new Artist("The Beat", "2", 10);
+
+        Map<String, Artist> result = fuzzyGenerator().generateFestivalMap(new HashSet<>(Arrays.asList(show)), Arrays.asList(artist)).getArtistMap();
+
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void artistsMatchedByOtherRulesAreNotFuzzyMatched() {
+        Show club = () -> "Bombay Bicycle Club";
+        Show bicycles = () -> "Bombay Bicycles";
+        Artist artist = new Artist("Bombay Bicycle", "5", 1);
+
+        Map<String, Artist> result = fuzzyGenerator().generateFestivalMap(new HashSet<>(Arrays.asList(club, bicycles)), Arrays.asList(artist)).getArtistMap();
+
+        assertEquals(result.get("bombay bicycle club").getMatch(), "Bombay Bicycle");
+        assertNull(result.get("bombay bicycles"));
+    }
+
+    @Test
+    public void fuzzyMatchingOutOfBudgetIsAShortfall() {
+        MatchingConfig config = new MatchingConfig();
+        config.setFuzzyEnabled(true);
+        config.setFuzzyBudgetMillis(-1);
+        ArtistMapGenerator generator = new ArtistMapGenerator(AliasDictionary.builtIn(), config);
+        Show show = () -> "Florence + The Machine";
+        Deadline deadline = Deadline.after(10000);
+
+        Map<String, Artist> result;
+        try (Deadline.Scope ignored = deadline.install()) {
+            result = generator.generateFestivalMap(new HashSet<>(Arrays.asList(show)), Arrays.asList(new Artist("Florence And The Machine", "12", 2))).getArtistMap();
+        }
+
+        assertTrue(result.isEmpty());
+        assertEquals(deadline.shortfalls(), 1);
+    }
+
+    private ArtistMapGenerator fuzzyGenerator() {
+        MatchingConfig config = new MatchingConfig();
+        config.setFuzzyEnabled(true);
+        return new ArtistMapGenerator(AliasDictionary.builtIn(), config);
+    }
+}
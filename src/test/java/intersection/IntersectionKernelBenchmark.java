@@ -0,0 +1,65 @@
+package intersection;
+
+import clashfinder.domain.Event;
+import lastfm.domain.Artist;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Bytes allocated and time per intersection, comparing the previous stream pipeline with
+ * {@link IntersectionKernel}. Run manually, not part of the test suite.
+ */
+public class IntersectionKernelBenchmark {
+    private static final int EVENTS = 2500;
+    private static final int MATCHES = 400;
+    private static final int ITERATIONS = 2000;
+
+    public static void main(String[] args) {
+        Set<Event> events = new HashSet<>();
+        Map<String, Artist> artistMap = new HashMap<>();
+        for (int i = 0; i < EVENTS; i++) {
+            Event event = new Event();
+            event.setName("Artist Number " + i);
+            event.setStage("Stage " + i % 12);
+            events.add(event);
+            if (i % (EVENTS / MATCHES) == 0) {
+                artistMap.put(event.getName().toLowerCase(), new Artist(event.getName(), String.valueOf(i * 7 % 1000), i, i % 3 == 0 ? "Partial" : null));
+            }
+        }
+
+        for (int round = 0; round < 3; round++) {
+            run("stream pipeline", () -> legacyByPlays(events, artistMap));
+            run("kernel         ", () -> IntersectionKernel.eventsByPlays(events, artistMap));
+        }
+    }
+
+    private static void run(String label, Supplier<List<Event>> intersection) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long size = 0;
+        long bytesBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            size += intersection.get().size();
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+        System.out.println(label + ": " + bytes / ITERATIONS + " bytes/op, " + nanos / ITERATIONS / 1000 + " us/op (" + size / ITERATIONS + " matches)");
+    }
+
+    private static List<Event> legacyByPlays(Set<Event> clashfinderData, Map<String, Artist> artistMap) {
+        return clashfinderData.stream().filter(g -> artistMap.containsKey(g.getName().toLowerCase()))
+                .map(e -> new Event(e, Integer.parseInt(artistMap.get(e.getName().toLowerCase()).getPlaycount())))
+                .map(e -> new Event(e, artistMap.get(e.getName().toLowerCase()).getMatch()))
+                .sorted((x, y) -> Integer.compare(y.getScrobs(), x.getScrobs()))
+                .collect(toList());
+    }
+}
@@ -0,0 +1,54 @@
+package intersection;
+
+import clashfinder.domain.Event;
+import lastfm.domain.Artist;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class IntersectionKernelTest {
+
+    @Test
+    public void eventsByPlaysDescendingWithMatchString() {
+        Map<String, Artist> artists = new HashMap<>();
+        artists.put("genesis", new Artist("genesis", "9", 4));
+        artists.put("frank turner (solo)", new Artist("frank turner (solo)", "359", 1, "Frank Turner"));
+
+        List<Event> result = IntersectionKernel.eventsByPlays(events("Genesis", "Lady Gaga", "Frank Turner (Solo)"), artists);
+
+        assertEquals(result.size(), 2);
+        assertEquals(result.get(0).getName(), "Frank Turner (Solo)");
+        assertEquals(result.get(0).getScrobs(), 359);
+        assertEquals(result.get(0).getReccorank(), -1);
+        assertEquals(result.get(0).getMatchString(), "Frank Turner");
+        assertEquals(result.get(1).getName(), "Genesis");
+        assertNull(result.get(1).getMatchString());
+    }
+
+    @Test
+    public void eventsByRankAscendingAndStable() {
+        Map<String, Artist> artists = new HashMap<>();
+        artists.put("a", new Artist("a", "0", 5));
+        artists.put("b", new Artist("b", "0", -3));
+        artists.put("c", new Artist("c", "0", 5));
+
+        List<Event> result = IntersectionKernel.eventsByRank(events("a", "b", "c"), artists);
+
+        assertEquals(result.get(0).getName(), "b");
+        assertEquals(result.get(0).getReccorank(), -3);
+        assertEquals(result.get(1).getName(), "a");
+        assertEquals(result.get(2).getName(), "c");
+    }
+
+    private List<Event> events(String... names) {
+        List<Event> events = new ArrayList<>();
+        for (String name : names) {
+            Event event = new Event();
+            event.setName(name);
+            events.add(event);
+        }
+        return events;
+    }
+}
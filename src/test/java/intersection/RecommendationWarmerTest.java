@@ -0,0 +1,146 @@
+package intersection;
+
+import cache.CheckerCache;
+import com.codahale.metrics.MetricRegistry;
+import lastfm.domain.Artist;
+import lastfm.domain.Recommendations;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pipeline.Deadline;
+import service.config.WarmerConfig;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static cache.CacheKeyPrefix.RECCOMENDEDOWN;
+import static java.util.stream.Collectors.toList;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class RecommendationWarmerTest {
+    @Mock
+    private CheckerCache cache;
+    @Mock
+    private RecommendedArtistGenerator generator;
+
+    private final List<Artist> listened = Collections.singletonList(new Artist("Radiohead", "1000", 1));
+    private final Recommendations fresh = new Recommendations(Collections.singletonList(new Artist("Portishead", "2", 1)));
+    private RecommendationWarmer warmer;
+
+    @BeforeMethod
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(generator.fetchRecommendations(anyString(), anyListOf(Artist.class))).thenReturn(fresh);
+        when(cache.ttls(anyListOf(String.class), any())).thenAnswer(invocation -> {
+            List<String> users = (List<String>) invocation.getArguments()[0];
+            return users.stream().map(user -> user.equals("expiring") ? 60L : 2000L).collect(toList());
+        });
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        warmer.stop();
+    }
+
+    @Test
+    public void requestsAreAnsweredFromTheCache() {
+        Recommendations cached = new Recommendations();
+        when(cache.getOrLookup(eq("adam"), any(Supplier.class), eq(RECCOMENDEDOWN), eq(Recommendations.class))).thenReturn(cached);
+        warmer = warmer(new WarmerConfig());
+
+        assertSame(warmer.recommendations("adam", () -> listened), cached);
+    }
+
+    @Test
+    public void onlyRecommendationsCloseToExpiryAreRefreshed() {
+        warmer = warmer(new WarmerConfig());
+        warmer.recommendations("expiring", () -> listened);
+        warmer.recommendations("fresh", () -> listened);
+
+        warmer.scan();
+
+        verify(cache, timeout(1000)).put("expiring", fresh, RECCOMENDEDOWN);
+        verify(generator, timeout(1000)).fetchRecommendations("expiring", listened);
+        verify(cache, never()).put(eq("fresh"), any(), eq(RECCOMENDEDOWN));
+    }
+
+    @Test
+    public void refreshesUseTheTrackedSources() {
+        List<Artist> fetched = Collections.singletonList(new Artist("Massive Attack", "500", 1));
+        when(cache.getOrLookup(eq("expiring"), any(Supplier.class), eq(RECCOMENDEDOWN), eq(Recommendations.class)))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArguments()[1]).get());
+        warmer = warmer(new WarmerConfig());
+
+        warmer.recommendations("expiring", () -> listened, () -> fetched);
+        warmer.scan();
+
+        verify(generator).fetchRecommendations("expiring", fetched);
+        verify(generator, timeout(1000)).fetchRecommendations("expiring", listened);
+    }
+
+    @Test
+    public void incompleteRefreshKeepsTheCachedCopy() {
+        when(generator.fetchRecommendations(eq("expiring"), anyListOf(Artist.class))).thenAnswer(invocation -> {
+            Deadline.current().shortfall();
+            return fresh;
+        });
+        warmer = warmer(new WarmerConfig());
+        warmer.recommendations("expiring", () -> listened);
+
+        warmer.scan();
+
+        verify(generator, timeout(1000)).fetchRecommendations("expiring", listened);
+        verify(cache, after(200).never()).put(eq("expiring"), any(), eq(RECCOMENDEDOWN));
+    }
+
+    @Test
+    public void refreshesRunUnderADeadlineOfTheirOwn() {
+        WarmerConfig config = new WarmerConfig();
+        config.setRefreshTimeoutSeconds(60);
+        List<Deadline> seen = new CopyOnWriteArrayList<>();
+        when(generator.fetchRecommendations(eq("expiring"), anyListOf(Artist.class))).thenAnswer(invocation -> {
+            seen.add(Deadline.current());
+            return fresh;
+        });
+        warmer = warmer(config);
+        warmer.recommendations("expiring", () -> listened);
+
+        warmer.scan();
+
+        verify(cache, timeout(1000)).put("expiring", fresh, RECCOMENDEDOWN);
+        assertTrue(seen.get(0).isBounded());
+        assertTrue(seen.get(0).remainingMillis() > 30000);
+    }
+
+    @Test
+    public void usersAreNotTrackedWhenDisabled() {
+        WarmerConfig config = new WarmerConfig();
+        config.setEnabled(false);
+        warmer = warmer(config);
+        warmer.recommendations("expiring", () -> listened);
+
+        warmer.scan();
+
+        verify(cache, never()).ttls(anyListOf(String.class), any());
+    }
+
+    private RecommendationWarmer warmer(WarmerConfig config) {
+        RecommendationWarmer warmer = new RecommendationWarmer(config, cache, generator, new MetricRegistry());
+        warmer.start();
+        return warmer;
+    }
+}
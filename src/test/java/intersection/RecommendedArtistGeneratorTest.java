@@ -0,0 +1,154 @@
+package intersection;
+
+import cache.SimilarArtistCache;
+import com.codahale.metrics.MetricRegistry;
+import domain.Show;
+import graph.Neighbour;
+import graph.SimilarityGraph;
+import lastfm.LastFmSender;
+import lastfm.domain.Artist;
+import lastfm.domain.Recommendations;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import service.config.RecommendationConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class RecommendedArtistGeneratorTest {
+    @Mock
+    private LastFmSender lastFmSender;
+    @Mock
+    private SimilarArtistCache similarArtistCache;
+    @Mock
+    private SimilarityGraph similarityGraph;
+    @Mock
+    private RecommendationConfig config;
+    @Spy
+    private MetricRegistry metrics = new MetricRegistry();
+
+    @InjectMocks
+    private RecommendedArtistGenerator generator;
+
+    private final List<Artist> listened = Arrays.asList(
+            new Artist("Radiohead", "1000", 1),
+            new Artist("Muse", "10", 2),
+            new Artist("Blur", "5", 3));
+
+    @BeforeMethod
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        Map<String, List<Neighbour>> similar = new LinkedHashMap<>();
+        similar.put("radiohead", Arrays.asList(new Neighbour("Portishead", 1f), new Neighbour("Muse", 0.9f), new Neighbour("Coldplay", 0.3f)));
+        similar.put("muse", Arrays.asList(new Neighbour("Coldplay", 0.3f), new Neighbour("Placebo", 0.8f), new Neighbour("Radiohead", 1f)));
+        similar.put("blur", Arrays.asList(new Neighbour("Placebo", 0.2f), new Neighbour("Portishead", 0.1f), new Neighbour("Gorillaz", 1f)));
+        when(similarityGraph.neighbours(anyString())).thenReturn(null);
+        when(similarArtistCache.getOrLookup(anyListOf(String.class), any(Function.class))).thenReturn(similar);
+    }
+
+    @Test
+    public void frequencyKeepsArtistsSimilarToSeveralSources() {
+        when(config.getScoringMode()).thenReturn(ScoringMode.FREQUENCY);
+
+        Recommendations result = generator.fetchRecommendations("user", listened);
+
+        assertEquals(names(result), Arrays.asList("Portishead", "Coldplay", "Placebo"));
+        assertEquals(result.getArtist().get(0).getPlaycount(), "2");
+        assertEquals(result.getArtist().get(2).getRankValue().intValue(), 2);
+    }
+
+    @Test
+    public void matchWeighsByMatchScore() {
+        when(config.getScoringMode()).thenReturn(ScoringMode.MATCH);
+
+        Recommendations result = generator.fetchRecommendations("user", listened);
+
+        assertEquals(names(result), Arrays.asList("Portishead", "Placebo", "Coldplay"));
+    }
+
+    @Test
+    public void matchAndPlaycountFavoursHeavilyPlayedSources() {
+        when(config.getScoringMode()).thenReturn(ScoringMode.MATCH_AND_PLAYCOUNT);
+
+        Recommendations result = generator.fetchRecommendations("user", listened);
+
+        assertEquals(names(result), Arrays.asList("Portishead", "Coldplay", "Placebo"));
+    }
+
+    @Test
+    public void recommendationsKeepTheNameFirstSeen() {
+        when(config.getScoringMode()).thenReturn(ScoringMode.FREQUENCY);
+        Map<String, List<Neighbour>> similar = new LinkedHashMap<>();
+        similar.put("radiohead", Collections.singletonList(new Neighbour("Mumford & Sons", 1f)));
+        similar.put("muse", Collections.singletonList(new Neighbour("mumford & sons", 1f)));
+        when(similarArtistCache.getOrLookup(anyListOf(String.class), any(Function.class))).thenReturn(similar);
+
+        Recommendations result = generator.fetchRecommendations("user", listened);
+
+        assertEquals(names(result), Collections.singletonList("Mumford & Sons"));
+        Show show = () -> "Mumford and Sons with Baaba Maal";
+        Map<String, Artist> matched = new ArtistMapGenerator().generateFestivalMap(Collections.singleton(show), result.getArtist()).getArtistMap();
+        assertTrue(matched.containsKey("mumford and sons with baaba maal"));
+    }
+
+    @Test
+    public void knownArtistsAreAnsweredFromGraph() {
+        when(config.getScoringMode()).thenReturn(ScoringMode.FREQUENCY);
+        when(similarityGraph.neighbours("radiohead")).thenReturn(Arrays.asList(new Neighbour("portishead", 1f)));
+
+        generator.fetchRecommendations("user", listened);
+
+        verify(similarArtistCache).getOrLookup(eq(Arrays.asList("Muse", "Blur")), any(Function.class));
+    }
+
+    @Test
+    public void adaptiveStopsOnceTopIsStable() {
+        when(config.getScoringMode()).thenReturn(ScoringMode.FREQUENCY);
+        when(config.isAdaptive()).thenReturn(true);
+        when(config.getBatchSize()).thenReturn(5);
+        when(config.getStableTopN()).thenReturn(2);
+        when(config.getStableBatches()).thenReturn(2);
+        List<Artist> many = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            many.add(new Artist("Source " + i, "10", i));
+        }
+        when(similarArtistCache.getOrLookup(anyListOf(String.class), any(Function.class))).thenAnswer(invocation -> {
+            Map<String, List<Neighbour>> similar = new LinkedHashMap<>();
+            for (String name : (List<String>) invocation.getArguments()[0]) {
+                similar.put(name.toLowerCase(), Arrays.asList(new Neighbour("a", 1f), new Neighbour("b", 1f), new Neighbour(name + " tribute", 1f)));
+            }
+            return similar;
+        });
+
+        Recommendations result = generator.fetchRecommendations("user", many);
+
+        assertEquals(names(result), Arrays.asList("a", "b"));
+        assertEquals(result.getArtist().get(0).getPlaycount(), "15");
+        verify(similarArtistCache, times(3)).getOrLookup(anyListOf(String.class), any(Function.class));
+        assertEquals(metrics.histogram("intersection.RecommendedArtistGenerator.sources-skipped").getSnapshot().getMax(), 25);
+    }
+
+    private static List<String> names(Recommendations recommendations) {
+        return recommendations.getArtist().stream().map(Artist::getName).collect(toList());
+    }
+}
@@ -12,14 +12,19 @@ import lastfm.domain.Artist;
 import lastfm.domain.Recommendations;
 import lastfm.domain.Response;
 import lastfm.domain.TopArtists;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import pipeline.StageExecutor;
+import service.config.PipelineConfig;
 import spotify.SpotifySender;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
 import static org.mockito.Matchers.any;
@@ -39,6 +44,8 @@ public class RumourIntersectionFinderTest {
     private CheckerCache cache;
     @Mock
     private ArtistMapGenerator artistMapGenerator;
+    @Spy
+    private StageExecutor stages = new StageExecutor(MoreExecutors.newDirectExecutorService(), new PipelineConfig());
 
     @InjectMocks
     private RumourIntersectionFinder rumourIntersectionFinder;
@@ -55,7 +62,7 @@ public class RumourIntersectionFinderTest {
     @Test
     public void correctIntersectionCalculate() throws FestivalConnectionException {
         Set<Act> festivalData = generateFestivalData();
-        when(efestivalSender.getFestivalData(festival,year)).thenReturn(festivalData);
+        when(efestivalSender.getFestivalDataAsync(festival,year)).thenReturn(CompletableFuture.completedFuture(festivalData));
         Response response = generateLastFmData();
         when(cache.getOrLookup(eq(username),any(Supplier.class), eq(CacheKeyPrefix.LISTENED),any(Class.class))).thenReturn(response);
         when(artistMapGenerator.generateLastFmMap(festivalData,response.getTopartists().getArtist())).thenReturn(getGenerateLastFmMap());
@@ -68,7 +75,7 @@ public class RumourIntersectionFinderTest {
     @Test
     public void correctRecommendedIntersectionCalculate() throws FestivalConnectionException {
         Set<Act> festivalData = generateFestivalData();
-        when(efestivalSender.getFestivalData(festival,year)).thenReturn(festivalData);
+        when(efestivalSender.getFestivalDataAsync(festival,year)).thenReturn(CompletableFuture.completedFuture(festivalData));
         Response response = generateRecommendedLastFmData();
         when(cache.getOrLookup(eq(token),any(Supplier.class), eq(CacheKeyPrefix.RECCOMENDEDOWN),any(Class.class))).thenReturn(response);
         when(artistMapGenerator.generateLastFmMap(festivalData,response.getRecommendations().getArtist())).thenReturn(getGenerateLastFmMap());
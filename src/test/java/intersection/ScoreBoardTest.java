@@ -0,0 +1,83 @@
+package intersection;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+public class ScoreBoardTest {
+
+    @Test
+    public void selectsBestScoresFirst() {
+        ScoreBoard board = new ScoreBoard(4);
+        board.add("Muse", 1);
+        board.add("Genesis", 2);
+        board.add("Muse", 2);
+        board.add("Yes", 0.5);
+
+        assertEquals(names(board, board.top(2, 1, x -> true)), Arrays.asList("Muse", "Genesis"));
+        assertEquals(board.count(board.top(1, 1, x -> true)[0]), 2);
+        assertEquals(board.score(board.top(1, 1, x -> true)[0]), 3.0);
+    }
+
+    @Test
+    public void tiesGoToFirstSeen() {
+        ScoreBoard board = new ScoreBoard(4);
+        for (String name : Arrays.asList("Parr", "Farnham", "Genesis", "Genesis", "Farnham", "Parr", "Yes")) {
+            board.add(name, 1);
+        }
+
+        assertEquals(names(board, board.top(10, 1, x -> true)), Arrays.asList("Parr", "Farnham", "Genesis", "Yes"));
+    }
+
+    @Test
+    public void keepsTheDisplayNameFirstAdded() {
+        ScoreBoard board = new ScoreBoard(1);
+        board.add("mumford & sons", "Mumford & Sons", 1);
+        board.add("mumford & sons", "MUMFORD & SONS", 1);
+        for (int i = 0; i < 20; i++) {
+            board.add("artist " + i, "Artist " + i, 1);
+        }
+
+        int top = board.top(1, 1, x -> true)[0];
+        assertEquals(board.name(top), "mumford & sons");
+        assertEquals(board.displayName(top), "Mumford & Sons");
+        assertEquals(board.displayName(board.top(21, 1, x -> true)[20]), "Artist 19");
+    }
+
+    @Test
+    public void filtersByCountAndPredicate() {
+        ScoreBoard board = new ScoreBoard(4);
+        for (String name : Arrays.asList("Muse", "Muse", "Genesis", "Genesis", "Genesis", "Yes")) {
+            board.add(name, 1);
+        }
+
+        assertEquals(names(board, board.top(10, 2, x -> !x.equals("Genesis"))), Arrays.asList("Muse"));
+    }
+
+    @Test
+    public void growsBeyondExpectedSize() {
+        ScoreBoard board = new ScoreBoard(1);
+        for (int i = 0; i < 1000; i++) {
+            for (int j = 0; j <= i % 7; j++) {
+                board.add("artist " + i, 1);
+            }
+        }
+
+        int[] top = board.top(3, 1, x -> true);
+        assertEquals(board.size(), 1000);
+        assertEquals(names(board, top), Arrays.asList("artist 6", "artist 13", "artist 20"));
+        assertEquals(board.count(top[2]), 7);
+    }
+
+    private static List<String> names(ScoreBoard board, int[] ids) {
+        List<String> result = new ArrayList<>();
+        for (int id : ids) {
+            result.add(board.name(id));
+        }
+        return result;
+    }
+}
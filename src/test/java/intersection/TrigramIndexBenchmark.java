@@ -0,0 +1,54 @@
+package intersection;
+
+import domain.Show;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Time to fuzzy match a large library against a large lineup with {@link TrigramIndex}, well
+ * within the default fuzzy budget being the aim. Run manually, not part of the test suite.
+ */
+public class TrigramIndexBenchmark {
+    private static final int SHOWS = 2000;
+    private static final int ARTISTS = 10000;
+
+    public static void main(String[] args) {
+        Random random = new Random(7);
+        List<Show> shows = new ArrayList<>();
+        for (int i = 0; i < SHOWS; i++) {
+            String name = randomName(random);
+            shows.add(() -> name);
+        }
+        List<String> artists = new ArrayList<>();
+        for (int i = 0; i < ARTISTS; i++) {
+            artists.add(randomName(random));
+        }
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            TrigramIndex index = new TrigramIndex(shows);
+            long built = System.nanoTime();
+            int[] counts = new int[index.size()];
+            int matches = 0;
+            for (String artist : artists) {
+                matches += index.bestMatch(artist, 0.8, counts) == null ? 0 : 1;
+            }
+            long end = System.nanoTime();
+            System.out.printf("index of %d shows built in %d us, %d artists matched in %d ms (%d matches)%n",
+                    SHOWS, (built - start) / 1000, ARTISTS, (end - built) / 1000000, matches);
+        }
+    }
+
+    private static String randomName(Random random) {
+        StringBuilder builder = new StringBuilder();
+        for (int w = 0; w < 1 + random.nextInt(3); w++) {
+            builder.append(w > 0 ? " " : "");
+            for (int c = 0; c < 3 + random.nextInt(7); c++) {
+                builder.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,41 @@
+package intersection;
+
+import domain.Show;
+import org.testng.annotations.Test;
+
+import static java.util.Arrays.asList;
+import static org.testng.Assert.*;
+
+public class TrigramIndexTest {
+
+    @Test
+    public void punctuationAndCaseIgnored() {
+        assertEquals(TrigramIndex.dice(TrigramIndex.trigrams("Guns N' Roses"), TrigramIndex.trigrams("guns n roses")), 1.0);
+    }
+
+    @Test
+    public void accentsIgnored() {
+        assertEquals(TrigramIndex.dice(TrigramIndex.trigrams("Sigur R\u00f3s"), TrigramIndex.trigrams("Sigur Ros")), 1.0);
+    }
+
+    @Test
+    public void picksMostSimilarShow() {
+        Show a = () -> "Bombay Bicycle Club";
+        Show b = () -> "Bombay Dub Orchestra";
+        TrigramIndex index = new TrigramIndex(asList(a, b));
+
+        assertSame(index.bestMatch("Bombay Bicycle Clubb", 0.7, new int[index.size()]), a);
+        assertNull(index.bestMatch("Bombay", 0.7, new int[index.size()]));
+    }
+
+    @Test
+    public void scratchCountsLeftZeroed() {
+        Show a = () -> "Bombay Bicycle Club";
+        TrigramIndex index = new TrigramIndex(asList(a));
+        int[] counts = new int[index.size()];
+
+        index.bestMatch("Bicycle Thieves", 0.9, counts);
+
+        assertEquals(counts[0], 0);
+    }
+}
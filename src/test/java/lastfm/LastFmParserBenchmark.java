@@ -0,0 +1,70 @@
+package lastfm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lastfm.domain.Response;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bytes allocated and time per 1000 artist user.gettopartists page, comparing Jackson binding
+ * into {@link Response} with {@link LastFmParser}. Run manually, not part of the test suite.
+ */
+public class LastFmParserBenchmark {
+    private static final int ARTISTS = 1000;
+    private static final int ITERATIONS = 2000;
+
+    public static void main(String[] args) throws IOException {
+        byte[] page = topArtistsPage();
+        ObjectMapper mapper = new ObjectMapper();
+        System.out.println("page of " + ARTISTS + " artists, " + page.length / 1024 + " KB");
+
+        for (int round = 0; round < 3; round++) {
+            run("databind ", () -> mapper.readValue(page, Response.class).getTopartists().getArtist().size());
+            run("streaming", () -> LastFmParser.parse(page).size());
+        }
+    }
+
+    private interface Parse {
+        int artists() throws IOException;
+    }
+
+    private static void run(String label, Parse parse) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long size = 0;
+        long bytesBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            size += parse.artists();
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+        System.out.println(label + ": " + bytes / ITERATIONS + " bytes/op, " + nanos / ITERATIONS / 1000 + " us/op (" + size / ITERATIONS + " artists)");
+    }
+
+    private static byte[] topArtistsPage() {
+        StringBuilder json = new StringBuilder("{\"topartists\":{\"artist\":[");
+        for (int i = 1; i <= ARTISTS; i++) {
+            if (i > 1) {
+                json.append(',');
+            }
+            json.append("{\"name\":\"Artist Number ").append(i)
+                    .append("\",\"playcount\":\"").append(100000 / i)
+                    .append("\",\"mbid\":\"0383dadf-2a4e-4d10-a46a-e9e041da8eb3\",\"url\":\"https://www.last.fm/music/Artist+Number+").append(i)
+                    .append("\",\"streamable\":\"0\",\"image\":[");
+            String[] sizes = {"small", "medium", "large", "extralarge", "mega"};
+            for (int s = 0; s < sizes.length; s++) {
+                if (s > 0) {
+                    json.append(',');
+                }
+                json.append("{\"#text\":\"https://lastfm.freetls.fastly.net/i/u/34s/2a96cbd8b46e442fc41c2b86b821562f.png\",\"size\":\"")
+                        .append(sizes[s]).append("\"}");
+            }
+            json.append("],\"@attr\":{\"rank\":\"").append(i).append("\"}}");
+        }
+        json.append("],\"@attr\":{\"user\":\"adam\",\"page\":\"1\",\"perPage\":\"1000\",\"totalPages\":\"3\",\"total\":\"2500\"}}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,185 @@
+package lastfm;
+
+import com.codahale.metrics.MetricRegistry;
+import exception.LastFmException;
+import exception.UpstreamTimeoutException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import pipeline.Deadline;
+import service.config.LastFmConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class LastFmSchedulerTest {
+
+    private LastFmScheduler scheduler;
+    private MetricRegistry metrics;
+
+    @AfterMethod
+    public void tearDown() {
+        scheduler.stop();
+    }
+
+    @Test
+    public void usersAreServedInTurn() {
+        scheduler = scheduler(1, 1000);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(scheduler.submit("heavy", record(order, "heavy")));
+        }
+        futures.add(scheduler.submit("light", record(order, "light")));
+
+        scheduler.start();
+        futures.forEach(CompletableFuture::join);
+
+        assertEquals(order, Arrays.asList("heavy", "light", "heavy", "heavy", "heavy"));
+        assertEquals(metrics.timer("lastfm.LastFmScheduler.queue-wait").getCount(), 5);
+    }
+
+    @Test
+    public void backgroundRequestsWaitForInteractiveOnes() {
+        scheduler = scheduler(1, 1000);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        LastFmScheduler.inBackground(() -> futures.add(scheduler.submit("warm", record(order, "warm"))));
+        futures.add(scheduler.submit("user", record(order, "user")));
+        futures.add(scheduler.submit("user", record(order, "user")));
+
+        scheduler.start();
+        futures.forEach(CompletableFuture::join);
+
+        assertEquals(order, Arrays.asList("user", "user", "warm"));
+    }
+
+    @Test
+    public void inFlightRequestsAreCapped() {
+        scheduler = scheduler(3, 1000);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        scheduler.start();
+        for (int i = 0; i < 30; i++) {
+            futures.add(scheduler.submit("user" + (i % 4), () -> {
+                peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                sleep(5);
+                return inFlight.decrementAndGet();
+            }));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        assertTrue(peak.get() <= 3, "peak " + peak.get());
+    }
+
+    @Test
+    public void requestsAreRateLimited() {
+        scheduler = scheduler(4, 50);
+        scheduler.start();
+        long start = System.nanoTime();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            futures.add(scheduler.submit("user", () -> "ok"));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        assertTrue(System.nanoTime() - start >= 150_000_000L);
+    }
+
+    @Test
+    public void cancelledRequestsAreSkipped() {
+        scheduler = scheduler(1, 1000);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<Integer> cancelled = scheduler.submit("user", calls::incrementAndGet);
+        CompletableFuture<Integer> kept = scheduler.submit("user", calls::incrementAndGet);
+        cancelled.cancel(false);
+
+        scheduler.start();
+
+        assertEquals(kept.join().intValue(), 1);
+        assertEquals(calls.get(), 1);
+    }
+
+    @Test
+    public void requestsPastTheirDeadlineAreDropped() {
+        scheduler = scheduler(1, 1000);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<Integer> late;
+        try (Deadline.Scope ignored = Deadline.after(0).install()) {
+            late = scheduler.submit("user", calls::incrementAndGet);
+        }
+
+        scheduler.start();
+
+        try {
+            late.join();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof UpstreamTimeoutException);
+        }
+        assertTrue(late.isCompletedExceptionally());
+        assertEquals(calls.get(), 0);
+    }
+
+    @Test(expectedExceptions = LastFmException.class)
+    public void callRethrowsRequestFailure() {
+        scheduler = scheduler(1, 1000);
+        scheduler.start();
+        scheduler.call("user", () -> {
+            throw new LastFmException("User not found");
+        });
+    }
+
+    @Test
+    public void callGivesUpAtTheDeadline() {
+        scheduler = scheduler(1, 1000);
+        AtomicInteger calls = new AtomicInteger();
+        try (Deadline.Scope ignored = Deadline.after(50).install()) {
+            scheduler.call("user", calls::incrementAndGet);
+            throw new AssertionError("Expected a timeout");
+        } catch (UpstreamTimeoutException e) {
+            scheduler.start();
+        }
+
+        assertEquals(scheduler.call("user", calls::incrementAndGet).intValue(), 1);
+    }
+
+    @Test
+    public void requestsWithinFollowTheRate() {
+        scheduler = scheduler(1, 20);
+
+        assertEquals(scheduler.requestsWithin(5000), 100);
+        assertEquals(scheduler.requestsWithin(Long.MAX_VALUE), Integer.MAX_VALUE);
+    }
+
+    private LastFmScheduler scheduler(int concurrency, double rate) {
+        LastFmConfig config = new LastFmConfig();
+        config.setMaxConcurrentRequests(concurrency);
+        config.setRequestsPerSecond(rate);
+        metrics = new MetricRegistry();
+        return new LastFmScheduler(config, metrics);
+    }
+
+    private static Supplier<String> record(List<String> order, String user) {
+        return () -> {
+            order.add(user);
+            return user;
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
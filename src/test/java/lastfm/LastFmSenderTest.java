@@ -0,0 +1,172 @@
+package lastfm;
+
+import client.Timeouts;
+import com.codahale.metrics.MetricRegistry;
+import exception.LastFmException;
+import lastfm.domain.ArtistTable;
+import lastfm.domain.PageAttributes;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import pipeline.Deadline;
+import service.config.LastFmConfig;
+
+import javax.ws.rs.client.ClientBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class LastFmSenderTest {
+    private static final int PER_PAGE = 3;
+
+    private LastFmScheduler scheduler;
+
+    @AfterMethod
+    public void tearDown() {
+        scheduler.stop();
+    }
+
+    @Test
+    public void everyPageOfTheLibraryIsRead() {
+        LastFmSender sender = sender(0);
+        List<Integer> requested = Collections.synchronizedList(new ArrayList<>());
+
+        ArtistTable response = sender.fetchLibrary("adam", page -> {
+            requested.add(page);
+            return page(page, 4);
+        });
+
+        assertEquals(names(response), artists(1, 12));
+        assertEquals(requested.size(), 4);
+    }
+
+    @Test
+    public void pagesBeyondTheCapAreNotRequested() {
+        LastFmSender sender = sender(5);
+        AtomicInteger requests = new AtomicInteger();
+
+        ArtistTable response = sender.fetchLibrary("adam", page -> {
+            requests.incrementAndGet();
+            return page(page, 4);
+        });
+
+        assertEquals(names(response), artists(1, 5));
+        assertEquals(requests.get(), 2);
+    }
+
+    @Test
+    public void failedPagesAreLeftOut() {
+        LastFmSender sender = sender(0);
+        Deadline deadline = Deadline.after(10000);
+
+        ArtistTable response;
+        try (Deadline.Scope ignored = deadline.install()) {
+            response = sender.fetchLibrary("adam", page -> {
+                if (page == 2) {
+                    throw new IllegalStateException("boom");
+                }
+                return page(page, 3);
+            });
+        }
+
+        List<String> expected = artists(1, 3);
+        expected.addAll(artists(7, 9));
+        assertEquals(names(response), expected);
+        assertEquals(deadline.shortfalls(), 1);
+    }
+
+    @Test
+    public void withoutPageAttributesOnlyTheFirstPageIsRead() {
+        LastFmSender sender = sender(0);
+
+        ArtistTable response = sender.fetchLibrary("adam", page -> {
+            ArtistTable single = page(page, 1);
+            single.setAttributes(null);
+            return single;
+        });
+
+        assertEquals(names(response), artists(1, 3));
+    }
+
+    @Test(expectedExceptions = LastFmException.class)
+    public void anErrorOnTheFirstPageFailsTheRequest() {
+        LastFmSender sender = sender(0);
+        IntFunction<ArtistTable> error = page -> {
+            ArtistTable response = new ArtistTable();
+            response.setError("6");
+            response.setMessage("User not found");
+            return response;
+        };
+
+        sender.fetchLibrary("nobody", error);
+    }
+
+    @Test
+    public void concurrentPagesAreBounded() {
+        LastFmSender sender = sender(0);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        ArtistTable response = sender.fetchLibrary("adam", page -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return page(page, 10);
+        });
+
+        assertEquals(names(response).size(), 30);
+        assertTrue(peak.get() <= 2, "peak " + peak.get());
+    }
+
+    private LastFmSender sender(int maxTopArtists) {
+        LastFmConfig config = new LastFmConfig();
+        config.setApiKey("key");
+        config.setMaxConcurrentRequests(8);
+        config.setRequestsPerSecond(1000);
+        config.setTopArtistsPageSize(PER_PAGE);
+        config.setTopArtistsPageConcurrency(2);
+        config.setMaxTopArtists(maxTopArtists);
+        scheduler = new LastFmScheduler(config, new MetricRegistry());
+        scheduler.start();
+        return new LastFmSender(config, scheduler, ClientBuilder.newClient(), new Timeouts(5000, 2000));
+    }
+
+    private static ArtistTable page(int page, int totalPages) {
+        int first = (page - 1) * PER_PAGE + 1;
+        ArtistTable table = new ArtistTable();
+        for (String name : artists(first, first + PER_PAGE - 1)) {
+            table.add(name, 1, Integer.valueOf(name.substring(1)), Float.NaN);
+        }
+        PageAttributes attributes = new PageAttributes();
+        attributes.setPage(page);
+        attributes.setPerPage(PER_PAGE);
+        attributes.setTotalPages(totalPages);
+        attributes.setTotal(totalPages * PER_PAGE);
+        table.setAttributes(attributes);
+        return table;
+    }
+
+    private static List<String> artists(int from, int to) {
+        List<String> names = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            names.add("a" + i);
+        }
+        return names;
+    }
+
+    private static List<String> names(ArtistTable table) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < table.size(); i++) {
+            names.add(table.name(i));
+        }
+        return names;
+    }
+}
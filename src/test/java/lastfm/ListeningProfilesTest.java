@@ -0,0 +1,142 @@
+package lastfm;
+
+import cache.JedisFactory;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lastfm.domain.Artist;
+import lastfm.domain.ArtistTable;
+import lastfm.domain.ListeningProfile;
+import lastfm.domain.RecentScrobbles;
+import lastfm.domain.Response;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import redis.clients.jedis.Jedis;
+import service.config.LastFmConfig;
+import service.config.ListeningProfileConfig;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ListeningProfilesTest {
+    private static final String KEY = "PROFILEadam";
+
+    @Mock
+    private LastFmSender lastFmSender;
+    @Mock
+    private JedisFactory jedisFactory;
+    @Mock
+    private Jedis jedis;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    private ListeningProfiles profiles;
+
+    @BeforeMethod
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(jedisFactory.newJedis()).thenReturn(jedis);
+        profiles = new ListeningProfiles(lastFmSender, jedisFactory, mapper, new ListeningProfileConfig(), new LastFmConfig(), new MetricRegistry());
+    }
+
+    @Test
+    public void firstRequestReadsTheWholeLibrary() throws IOException {
+        when(lastFmSender.library("adam")).thenReturn(library(new Artist("Radiohead", "10", 1), new Artist("Blur", "4", 2)));
+
+        Response response = profiles.topArtists("adam");
+
+        assertEquals(names(response), Arrays.asList("Radiohead", "Blur"));
+        ListeningProfile saved = saved();
+        assertEquals(saved.getNames(), Arrays.asList("Radiohead", "Blur"));
+        assertEquals(saved.getPlaycounts(), Arrays.asList(10, 4));
+    }
+
+    @Test
+    public void laterRequestsOnlyFetchNewScrobbles() throws IOException {
+        stored(new ListeningProfile(Arrays.asList("Radiohead", "Blur"), Arrays.asList(10, 9), now - 600, now - 3600));
+        RecentScrobbles scrobbles = new RecentScrobbles();
+        scrobbles.add("blur", now - 300);
+        scrobbles.add("blur", now - 200);
+        scrobbles.add("Placebo", now - 100);
+        when(lastFmSender.fetchScrobblesSince("adam", now - 599, 200, 5)).thenReturn(scrobbles);
+
+        Response response = profiles.topArtists("adam");
+
+        assertEquals(names(response), Arrays.asList("Blur", "Radiohead", "Placebo"));
+        assertEquals(response.getTopartists().getArtist().get(0).getPlaycount(), "11");
+        assertEquals(response.getTopartists().getArtist().get(0).getRankValue(), Integer.valueOf(1));
+        assertEquals(saved().getSyncedUntil(), now - 100);
+        verify(lastFmSender, never()).library(anyString());
+    }
+
+    @Test
+    public void tooManyScrobblesFallBackToAFullRead() throws IOException {
+        stored(new ListeningProfile(Arrays.asList("Radiohead"), Arrays.asList(10), now - 600, now - 3600));
+        when(lastFmSender.fetchScrobblesSince(eq("adam"), anyLong(), anyInt(), anyInt())).thenReturn(null);
+        when(lastFmSender.library("adam")).thenReturn(library(new Artist("Muse", "500", 1)));
+
+        Response response = profiles.topArtists("adam");
+
+        assertEquals(names(response), Arrays.asList("Muse"));
+        assertTrue(Math.abs(saved().getFullSyncAt() - now) <= 5);
+    }
+
+    @Test
+    public void oldProfilesAreReadAgainInFull() throws IOException {
+        stored(new ListeningProfile(Arrays.asList("Radiohead"), Arrays.asList(10), now, now - TimeUnit.DAYS.toSeconds(8)));
+        when(lastFmSender.library("adam")).thenReturn(library(new Artist("Muse", "500", 1)));
+
+        profiles.topArtists("adam");
+
+        verify(lastFmSender, never()).fetchScrobblesSince(anyString(), anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void profilesAreCappedAfterSync() {
+        ListeningProfile profile = new ListeningProfile(Arrays.asList("Radiohead", "Blur"), Arrays.asList(10, 9), 0, 0);
+        RecentScrobbles scrobbles = new RecentScrobbles();
+        scrobbles.add("Placebo", 1);
+
+        profile.apply(scrobbles, 2);
+
+        assertEquals(profile.getNames(), Arrays.asList("Radiohead", "Blur"));
+        assertEquals(profile.getSyncedUntil(), 1);
+    }
+
+    private void stored(ListeningProfile profile) throws IOException {
+        when(jedis.get(KEY)).thenReturn(mapper.writeValueAsString(profile));
+    }
+
+    private ListeningProfile saved() throws IOException {
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        verify(jedis).setex(eq(KEY), eq((int) TimeUnit.DAYS.toSeconds(30)), json.capture());
+        return mapper.readValue(json.getValue(), ListeningProfile.class);
+    }
+
+    private static ArtistTable library(Artist... artists) {
+        ArtistTable table = new ArtistTable();
+        for (Artist artist : artists) {
+            table.add(artist.getName(), Integer.parseInt(artist.getPlaycount()), artist.getRankValue(), Float.NaN);
+        }
+        return table;
+    }
+
+    private static List<String> names(Response response) {
+        return response.getTopartists().getArtist().stream().map(Artist::getName).collect(toList());
+    }
+}
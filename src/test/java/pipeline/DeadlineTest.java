@@ -0,0 +1,159 @@
+package pipeline;
+
+import exception.UpstreamTimeoutException;
+import org.glassfish.jersey.client.ClientProperties;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.client.Invocation;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class DeadlineTest {
+
+    @Test
+    public void noDeadlineLeavesTimeoutsAlone() {
+        assertFalse(Deadline.current().isBounded());
+        assertEquals(Deadline.current().capMillis(1500), 1500);
+        assertEquals(Deadline.current().timeoutMillis(2000), 2000);
+        assertFalse(Deadline.current().isExpired());
+    }
+
+    @Test
+    public void installedDeadlineCapsTimeouts() {
+        try (Deadline.Scope ignored = Deadline.after(500).install()) {
+            assertTrue(Deadline.current().capMillis(1500) <= 500);
+            assertEquals(Deadline.current().capMillis(100), 100);
+        }
+        assertFalse(Deadline.current().isBounded());
+    }
+
+    @Test
+    public void expiredDeadlineNeverGivesZeroTimeout() {
+        try (Deadline.Scope ignored = Deadline.after(0).install()) {
+            assertTrue(Deadline.current().isExpired());
+            assertEquals(Deadline.current().capMillis(1500), 0);
+            assertEquals(Deadline.current().timeoutMillis(1500), 1);
+        }
+    }
+
+    @Test(expectedExceptions = UpstreamTimeoutException.class)
+    public void checkFailsOnceExpired() {
+        try (Deadline.Scope ignored = Deadline.after(0).install()) {
+            Deadline.current().check("clashfinder");
+        }
+    }
+
+    @Test
+    public void nestedScopesRestorePrevious() {
+        Deadline outer = Deadline.after(10000);
+        try (Deadline.Scope ignored = outer.install()) {
+            try (Deadline.Scope inner = Deadline.after(100).install()) {
+                assertTrue(Deadline.current().remainingMillis() <= 100);
+            }
+            assertSame(Deadline.current(), outer);
+        }
+    }
+
+    @Test
+    public void boundedRequestKeepsTheConfiguredTimeouts() {
+        Invocation.Builder builder = builder();
+        try (Deadline.Scope ignored = Deadline.after(30000).install()) {
+            Deadline.current().bound(builder, 5000, 2000);
+        }
+
+        verify(builder).property(ClientProperties.READ_TIMEOUT, 5000);
+        verify(builder).property(ClientProperties.CONNECT_TIMEOUT, 2000);
+    }
+
+    @Test
+    public void boundedRequestTimesOutWithTheDeadline() {
+        Invocation.Builder builder = builder();
+        try (Deadline.Scope ignored = Deadline.after(0).install()) {
+            Deadline.current().bound(builder, 5000, 2000);
+        }
+
+        verify(builder).property(ClientProperties.READ_TIMEOUT, 1);
+        verify(builder).property(ClientProperties.CONNECT_TIMEOUT, 1);
+    }
+
+    @Test
+    public void unboundedRequestKeepsTheClientTimeouts() {
+        Invocation.Builder builder = builder();
+
+        Deadline.current().bound(builder, 5000, 2000);
+
+        verifyZeroInteractions(builder);
+    }
+
+    @Test
+    public void detachedDeadlineLeavesTheThread() {
+        Deadline deadline = Deadline.after(10000);
+        Deadline.Scope scope = deadline.install();
+
+        assertSame(Deadline.detach(), deadline);
+        assertFalse(Deadline.current().isBounded());
+        scope.close();
+    }
+
+    @Test
+    public void scopeClosedOnAnotherThreadIsIgnored() {
+        Deadline.Scope scope = Deadline.after(10000).install();
+        try (Deadline.Scope ignored = Deadline.after(10000).install()) {
+            CompletableFuture.runAsync(scope::close).join();
+            CompletableFuture.runAsync(ignored::close).join();
+            assertTrue(Deadline.current().isBounded());
+        }
+        scope.close();
+        assertFalse(Deadline.current().isBounded());
+    }
+
+    @Test
+    public void shortfallsAreCountedAcrossThreads() {
+        Deadline deadline = Deadline.after(10000);
+        try (Deadline.Scope ignored = deadline.install()) {
+            CompletableFuture.supplyAsync(Deadline.propagate(() -> {
+                Deadline.current().shortfall();
+                return null;
+            })).join();
+        }
+
+        assertEquals(deadline.shortfalls(), 1);
+    }
+
+    @Test
+    public void noDeadlineKeepsNoShortfalls() {
+        Deadline.current().shortfall();
+
+        assertEquals(Deadline.current().shortfalls(), 0);
+    }
+
+    @Test
+    public void propagatesToOtherThreads() {
+        Deadline deadline = Deadline.after(10000);
+        Supplier<Deadline> seen;
+        try (Deadline.Scope ignored = deadline.install()) {
+            seen = Deadline.propagate(Deadline::current);
+        }
+
+        assertSame(CompletableFuture.supplyAsync(seen).join(), deadline);
+        assertFalse(CompletableFuture.supplyAsync(Deadline::current).join().isBounded());
+    }
+
+    private static Invocation.Builder builder() {
+        Invocation.Builder builder = mock(Invocation.Builder.class);
+        when(builder.property(anyString(), any())).thenReturn(builder);
+        return builder;
+    }
+}
@@ -0,0 +1,169 @@
+package pipeline;
+
+import com.codahale.metrics.MetricRegistry;
+import exception.FestivalNotFoundException;
+import exception.UpstreamTimeoutException;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class RequestExecutorTest {
+
+    private RequestExecutor requests;
+    private AsyncResponse response;
+
+    @BeforeMethod
+    public void setUp() {
+        requests = new RequestExecutor(new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1)), new MetricRegistry());
+        response = mock(AsyncResponse.class);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        requests.stop();
+    }
+
+    @Test
+    public void resumesWithTheResult() {
+        requests.resume(response, () -> "acts");
+
+        verify(response, timeout(1000)).resume("acts");
+    }
+
+    @Test
+    public void resumesWithTheFailure() {
+        FestivalNotFoundException notFound = new FestivalNotFoundException("g2099");
+
+        requests.resume(response, () -> {
+            throw notFound;
+        });
+
+        verify(response, timeout(1000)).resume(notFound);
+    }
+
+    @Test
+    public void workRunsUnderTheRequestDeadline() {
+        Deadline deadline = Deadline.after(10000);
+        try (Deadline.Scope ignored = deadline.install()) {
+            requests.resume(response, Deadline::current);
+            assertFalse(Deadline.current().isBounded());
+        }
+
+        verify(response, timeout(1000)).resume(deadline);
+        verify(response).setTimeout(anyLong(), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void resumesWithAnError() {
+        StackOverflowError error = new StackOverflowError();
+
+        requests.resume(response, () -> {
+            throw error;
+        });
+
+        verify(response, timeout(1000)).resume(error);
+    }
+
+    @Test
+    public void timedOutRequestIsAnsweredWithoutInterruptingItsWork() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch finished = new CountDownLatch(1);
+        ArgumentCaptor<TimeoutHandler> handler = ArgumentCaptor.forClass(TimeoutHandler.class);
+        try (Deadline.Scope ignored = Deadline.after(10000).install()) {
+            requests.resume(response, () -> {
+                started.countDown();
+                try {
+                    release.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+                finished.countDown();
+                return "late";
+            });
+        }
+        verify(response).setTimeoutHandler(handler.capture());
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        handler.getValue().handleTimeout(response);
+        release.countDown();
+
+        verify(response).resume(isA(UpstreamTimeoutException.class));
+        assertTrue(finished.await(1, TimeUnit.SECONDS));
+        assertFalse(interrupted.get());
+    }
+
+    @Test
+    public void timedOutQueuedRequestLeavesTheQueueWithoutRunning() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        requests.resume(mock(AsyncResponse.class), () -> {
+            started.countDown();
+            return await(release);
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        AtomicBoolean ran = new AtomicBoolean();
+        ArgumentCaptor<TimeoutHandler> handler = ArgumentCaptor.forClass(TimeoutHandler.class);
+        try (Deadline.Scope ignored = Deadline.after(10000).install()) {
+            requests.resume(response, () -> {
+                ran.set(true);
+                return "late";
+            });
+        }
+        verify(response).setTimeoutHandler(handler.capture());
+
+        handler.getValue().handleTimeout(response);
+        // Still running the first request, so this only fits if the timed out one left the queue
+        AsyncResponse next = mock(AsyncResponse.class);
+        requests.resume(next, () -> "acts");
+        release.countDown();
+
+        verify(next, timeout(1000)).resume("acts");
+        verify(next, never()).resume(isA(ServiceUnavailableException.class));
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void requestsBeyondTheQueueAreTurnedAway() {
+        CountDownLatch release = new CountDownLatch(1);
+        requests.resume(mock(AsyncResponse.class), () -> await(release));
+        requests.resume(mock(AsyncResponse.class), () -> await(release));
+
+        requests.resume(response, () -> "acts");
+
+        verify(response).resume(isA(ServiceUnavailableException.class));
+        verify(response, never()).setTimeoutHandler(any());
+        release.countDown();
+    }
+
+    private static String await(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "done";
+    }
+}
@@ -0,0 +1,222 @@
+package pipeline;
+
+import exception.FestivalNotFoundException;
+import exception.UpstreamTimeoutException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import service.config.PipelineConfig;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class StageExecutorTest {
+
+    private StageExecutor stages;
+
+    @BeforeMethod
+    public void setUp() {
+        stages = new StageExecutor(Executors.newFixedThreadPool(2), config(200));
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        stages.stop();
+    }
+
+    @Test
+    public void stagesRunConcurrently() {
+        CountDownLatch latch = new CountDownLatch(2);
+        Stage<String> festival = stages.festivalStage(() -> awaitOther(latch, "festival"));
+        Stage<String> user = stages.userStage(() -> awaitOther(latch, "user"));
+
+        assertEquals(user.join(), "user");
+        assertEquals(festival.join(), "festival");
+    }
+
+    @Test(expectedExceptions = UpstreamTimeoutException.class)
+    public void slowStageTimesOut() {
+        stages.festivalStage(() -> sleep(2000)).join();
+    }
+
+    @Test
+    public void timeoutCountsFromStageStart() throws InterruptedException {
+        Stage<String> festival = stages.festivalStage(() -> sleep(2000));
+        Thread.sleep(150);
+        long start = System.nanoTime();
+        try {
+            festival.join();
+        } catch (UpstreamTimeoutException e) {
+            assertEquals(e.getStage(), "festival data");
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(150));
+    }
+
+    @Test
+    public void timedOutStageIsNotInterrupted() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch finished = new CountDownLatch(1);
+        Stage<String> festival = stages.festivalStage(() -> {
+            try {
+                release.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            finished.countDown();
+            return "done";
+        });
+        try {
+            festival.join();
+        } catch (UpstreamTimeoutException e) {
+            release.countDown();
+            assertTrue(finished.await(1, TimeUnit.SECONDS));
+            assertFalse(interrupted.get());
+            return;
+        }
+        throw new AssertionError("Expected a timeout");
+    }
+
+    @Test
+    public void timedOutStageThatHasNotStartedNeverRuns() throws InterruptedException {
+        stages.stop();
+        stages = new StageExecutor(Executors.newFixedThreadPool(1), config(200));
+        CountDownLatch release = new CountDownLatch(1);
+        Stage<String> first = stages.start("user data", 5000, () -> {
+            awaitQuietly(release);
+            return "user";
+        });
+        AtomicBoolean ran = new AtomicBoolean();
+        Stage<String> festival = stages.festivalStage(() -> {
+            ran.set(true);
+            return "festival";
+        });
+        try {
+            festival.join();
+            throw new AssertionError("Expected a timeout");
+        } catch (UpstreamTimeoutException e) {
+            release.countDown();
+        }
+
+        assertEquals(first.join(), "user");
+        assertEquals(stages.userStage(() -> "next").join(), "next");
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void followingStageGetsTheResult() {
+        Stage<String> user = stages.userStage(() -> "adam");
+
+        assertEquals(stages.then(user, name -> name + "'s artists").join(), "adam's artists");
+    }
+
+    @Test
+    public void followingStageSharesTheTimeout() {
+        Stage<String> user = stages.userStage(() -> sleep(150));
+        Stage<String> artists = stages.then(user, name -> sleep(150));
+        long start = System.nanoTime();
+        try {
+            artists.join();
+        } catch (UpstreamTimeoutException e) {
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(250));
+            return;
+        }
+        throw new AssertionError("Expected a timeout");
+    }
+
+    @Test
+    public void followingStageHoldsNoThreadWhileWaiting() {
+        stages.stop();
+        stages = new StageExecutor(Executors.newFixedThreadPool(1), new PipelineConfig());
+        CompletableFuture<String> response = new CompletableFuture<>();
+        Stage<String> artists = stages.then(stages.festivalStageAsync(() -> response), name -> name + "'s artists");
+        Stage<String> user = stages.userStage(() -> "user");
+
+        assertEquals(user.join(), "user");
+        response.complete("adam");
+        assertEquals(artists.join(), "adam's artists");
+    }
+
+    @Test(expectedExceptions = FestivalNotFoundException.class)
+    public void followingStageRethrowsTheEarlierFailure() {
+        Stage<String> user = stages.userStage(() -> {
+            throw new FestivalNotFoundException("g2099");
+        });
+        stages.then(user, name -> name + "'s artists").join();
+    }
+
+    @Test(expectedExceptions = FestivalNotFoundException.class)
+    public void stageFailureRethrownUnwrapped() {
+        stages.festivalStage(() -> {
+            throw new FestivalNotFoundException("g2099");
+        }).join();
+    }
+
+    @Test
+    public void asyncStageHoldsNoThread() {
+        stages.stop();
+        stages = new StageExecutor(Executors.newFixedThreadPool(1), new PipelineConfig());
+        CompletableFuture<String> response = new CompletableFuture<>();
+        Stage<String> festival = stages.festivalStageAsync(() -> response);
+        Stage<String> user = stages.userStage(() -> "user");
+
+        assertEquals(user.join(), "user");
+        response.complete("festival");
+        assertEquals(festival.join(), "festival");
+    }
+
+    @Test(expectedExceptions = UpstreamTimeoutException.class)
+    public void slowAsyncStageTimesOut() {
+        stages.festivalStageAsync(CompletableFuture::new).join();
+    }
+
+    @Test(expectedExceptions = FestivalNotFoundException.class)
+    public void asyncStageFailureRethrownUnwrapped() {
+        stages.festivalStageAsync(() -> {
+            throw new FestivalNotFoundException("g2099");
+        }).join();
+    }
+
+    private static PipelineConfig config(long stageTimeoutMillis) {
+        PipelineConfig config = new PipelineConfig();
+        config.setFestivalStageTimeoutMillis(stageTimeoutMillis);
+        config.setUserStageTimeoutMillis(stageTimeoutMillis);
+        return config;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String awaitOther(CountDownLatch latch, String result) {
+        latch.countDown();
+        try {
+            if (!latch.await(1, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Stages ran one after the other");
+            }
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
+
+    private static String sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "done";
+    }
+}
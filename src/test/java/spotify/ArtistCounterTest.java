@@ -0,0 +1,66 @@
+package spotify;
+
+import org.testng.annotations.Test;
+import spotify.domain.PlaylistArtists;
+import spotify.domain.SpotifyArtist;
+import spotify.domain.SpotifyTrack;
+import spotify.domain.SpotifyTracksItem;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.testng.Assert.assertEquals;
+
+public class ArtistCounterTest {
+
+    @Test
+    public void artistsAreCountedById() {
+        ArtistCounter counter = new ArtistCounter();
+
+        counter.addTracks(Arrays.asList(track(artist("1", "Nirvana")), track(artist("2", "Nirvana")), track(artist("1", "Nirvana"), artist("3", "Hole"))));
+
+        assertEquals(counts(counter), Arrays.asList("Nirvana=2", "Nirvana=1", "Hole=1"));
+    }
+
+    @Test
+    public void localFilesAreCountedByName() {
+        ArtistCounter counter = new ArtistCounter();
+
+        counter.addTracks(Arrays.asList(track(artist(null, "Demo")), track(artist(null, "Demo")), track(artist("1", "Demo")), new SpotifyTracksItem()));
+
+        assertEquals(counts(counter), Arrays.asList("Demo=2", "Demo=1"));
+    }
+
+    @Test
+    public void playlistArtistsRoundTrip() {
+        ArtistCounter playlist = new ArtistCounter();
+        playlist.addTracks(Arrays.asList(track(artist("1", "Yes")), track(artist("1", "Yes")), track(artist(null, "Demo"))));
+        ArtistCounter user = new ArtistCounter();
+        user.add("1", "Yes", 1);
+
+        PlaylistArtists columns = playlist.toPlaylistArtists();
+        user.add(columns);
+
+        assertEquals(columns.getIds(), new String[]{"1", null});
+        assertEquals(counts(user), Arrays.asList("Yes=3", "Demo=1"));
+    }
+
+    private static List<String> counts(ArtistCounter counter) {
+        return counter.byFrequency().stream().map(a -> a.getName() + "=" + a.getPlaycount()).collect(toList());
+    }
+
+    private static SpotifyTracksItem track(SpotifyArtist... artists) {
+        SpotifyTrack track = new SpotifyTrack();
+        track.setArtists(Arrays.asList(artists));
+        SpotifyTracksItem item = new SpotifyTracksItem();
+        item.setTrack(track);
+        return item;
+    }
+
+    private static SpotifyArtist artist(String id, String name) {
+        SpotifyArtist artist = new SpotifyArtist(name);
+        artist.setId(id);
+        return artist;
+    }
+}
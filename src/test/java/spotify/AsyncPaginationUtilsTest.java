@@ -1,23 +1,31 @@
 package spotify;
 
+import com.codahale.metrics.MetricRegistry;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import service.config.PaginationConfig;
+import spotify.domain.FuncTuple;
 import spotify.domain.SpotifyDetails;
 import spotify.domain.SpotifyPlaylist;
 import spotify.domain.SpotifyPlaylistResponse;
 
 import javax.ws.rs.core.Response;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 
+import static java.util.stream.Collectors.toList;
 import static junit.framework.Assert.assertEquals;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 /**
@@ -34,6 +42,8 @@ public class AsyncPaginationUtilsTest {
     @Mock
     private Response response2;
 
+    private final PaginationScheduler scheduler = new PaginationScheduler(new PaginationConfig(), new MetricRegistry());
+
     @BeforeMethod
     public void setUp() {
         MockitoAnnotations.initMocks(this);
@@ -53,7 +63,7 @@ public class AsyncPaginationUtilsTest {
         when(response1.readEntity(any(Class.class))).thenReturn(initialResponse);
         when(response2.readEntity(any(Class.class))).thenReturn(new SpotifyPlaylistResponse());
 
-        List<SpotifyPlaylistResponse> result = AsyncPaginationUtils.paginateAsync(func, SpotifyPlaylistResponse.class, new SpotifyDetails("ac"), 50);
+        List<SpotifyPlaylistResponse> result = paginate(func, Collections.singletonList(new SpotifyDetails("ac")), 50);
 
         assertEquals(4, result.size());
     }
@@ -70,7 +80,7 @@ public class AsyncPaginationUtilsTest {
         when(response1.readEntity(any(Class.class))).thenReturn(initialResponse);
         when(response2.readEntity(any(Class.class))).thenReturn(new SpotifyPlaylistResponse());
 
-        List<SpotifyPlaylistResponse> result = AsyncPaginationUtils.paginateAsync(func, SpotifyPlaylistResponse.class, new SpotifyDetails("ac"), 90);
+        List<SpotifyPlaylistResponse> result = paginate(func, Collections.singletonList(new SpotifyDetails("ac")), 90);
 
         assertEquals(3, result.size());
     }
@@ -83,10 +93,33 @@ public class AsyncPaginationUtilsTest {
         when(response1.readEntity(any(Class.class))).thenReturn(null);
         when(response2.readEntity(any(Class.class))).thenReturn(new SpotifyPlaylistResponse());
 
-        List<SpotifyPlaylistResponse> result = AsyncPaginationUtils.paginateAsync(func, SpotifyPlaylistResponse.class, new SpotifyDetails("ac"), 90);
+        List<SpotifyPlaylistResponse> result = paginate(func, Collections.singletonList(new SpotifyDetails("ac")), 90);
 
         assertEquals(0, result.size());
     }
 
+    @Test
+    public void paginatesEveryCollectionInOneRun() {
+        List<String> requested = Collections.synchronizedList(new ArrayList<>());
+        BiFunction<Integer, SpotifyDetails, Future<Response>> func = (offset, details) -> {
+            requested.add(details.getUserId() + ":" + offset);
+            SpotifyPlaylistResponse page = new SpotifyPlaylistResponse();
+            page.setTotal(details.getUserId().equals("a") ? 250 : 100);
+            page.setItems(new ArrayList<>(Collections.nCopies(100, new SpotifyPlaylist())));
+            Response response = mock(Response.class);
+            when(response.readEntity(any(Class.class))).thenReturn(page);
+            return CompletableFuture.completedFuture(response);
+        };
+
+        List<SpotifyPlaylistResponse> result = paginate(func,
+                Arrays.asList(new SpotifyDetails("ac", "a"), new SpotifyDetails("ac", "b")), 100);
+
+        assertEquals(4, result.size());
+        assertEquals(new HashSet<>(Arrays.asList("a:0", "b:0", "a:100", "a:200")), new HashSet<>(requested));
+    }
 
-}
\ No newline at end of file
+    private List<SpotifyPlaylistResponse> paginate(BiFunction<Integer, SpotifyDetails, Future<Response>> func, List<SpotifyDetails> details, int pageSize) {
+        List<FuncTuple<Response>> firstPages = details.stream().map(d -> new FuncTuple<>(func, 0, d)).collect(toList());
+        return scheduler.fetchAll(firstPages, SpotifyPlaylistResponse.class, null, (page, response) -> AsyncPaginationUtils.remainingPages(page, response, pageSize));
+    }
+}
@@ -0,0 +1,235 @@
+package spotify;
+
+import com.codahale.metrics.MetricRegistry;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pipeline.Deadline;
+import service.config.PaginationConfig;
+import spotify.domain.FuncTuple;
+import spotify.domain.SpotifyDetails;
+import spotify.domain.SpotifyPlaylistResponse;
+import spotify.domain.SpotifyPlaylistTracksResponse;
+import spotify.domain.SpotifyResponse;
+
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class PaginationSchedulerTest {
+    private static final String RETRIES = "spotify.PaginationScheduler.retries";
+
+    private PaginationConfig config;
+    private MetricRegistry metrics;
+    private Map<Integer, Integer> attempts;
+
+    @BeforeMethod
+    public void setUp() {
+        config = new PaginationConfig();
+        config.setBaseBackoffMillis(1);
+        config.setMaxBackoffMillis(2);
+        metrics = new MetricRegistry();
+        attempts = new ConcurrentHashMap<>();
+    }
+
+    @Test
+    public void throttledPagesAreRetried() {
+        config.setMinRetryBudget(10);
+
+        List<SpotifyPlaylistResponse> result = fetch(4, attempt -> attempt == 1 ? response(429, null) : response(200, null));
+
+        assertEquals(result.size(), 4);
+        assertEquals(metrics.histogram(RETRIES).getSnapshot().getMax(), 4);
+        assertEquals(metrics.meter("spotify.PaginationScheduler.throttled").getCount(), 4);
+    }
+
+    @Test
+    public void retryAfterHoldsBackEveryPage() {
+        long start = System.nanoTime();
+
+        List<SpotifyPlaylistResponse> result = fetch(2, attempt -> attempt == 1 ? response(429, "1") : response(200, null));
+
+        assertEquals(result.size(), 2);
+        assertTrue(System.nanoTime() - start >= 1_000_000_000L);
+    }
+
+    @Test
+    public void retriesStopAtTheBudget() {
+        config.setMinRetryBudget(2);
+        config.setRetryBudgetRatio(0);
+
+        List<SpotifyPlaylistResponse> result = fetch(5, attempt -> response(429, null));
+
+        assertEquals(result.size(), 0);
+        assertEquals(attempts.values().stream().mapToInt(Integer::intValue).sum(), 7);
+        assertEquals(metrics.histogram(RETRIES).getSnapshot().getMax(), 2);
+    }
+
+    @Test
+    public void pagesAreTriedAtMostMaxAttemptsTimes() {
+        config.setMaxAttempts(3);
+        config.setMinRetryBudget(100);
+
+        fetch(1, attempt -> response(503, null));
+
+        assertEquals(attempts.get(0), Integer.valueOf(3));
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() {
+        List<SpotifyPlaylistResponse> result = fetch(3, attempt -> response(404, null));
+
+        assertEquals(result.size(), 0);
+        assertEquals(attempts.values().stream().mapToInt(Integer::intValue).sum(), 3);
+    }
+
+    @Test
+    public void pagesInFlightAreCappedAcrossPaginations() throws Exception {
+        config.setMaxInFlight(2);
+        PaginationScheduler scheduler = scheduler();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        BiFunction<Integer, SpotifyDetails, Future<Response>> func = (offset, details) -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                sleep(5);
+                running.decrementAndGet();
+                return response(200, null);
+            });
+        };
+        ExecutorService users = Executors.newFixedThreadPool(3);
+
+        List<Future<List<SpotifyPlaylistResponse>>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            results.add(users.submit(() -> scheduler.fetchAll(pages(func, 10), SpotifyPlaylistResponse.class, new SpotifyDetails("ac"))));
+        }
+        for (Future<List<SpotifyPlaylistResponse>> result : results) {
+            assertEquals(result.get().size(), 10);
+        }
+        users.shutdown();
+
+        assertTrue(peak.get() <= 2, "peak " + peak.get());
+        assertEquals(metrics.getGauges().get("spotify.PaginationScheduler.inFlight").getValue(), 0);
+    }
+
+    @Test
+    public void followUpPagesJoinTheRun() {
+        SpotifyDetails first = new SpotifyDetails("ac", "first");
+        SpotifyDetails second = new SpotifyDetails("ac", "second");
+        List<String> requested = new ArrayList<>();
+        BiFunction<Integer, SpotifyDetails, Future<Response>> func = (offset, details) -> {
+            requested.add(details.getUserId() + offset);
+            return CompletableFuture.completedFuture(response(200, null));
+        };
+        List<FuncTuple<Response>> firstPages = new ArrayList<>();
+        firstPages.add(new FuncTuple<>(func, 0, first));
+        firstPages.add(new FuncTuple<>(func, 0, second));
+
+        List<SpotifyPlaylistResponse> result = scheduler().fetchAll(firstPages, SpotifyPlaylistResponse.class, null, (page, response) ->
+                page.getOffset() == 0 && page.getDetails() == first ? Collections.singletonList(new FuncTuple<>(func, 50, first)) : Collections.emptyList());
+
+        assertEquals(result.size(), 3);
+        assertEquals(requested, Arrays.asList("first0", "second0", "first50"));
+    }
+
+    @Test
+    public void pagesAreReadAsTheirOwnType() {
+        Response playlists = mock(Response.class);
+        when(playlists.readEntity(SpotifyPlaylistResponse.class)).thenReturn(new SpotifyPlaylistResponse());
+        Response tracks = mock(Response.class);
+        when(tracks.readEntity(SpotifyPlaylistTracksResponse.class)).thenReturn(new SpotifyPlaylistTracksResponse());
+        BiFunction<Integer, SpotifyDetails, Future<Response>> playlistFunc = (offset, details) -> CompletableFuture.completedFuture(playlists);
+        BiFunction<Integer, SpotifyDetails, Future<Response>> trackFunc = (offset, details) -> CompletableFuture.completedFuture(tracks);
+        FuncTuple<Response> first = new FuncTuple<>(playlistFunc, 0, new SpotifyDetails("ac"), SpotifyPlaylistResponse.class);
+
+        List<SpotifyResponse> result = scheduler().fetchAll(Collections.singletonList(first), SpotifyResponse.class, null, (page, response) ->
+                response instanceof SpotifyPlaylistResponse
+                        ? Collections.singletonList(new FuncTuple<>(trackFunc, 0, page.getDetails(), SpotifyPlaylistTracksResponse.class))
+                        : Collections.emptyList());
+
+        assertEquals(result.size(), 2);
+        assertTrue(result.get(0) instanceof SpotifyPlaylistResponse);
+        assertTrue(result.get(1) instanceof SpotifyPlaylistTracksResponse);
+    }
+
+    @Test
+    public void nothingIsRetriedPastTheDeadline() {
+        try (Deadline.Scope ignored = Deadline.after(50).install()) {
+            List<SpotifyPlaylistResponse> result = fetch(1, attempt -> response(429, "10"));
+
+            assertEquals(result.size(), 0);
+            assertEquals(attempts.get(0), Integer.valueOf(1));
+        }
+    }
+
+    @Test
+    public void pagesInFlightGiveBackTheirPermitsWhenLaunchingAPageFails() {
+        CompletableFuture<Response> first = new CompletableFuture<>();
+        BiFunction<Integer, SpotifyDetails, Future<Response>> func = (offset, details) -> {
+            if (offset > 0) {
+                throw new IllegalStateException("no connection");
+            }
+            return first;
+        };
+
+        try {
+            scheduler().fetchAll(pages(func, 2), SpotifyPlaylistResponse.class, new SpotifyDetails("ac"));
+        } catch (IllegalStateException expected) {
+            assertTrue(first.isCancelled());
+            assertEquals(metrics.getGauges().get("spotify.PaginationScheduler.inFlight").getValue(), 0);
+            return;
+        }
+        fail("launching the second page should have failed");
+    }
+
+    private List<SpotifyPlaylistResponse> fetch(int pages, IntFunction<Response> byAttempt) {
+        BiFunction<Integer, SpotifyDetails, Future<Response>> func = (offset, details) ->
+                CompletableFuture.completedFuture(byAttempt.apply(attempts.merge(offset, 1, Integer::sum)));
+        return scheduler().fetchAll(pages(func, pages), SpotifyPlaylistResponse.class, new SpotifyDetails("ac"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private PaginationScheduler scheduler() {
+        return new PaginationScheduler(config, metrics);
+    }
+
+    private static List<FuncTuple<Response>> pages(BiFunction<Integer, SpotifyDetails, Future<Response>> func, int count) {
+        List<FuncTuple<Response>> pages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            pages.add(new FuncTuple<>(func, i * 50));
+        }
+        return pages;
+    }
+
+    private static Response response(int status, String retryAfter) {
+        Response response = mock(Response.class);
+        when(response.getStatus()).thenReturn(status);
+        when(response.getHeaderString("Retry-After")).thenReturn(retryAfter);
+        when(response.readEntity(any(Class.class))).thenReturn(new SpotifyPlaylistResponse());
+        return response;
+    }
+}
@@ -0,0 +1,115 @@
+package spotify;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import spotify.domain.PlaylistArtists;
+import spotify.domain.SpotifyArtist;
+import spotify.domain.SpotifyPlaylist;
+import spotify.domain.SpotifyPlaylistTracksResponse;
+import spotify.domain.SpotifyTrack;
+import spotify.domain.SpotifyTracksItem;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+public class PlaylistArtistCollectorTest {
+    @Mock
+    private PlaylistCache cache;
+
+    private final SpotifyPlaylist cachedPlaylist = playlist("cached", "s1");
+    private final SpotifyPlaylist changedPlaylist = playlist("changed", "s2");
+    private final SpotifyPlaylist unversioned = playlist("unversioned", null);
+    private ArtistCounter counter;
+    private PlaylistArtistCollector collector;
+
+    @BeforeMethod
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(cache.get(anyListOf(SpotifyPlaylist.class))).thenAnswer(invocation -> ((List<SpotifyPlaylist>) invocation.getArguments()[0]).stream()
+                .map(p -> p == cachedPlaylist ? new PlaylistArtists(new String[]{"g"}, new String[]{"Genesis"}, new int[]{4}) : null)
+                .collect(toList()));
+        counter = new ArtistCounter();
+        collector = new PlaylistArtistCollector(cache, counter);
+    }
+
+    @Test
+    public void onlyPlaylistsMissingFromTheCacheArePaged() {
+        List<SpotifyPlaylist> uncached = collector.uncached(Arrays.asList(cachedPlaylist, changedPlaylist, unversioned));
+
+        assertEquals(uncached, Arrays.asList(unversioned, changedPlaylist));
+        assertEquals(counts(), Collections.singletonList("Genesis=4"));
+        assertEquals(collector.cached(), 1);
+    }
+
+    @Test
+    public void playlistIsCachedOnceEveryPageArrives() {
+        collector.expect(changedPlaylist, 2);
+        collector.add(changedPlaylist, page("Yes", "Camel"));
+        verify(cache, never()).put(any(SpotifyPlaylist.class), any(PlaylistArtists.class));
+
+        collector.add(changedPlaylist, page("Yes"));
+
+        assertEquals(counts(), Arrays.asList("Yes=2", "Camel=1"));
+        ArgumentCaptor<PlaylistArtists> cached = ArgumentCaptor.forClass(PlaylistArtists.class);
+        verify(cache).put(eq(changedPlaylist), cached.capture());
+        assertEquals(cached.getValue().getNames(), new String[]{"Yes", "Camel"});
+        assertEquals(cached.getValue().getCounts(), new int[]{2, 1});
+    }
+
+    @Test
+    public void incompletePlaylistsCountButAreNotCached() {
+        collector.expect(changedPlaylist, 3);
+        collector.add(changedPlaylist, page("Yes"));
+        collector.add(changedPlaylist, page("Camel"));
+
+        assertEquals(counts(), Arrays.asList("Yes=1", "Camel=1"));
+        verify(cache, never()).put(any(SpotifyPlaylist.class), any(PlaylistArtists.class));
+    }
+
+    @Test
+    public void playlistsWithoutSnapshotAreNotCached() {
+        collector.expect(unversioned, 1);
+        collector.add(unversioned, page("Yes"));
+
+        assertEquals(counts(), Collections.singletonList("Yes=1"));
+        verify(cache, never()).put(any(SpotifyPlaylist.class), any(PlaylistArtists.class));
+    }
+
+    private static SpotifyPlaylist playlist(String id, String snapshot) {
+        SpotifyPlaylist playlist = new SpotifyPlaylist();
+        playlist.setId(id);
+        playlist.setSnapshotId(snapshot);
+        return playlist;
+    }
+
+    private static SpotifyPlaylistTracksResponse page(String... artists) {
+        SpotifyPlaylistTracksResponse page = new SpotifyPlaylistTracksResponse();
+        page.setItems(Arrays.stream(artists).map(name -> {
+            SpotifyTrack track = new SpotifyTrack();
+            track.setArtists(Collections.singletonList(new SpotifyArtist(name)));
+            SpotifyTracksItem item = new SpotifyTracksItem();
+            item.setTrack(track);
+            return item;
+        }).collect(toList()));
+        // A track that has been removed from Spotify
+        page.getItems().add(new SpotifyTracksItem());
+        return page;
+    }
+
+    private List<String> counts() {
+        return counter.byFrequency().stream().map(a -> a.getName() + "=" + a.getPlaycount()).collect(toList());
+    }
+}
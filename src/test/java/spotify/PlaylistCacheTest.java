@@ -0,0 +1,33 @@
+package spotify;
+
+import cache.CheckerCache;
+import org.testng.annotations.Test;
+import service.config.SpotifyConfig;
+import spotify.domain.PlaylistArtists;
+import spotify.domain.SpotifyPlaylist;
+
+import java.util.Collections;
+
+import static cache.CacheKeyPrefix.PLAYLIST;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class PlaylistCacheTest {
+
+    @Test
+    public void entriesAreKeyedByVersionAndSnapshot() {
+        CheckerCache checkerCache = mock(CheckerCache.class);
+        PlaylistCache cache = new PlaylistCache(checkerCache, new SpotifyConfig());
+        SpotifyPlaylist playlist = new SpotifyPlaylist();
+        playlist.setId("37i9dQZF1DX");
+        playlist.setSnapshotId("MTY0");
+        PlaylistArtists artists = new PlaylistArtists();
+
+        cache.put(playlist, artists);
+        cache.get(Collections.singletonList(playlist));
+
+        verify(checkerCache).put(eq("v2:37i9dQZF1DX:MTY0"), eq(artists), eq(PLAYLIST), eq(7 * 24 * 3600));
+        verify(checkerCache).getAll(Collections.singletonList("v2:37i9dQZF1DX:MTY0"), PLAYLIST, PlaylistArtists.class);
+    }
+}
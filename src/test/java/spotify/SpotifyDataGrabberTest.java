@@ -1,8 +1,5 @@
 package spotify;
 
-import cache.CacheKeyPrefix;
-import cache.CheckerCache;
-import intersection.OrderingCreator;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -11,16 +8,13 @@ import org.testng.annotations.Test;
 import lastfm.domain.Artist;
 import spotify.domain.*;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.function.Supplier;
-import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toList;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.doAnswer;
 import static org.testng.Assert.*;
 
 public class SpotifyDataGrabberTest {
@@ -28,16 +22,9 @@ public class SpotifyDataGrabberTest {
     @Mock
     private SpotifySender spotifySender;
 
-    @Mock
-    private CheckerCache cache;
-
-    @Mock
-    private OrderingCreator orderingCreator;
-
     @InjectMocks
     private SpotifyDataGrabber spotifyDataGrabber;
-    private String authCode = "authCode";
-    private ArrayList<Artist> artistList = new ArrayList<>();
+    private String accessToken = "accessToken";
 
     @BeforeMethod
     public void setUp() throws Exception {
@@ -45,29 +32,23 @@ public class SpotifyDataGrabberTest {
     }
 
 
-    //TODO Don't replicate logic from impl in test
     @Test
     public void artistsReturnedOrdered() {
-        AccessToken accessToken = new AccessToken();
-        accessToken.setAccessToken(authCode);
-        when(cache.getOrLookup(eq(authCode), any(Supplier.class), eq(CacheKeyPrefix.SPOTIFYACCESSTOKEN), any(Class.class))).thenReturn(accessToken);
-        SpotifyTracksResponse savedTracks = createSpotifyResponse();
-        List<SpotifyPlaylistTracksResponse> playListTracks = createSpotifyPlaylistTracksResponseList();
-
-        when(spotifySender.getSavedTracks(authCode)).thenReturn(Arrays.asList(savedTracks));
-        List<SpotifyArtist> artists = savedTracks.getItems().stream().flatMap(x -> x.getTrack().getArtists().stream()).collect(toList());
-
-        when(spotifySender.getPlayListTracks(authCode, false)).thenReturn(playListTracks);
-        List<SpotifyArtist> playlistArtists = playListTracks.stream().flatMap(x -> x.getItems().stream()).flatMap(x -> x.getTrack().getArtists().stream()).collect(toList());
-
-        List<SpotifyArtist> combined = Stream.concat(artists.stream(), playlistArtists.stream()).collect(toList());
-
-        when(orderingCreator.artistListByFrequency(combined)).thenReturn(artistList);
-
-        SpotifyArtists result = spotifyDataGrabber.fetchSpotifyArtists(authCode, "redirectUrl", false);
-
-        assertSame(result.getArtists(),artistList);
-
+        SpotifyUser user = new SpotifyUser("adam", accessToken, 0);
+        doAnswer(invocation -> {
+            ((ArtistCounter) invocation.getArguments()[1]).addTracks(createSpotifyResponse().getItems());
+            return null;
+        }).when(spotifySender).countSavedTrackArtists(eq(accessToken), any(ArtistCounter.class));
+        doAnswer(invocation -> {
+            createSpotifyPlaylistTracksResponseList().forEach(page -> ((ArtistCounter) invocation.getArguments()[2]).addTracks(page.getItems()));
+            return null;
+        }).when(spotifySender).countPlaylistArtists(eq(user), eq(false), any(ArtistCounter.class));
+
+        SpotifyArtists result = spotifyDataGrabber.fetchSpotifyArtists(user, false);
+
+        assertEquals(result.getArtists().stream().map(Artist::getName).collect(toList()),
+                Arrays.asList("Mike and the Mechanics", "Linkin Park", "Clemie Fischer", "Genesis", "Blue October", "The Naked and Famous"));
+        assertEquals(result.getArtists().stream().map(Artist::getPlaycount).collect(toList()), Arrays.asList("3", "2", "2", "1", "1", "1"));
     }
 
     private SpotifyTracksResponse createSpotifyResponse() {
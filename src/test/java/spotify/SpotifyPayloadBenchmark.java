@@ -0,0 +1,104 @@
+package spotify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import spotify.domain.SpotifyPlaylistTracksResponse;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Size and bytes allocated and time to bind a 100 track playlist page into
+ * {@link SpotifyPlaylistTracksResponse}, as Spotify sends it in full and trimmed by
+ * {@link SpotifySender#playlistTrackFields}. Run manually, not part of the test suite.
+ */
+public class SpotifyPayloadBenchmark {
+    private static final int TRACKS = 100;
+    private static final int ITERATIONS = 2000;
+
+    public static void main(String[] args) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        byte[] full = page(true);
+        byte[] trimmed = page(false);
+        System.out.println("full page " + full.length / 1024 + " KB, trimmed page " + trimmed.length / 1024 + " KB");
+
+        for (int round = 0; round < 3; round++) {
+            run("full   ", () -> mapper.readValue(full, SpotifyPlaylistTracksResponse.class).getItems().size());
+            run("trimmed", () -> mapper.readValue(trimmed, SpotifyPlaylistTracksResponse.class).getItems().size());
+        }
+    }
+
+    private interface Parse {
+        int tracks() throws IOException;
+    }
+
+    private static void run(String label, Parse parse) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long size = 0;
+        long bytesBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            size += parse.tracks();
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+        System.out.println(label + ": " + bytes / ITERATIONS + " bytes/op, " + nanos / ITERATIONS / 1000 + " us/op (" + size / ITERATIONS + " tracks)");
+    }
+
+    private static byte[] page(boolean full) {
+        StringBuilder json = new StringBuilder("{");
+        if (full) {
+            json.append("\"href\":\"https://api.spotify.com/v1/playlists/3cEYpjA9oz9GiPac4AsH4n/tracks?offset=0&limit=100\",\"limit\":100,\"next\":null,\"offset\":0,\"previous\":null,");
+        }
+        json.append("\"items\":[");
+        for (int i = 0; i < TRACKS; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            if (full) {
+                json.append("{\"added_at\":\"2016-03-01T12:00:00Z\",\"added_by\":{\"id\":\"adam\",\"type\":\"user\",\"uri\":\"spotify:user:adam\"},\"is_local\":false,\"track\":{");
+                json.append("\"album\":{\"album_type\":\"album\",\"available_markets\":").append(markets())
+                        .append(",\"id\":\"2noRn2Aes5aoNVsU6iWThc\",\"name\":\"Album ").append(i).append("\",\"images\":[");
+                for (int size : new int[]{640, 300, 64}) {
+                    json.append(size == 640 ? "" : ",").append("{\"height\":").append(size)
+                            .append(",\"url\":\"https://i.scdn.co/image/966ade7a8c43b72faa53822b74a899c675aaafee\",\"width\":").append(size).append('}');
+                }
+                json.append("],\"type\":\"album\",\"uri\":\"spotify:album:2noRn2Aes5aoNVsU6iWThc\"},");
+                json.append("\"available_markets\":").append(markets())
+                        .append(",\"disc_number\":1,\"duration_ms\":215000,\"explicit\":false,\"external_ids\":{\"isrc\":\"GBAYE0601498\"},")
+                        .append("\"href\":\"https://api.spotify.com/v1/tracks/0eGsygTp906u18L0Oimnem\",\"id\":\"0eGsygTp906u18L0Oimnem\",")
+                        .append("\"name\":\"Track ").append(i).append("\",\"popularity\":60,\"preview_url\":\"https://p.scdn.co/mp3-preview/6be8eb12ff18ae09b7a6657ec1e8d5c4ecac5ba3\",")
+                        .append("\"track_number\":").append(i % 12 + 1).append(",\"type\":\"track\",\"uri\":\"spotify:track:0eGsygTp906u18L0Oimnem\",");
+            } else {
+                json.append("{\"track\":{");
+            }
+            json.append("\"artists\":[");
+            for (int a = 0; a < 2; a++) {
+                json.append(a == 0 ? "" : ",").append('{');
+                if (full) {
+                    json.append("\"external_urls\":{\"spotify\":\"https://open.spotify.com/artist/0oSGxfWSnnOXhD2fKuz2Gy\"},\"href\":\"https://api.spotify.com/v1/artists/0oSGxfWSnnOXhD2fKuz2Gy\",");
+                }
+                json.append("\"id\":\"0oSGxfWSnnOXhD2fKuz2G").append(a).append("\",\"name\":\"Artist ").append(i * 2 + a).append('"');
+                if (full) {
+                    json.append(",\"type\":\"artist\",\"uri\":\"spotify:artist:0oSGxfWSnnOXhD2fKuz2Gy\"");
+                }
+                json.append('}');
+            }
+            json.append("]}}");
+        }
+        json.append("],\"total\":").append(TRACKS).append('}');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String markets() {
+        String[] markets = {"AD", "AR", "AT", "AU", "BE", "BG", "BO", "BR", "CA", "CH", "CL", "CO", "CR", "CY", "CZ", "DE", "DK", "DO", "EC", "EE",
+                "ES", "FI", "FR", "GB", "GR", "GT", "HK", "HN", "HU", "ID", "IE", "IS", "IT", "JP", "LI", "LT", "LU", "LV", "MC", "MT", "MX", "MY",
+                "NI", "NL", "NO", "NZ", "PA", "PE", "PH", "PL", "PT", "PY", "SE", "SG", "SK", "SV", "TR", "TW", "US", "UY"};
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < markets.length; i++) {
+            json.append(i == 0 ? "\"" : ",\"").append(markets[i]).append('"');
+        }
+        return json.append(']').toString();
+    }
+}
@@ -0,0 +1,104 @@
+package spotify;
+
+import cache.CheckerCache;
+import cache.JedisFactory;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import redis.clients.jedis.Jedis;
+import service.config.SpotifyConfig;
+import spotify.domain.AccessToken;
+import spotify.domain.SpotifyUser;
+import spotify.domain.UserProfile;
+
+import static cache.CacheKeyPrefix.SPOTIFYSESSION;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+public class SpotifyUsersTest {
+    @Mock
+    private SpotifySender sender;
+    @Mock
+    private CheckerCache cache;
+    @Mock
+    private JedisFactory jedisFactory;
+    @Mock
+    private Jedis jedis;
+
+    private SpotifyUsers users;
+
+    @BeforeMethod
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(jedisFactory.newJedis()).thenReturn(jedis);
+        users = new SpotifyUsers(sender, cache, jedisFactory, new SpotifyConfig());
+    }
+
+    @Test
+    public void signInResolvesTheUserIdAndKeepsTheRefreshToken() {
+        when(sender.getAuthTokenAsync("code", "url")).thenReturn(completedFuture(token("access", "refresh", "3600")));
+        when(sender.getUserProfileAsync("access")).thenReturn(completedFuture(profile("adam")));
+
+        SpotifyUser user = users.resolveAsync("code", "url").join();
+
+        assertEquals(user.getUserId(), "adam");
+        assertEquals(user.getCacheKey(), "spotify:adam");
+        assertEquals(user.getAccessToken(), "access");
+        verify(jedis).setex(eq(SpotifyUsers.redisKey("adam")), anyInt(), eq("refresh"));
+        verify(cache).put("code", user, SPOTIFYSESSION);
+    }
+
+    @Test
+    public void cachedSessionIsUsedUntilItExpires() {
+        SpotifyUser cached = new SpotifyUser("adam", "access", System.currentTimeMillis() + 600_000);
+        when(cache.get("code", SPOTIFYSESSION, SpotifyUser.class)).thenReturn(cached);
+
+        assertSame(users.resolveAsync("code", "url").join(), cached);
+        verify(sender, never()).refreshAuthTokenAsync(anyString());
+    }
+
+    @Test
+    public void expiredSessionIsRefreshed() {
+        SpotifyUser cached = new SpotifyUser("adam", "stale", System.currentTimeMillis() - 1000);
+        when(cache.get("code", SPOTIFYSESSION, SpotifyUser.class)).thenReturn(cached);
+        when(jedis.get(SpotifyUsers.redisKey("adam"))).thenReturn("refresh");
+        when(sender.refreshAuthTokenAsync("refresh")).thenReturn(completedFuture(token("fresh", null, "3600")));
+
+        SpotifyUser user = users.resolveAsync("code", "url").join();
+
+        assertEquals(user.getAccessToken(), "fresh");
+        verify(cache).put("code", user, SPOTIFYSESSION);
+        verify(jedis).setex(eq(SpotifyUsers.redisKey("adam")), anyInt(), eq("refresh"));
+    }
+
+    @Test
+    public void expiredSessionWithoutRefreshTokenIsReturnedAsIs() {
+        SpotifyUser cached = new SpotifyUser("adam", "stale", System.currentTimeMillis() - 1000);
+        when(cache.get("code", SPOTIFYSESSION, SpotifyUser.class)).thenReturn(cached);
+
+        assertSame(users.resolveAsync("code", "url").join(), cached);
+        verify(sender, never()).refreshAuthTokenAsync(anyString());
+    }
+
+    private static AccessToken token(String access, String refresh, String expiresIn) {
+        AccessToken token = new AccessToken();
+        token.setAccessToken(access);
+        token.setRefreshToken(refresh);
+        token.setExpiresIn(expiresIn);
+        return token;
+    }
+
+    private static UserProfile profile(String id) {
+        UserProfile profile = new UserProfile();
+        profile.setId(id);
+        return profile;
+    }
+}